@@ -13,6 +13,14 @@ export interface LocationData {
   isVisible: boolean
 }
 
+// 서버가 사용자 목록을 한 프레임으로 보낼 때의 형식 (여러 페이지로 나뉠 수 있음)
+interface LocationSnapshot {
+  users: LocationData[]
+  page: number
+  totalCount: number
+  last: boolean
+}
+
 const BASE_URL = "http://localhost:8080"
 const WS_URL = BASE_URL.replace("http://", "ws://")
 
@@ -46,80 +54,89 @@ export function useLocationShare(userId?: string) {
         setIsConnected(true)
 
         // 근처 사용자 위치 구독 (모든 사용자의 위치 업데이트 수신)
+        // 한 명씩 오는 LocationData 와, 여러 명을 묶은 { users: [...] } (오프라인 정리 등) 두 가지 형식이 온다
         const nearbySubscription = stompClient.subscribe("/topic/location/nearby", (message) => {
           console.log("📍 근처 사용자 위치 수신 원본:", message.body)
           try {
-            const locationData: LocationData = JSON.parse(message.body)
-            console.log("📍 파싱된 위치 데이터:", locationData)
-
-            // 자신의 위치 정보는 제외
-            if (locationData.userId === userId) {
-              console.log("🚫 자신의 위치 정보는 제외:", locationData.userName)
-              return
-            }
+            const parsed = JSON.parse(message.body)
+            const locations: LocationData[] = Array.isArray(parsed.users) ? parsed.users : [parsed]
+            console.log("📍 파싱된 위치 데이터:", locations.length, "명")
 
             setNearbyUsers((prev) => {
               console.log("📍 현재 근처 사용자 목록:", prev.length, "명")
+              let next = prev
 
-              if (locationData.status === "offline") {
-                // 오프라인 사용자 제거
-                const filtered = prev.filter((user) => user.userId !== locationData.userId)
-                console.log("👋 오프라인 사용자 제거:", locationData.userName, "남은 사용자:", filtered.length, "명")
-                return filtered
-              } else {
-                // 기존 사용자 업데이트 또는 새 사용자 추가
-                const existingIndex = prev.findIndex((user) => user.userId === locationData.userId)
-                if (existingIndex >= 0) {
-                  const updated = [...prev]
-                  updated[existingIndex] = locationData
-                  console.log("🔄 기존 사용자 위치 업데이트:", locationData.userName)
-                  return updated
+              for (const locationData of locations) {
+                // 자신의 위치 정보는 제외
+                if (locationData.userId === userId) {
+                  console.log("🚫 자신의 위치 정보는 제외:", locationData.userName)
+                  continue
+                }
+
+                if (locationData.status === "offline") {
+                  // 오프라인 사용자 제거
+                  next = next.filter((user) => user.userId !== locationData.userId)
+                  console.log("👋 오프라인 사용자 제거:", locationData.userName, "남은 사용자:", next.length, "명")
                 } else {
-                  const newList = [...prev, locationData]
-                  console.log("➕ 새 사용자 추가:", locationData.userName, "총 사용자:", newList.length, "명")
-                  return newList
+                  // 기존 사용자 업데이트 또는 새 사용자 추가
+                  const existingIndex = next.findIndex((user) => user.userId === locationData.userId)
+                  if (existingIndex >= 0) {
+                    next = [...next]
+                    next[existingIndex] = locationData
+                    console.log("🔄 기존 사용자 위치 업데이트:", locationData.userName)
+                  } else {
+                    next = [...next, locationData]
+                    console.log("➕ 새 사용자 추가:", locationData.userName, "총 사용자:", next.length, "명")
+                  }
                 }
               }
+              return next
             })
           } catch (error) {
             console.error("❌ 위치 데이터 파싱 에러:", error)
           }
         })
 
-        // 개인 위치 정보 구독 (초기 데이터)
+        // 개인 위치 정보 구독 (초기 데이터: 근처 사용자 snapshot)
         const initialSubscription = stompClient.subscribe(`/user/queue/location/initial`, (message) => {
           console.log("📍 초기 위치 데이터 수신:", message.body)
           try {
-            const locationData: LocationData = JSON.parse(message.body)
-            console.log("📍 초기 위치 데이터 파싱:", locationData)
-
-            // 자신의 위치 정보는 제외
-            if (locationData.userId === userId) {
-              console.log("🚫 초기 데이터에서 자신의 위치 정보는 제외")
-              return
-            }
+            const snapshot: LocationSnapshot = JSON.parse(message.body)
+            const users = snapshot.users.filter((user) => user.userId !== userId)
+            console.log("📍 초기 위치 데이터 파싱:", users.length, "명 (페이지", snapshot.page, ")")
 
+            // 그 사이에 받은 실시간 위치가 더 최신이므로 없는 사용자만 추가
             setNearbyUsers((prev) => {
-              const exists = prev.some((user) => user.userId === locationData.userId)
-              if (!exists) {
-                const newList = [...prev, locationData]
-                console.log(
-                  "➕ 초기 데이터로 새 사용자 추가:",
-                  locationData.userName,
-                  "총 사용자:",
-                  newList.length,
-                  "명",
-                )
-                return newList
+              const added = users.filter((user) => !prev.some((existing) => existing.userId === user.userId))
+              if (added.length === 0) {
+                console.log("ℹ️ 초기 데이터 사용자 이미 존재")
+                return prev
               }
-              console.log("ℹ️ 초기 데이터 사용자 이미 존재:", locationData.userName)
-              return prev
+              const newList = [...prev, ...added]
+              console.log("➕ 초기 데이터로 새 사용자 추가:", added.length, "명, 총 사용자:", newList.length, "명")
+              return newList
             })
           } catch (error) {
             console.error("❌ 초기 위치 데이터 파싱 에러:", error)
           }
         })
 
+        // 근처 사용자 새로고침 결과 구독 (첫 페이지가 오면 목록을 새로 채움)
+        const refreshSubscription = stompClient.subscribe(`/user/queue/location/nearby`, (message) => {
+          try {
+            const snapshot: LocationSnapshot = JSON.parse(message.body)
+            const users = snapshot.users.filter((user) => user.userId !== userId)
+            console.log("🔄 근처 사용자 새로고침 결과:", snapshot.totalCount, "명 (페이지", snapshot.page, ")")
+
+            setNearbyUsers((prev) => {
+              if (snapshot.page === 0) return users
+              return [...prev.filter((existing) => !users.some((user) => user.userId === existing.userId)), ...users]
+            })
+          } catch (error) {
+            console.error("❌ 근처 사용자 새로고침 데이터 파싱 에러:", error)
+          }
+        })
+
         console.log("✅ 위치 공유 구독 완료")
       },
       onDisconnect: (frame) => {
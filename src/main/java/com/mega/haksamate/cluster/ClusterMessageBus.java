@@ -0,0 +1,57 @@
+package com.mega.haksamate.cluster;
+
+import java.util.Set;
+
+/**
+ * 여러 백엔드 노드 사이에서 STOMP 브로드캐스트를 전달하는 메시지 버스
+ * - publish 는 해당 destination 에 구독자가 있는 노드로만 전달된다
+ * - /user/ destination 은 어느 노드에 접속해 있는지 모르므로 모든 노드로 전달한다
+ */
+public interface ClusterMessageBus {
+
+    String getNodeId();
+
+    /**
+     * 현재 연결되어 메시지를 보낼 수 있는 노드 id 목록 (자기 자신 포함)
+     */
+    Set<String> getNodeIds();
+
+    /**
+     * 다른 노드로 실제 전송이 일어나는 구현인지 여부 (단일 노드 모드면 false)
+     */
+    boolean isDistributed();
+
+    /**
+     * 이 destination 을 구독 중인 다른 노드가 하나라도 있는지
+     */
+    boolean hasRemoteInterest(String destination);
+
+    /**
+     * 직렬화된(JSON) payload 를 관심 있는 다른 노드로 전달
+     */
+    void publish(String destination, byte[] payload);
+
+    /**
+     * 구독 관심과 상관없이 특정 노드 하나로만 전달 (노드 간 요청/응답용). 보낼 수 없으면 false
+     */
+    boolean sendToNode(String nodeId, String destination, byte[] payload);
+
+    /**
+     * 이 노드에 해당 destination 구독자가 생겼음을 알림
+     */
+    void addInterest(String destination);
+
+    /**
+     * 이 노드에서 해당 destination 구독자가 모두 사라졌음을 알림
+     */
+    void removeInterest(String destination);
+
+    /**
+     * 다른 노드에서 넘어온 메시지를 받을 리스너 등록
+     */
+    void setListener(ClusterMessageListener listener);
+
+    static boolean isUserDestination(String destination) {
+        return destination != null && destination.startsWith("/user/");
+    }
+}
@@ -0,0 +1,7 @@
+package com.mega.haksamate.cluster;
+
+@FunctionalInterface
+public interface ClusterMessageListener {
+
+    void onMessage(String destination, byte[] payload);
+}
@@ -0,0 +1,206 @@
+package com.mega.haksamate.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * SimpMessagingTemplate 대신 사용하는 전송 템플릿
+ * - 로컬 구독자에게는 그대로 보내고, 같은 destination 을 구독 중인 다른 노드가 있으면 버스로도 보낸다
+ * - 다른 노드에서 넘어온 메시지는 다시 직렬화하지 않고 JSON 바이트 그대로 로컬 브로커에 넣는다
+ * - /cluster/ 로 시작하는 destination 은 노드 사이 요청용이라 브로커 대신 등록된 handler 로 넘긴다
+ * - 브로드캐스트는 "{payload 타입}\n{JSON}" 으로 보내고, 받은 쪽은 타입을 PAYLOAD_TYPE_HEADER 로 남긴다
+ *   (CBOR 세션처럼 원본 객체가 필요한 곳에서 JSON 트리 대신 원래 DTO 로 읽을 수 있도록)
+ * - 세션에 Principal 을 두지 않으므로 /user/{user}/... 는 userSessionResolver 가 돌려준 이 노드의 세션마다 보낸다
+ */
+@Component
+@RequiredArgsConstructor
+public class ClusterMessagingTemplate {
+
+    public static final String INTERNAL_PREFIX = "/cluster/";
+    public static final String PAYLOAD_TYPE_HEADER = "haksamatePayloadType";
+
+    // 받은 쪽에서 역직렬화를 허용하는 타입 (버스로 받은 타입 이름으로 아무 클래스나 만들지 않도록)
+    private static final String DTO_PACKAGE = "com.mega.haksamate.dto.";
+    private static final String USER_PREFIX = "/user/";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterMessageBus clusterMessageBus;
+    private final ObjectMapper objectMapper;
+
+    private final Map<String, ClusterMessageListener> internalHandlers = new ConcurrentHashMap<>();
+    // 사용자 -> 이 노드에 붙은 세션 id
+    private volatile Function<String, Collection<String>> userSessionResolver = user -> List.of();
+
+    @PostConstruct
+    public void init() {
+        clusterMessageBus.setListener(this::deliverLocally);
+    }
+
+    public void convertAndSend(String destination, Object payload) {
+        messagingTemplate.convertAndSend(destination, payload);
+        publishRemote(destination, payload);
+    }
+
+    public void convertAndSendToUser(String user, String destination, Object payload) {
+        for (String sessionId : userSessionResolver.apply(user)) {
+            sendToSession(sessionId, destination, payload);
+        }
+        publishRemote(USER_PREFIX + user + destination, payload);
+    }
+
+    /**
+     * convertAndSendToUser 에서 사용자의 세션을 찾는 방법 (이 노드에 붙은 세션만)
+     */
+    public void setUserSessionResolver(Function<String, Collection<String>> userSessionResolver) {
+        this.userSessionResolver = userSessionResolver;
+    }
+
+    /**
+     * 이 노드에 연결된 특정 세션에게만 보낸다 (요청에 대한 개인 응답용, 버스로는 보내지 않음)
+     */
+    public void sendToSession(String sessionId, String destination, Object payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.convertAndSendToUser(sessionId, destination, payload, accessor.getMessageHeaders());
+    }
+
+    public String getNodeId() {
+        return clusterMessageBus.getNodeId();
+    }
+
+    public Set<String> getNodeIds() {
+        return clusterMessageBus.getNodeIds();
+    }
+
+    public boolean isDistributed() {
+        return clusterMessageBus.isDistributed();
+    }
+
+    /**
+     * 다른 노드에서 온 /cluster/... 메시지를 받을 handler 등록
+     */
+    public void registerHandler(String destination, ClusterMessageListener handler) {
+        internalHandlers.put(destination, handler);
+    }
+
+    /**
+     * 특정 노드의 handler 로 보낸다 (보낼 수 없으면 false)
+     */
+    public boolean sendToNode(String nodeId, String destination, Object payload) {
+        try {
+            return clusterMessageBus.sendToNode(nodeId, destination, objectMapper.writeValueAsBytes(payload));
+        } catch (JsonProcessingException e) {
+            System.err.println("❌ 클러스터 전송용 직렬화 실패: " + destination + " - " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void publishRemote(String destination, Object payload) {
+        if (!clusterMessageBus.isDistributed() || !clusterMessageBus.hasRemoteInterest(destination)) {
+            return;
+        }
+        try {
+            clusterMessageBus.publish(destination, envelope(payload, objectMapper.writeValueAsBytes(payload)));
+        } catch (JsonProcessingException e) {
+            System.err.println("❌ 클러스터 전송용 직렬화 실패: " + destination + " - " + e.getMessage());
+        }
+    }
+
+    private void deliverLocally(String destination, byte[] payload) {
+        if (destination.startsWith(INTERNAL_PREFIX)) {
+            ClusterMessageListener handler = internalHandlers.get(destination);
+            if (handler != null) {
+                handler.onMessage(destination, payload);
+            }
+            return;
+        }
+        int separator = indexOf(payload, (byte) '\n');
+        if (separator < 0) {
+            System.err.println("❌ 클러스터 메시지 형식 오류: " + destination);
+            return;
+        }
+        String typeName = new String(payload, 0, separator, StandardCharsets.UTF_8);
+        byte[] json = Arrays.copyOfRange(payload, separator + 1, payload.length);
+        if (!ClusterMessageBus.isUserDestination(destination)) {
+            messagingTemplate.send(destination, MessageBuilder.createMessage(json, localHeaders(typeName, null)));
+            return;
+        }
+        // /user/{user}/queue/... -> 이 노드에 붙은 그 사용자의 세션마다 /user/{sessionId}/queue/...
+        int userEnd = destination.indexOf('/', USER_PREFIX.length());
+        if (userEnd < 0) return;
+        String user = destination.substring(USER_PREFIX.length(), userEnd);
+        String userDestination = destination.substring(userEnd);
+        for (String sessionId : userSessionResolver.apply(user)) {
+            messagingTemplate.send(USER_PREFIX + sessionId + userDestination,
+                    MessageBuilder.createMessage(json, localHeaders(typeName, sessionId)));
+        }
+    }
+
+    private static MessageHeaders localHeaders(String typeName, String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setHeader(PAYLOAD_TYPE_HEADER, typeName);
+        if (sessionId != null) {
+            accessor.setSessionId(sessionId);
+        }
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+
+    /**
+     * PAYLOAD_TYPE_HEADER 값을 역직렬화할 타입으로 ("[타입" 은 그 타입의 List). dto 패키지 밖이면 null
+     */
+    public static JavaType resolvePayloadType(ObjectMapper mapper, String typeName) {
+        if (typeName == null) return null;
+        boolean list = typeName.startsWith("[");
+        String className = list ? typeName.substring(1) : typeName;
+        if (!className.startsWith(DTO_PACKAGE)) return null;
+        try {
+            Class<?> type = Class.forName(className, false, ClusterMessagingTemplate.class.getClassLoader());
+            return list
+                    ? mapper.getTypeFactory().constructCollectionType(List.class, type)
+                    : mapper.constructType(type);
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static byte[] envelope(Object payload, byte[] json) {
+        String typeName = payload instanceof List<?> list && !list.isEmpty() && list.get(0) != null
+                ? "[" + list.get(0).getClass().getName()
+                : payload.getClass().getName();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(typeName.length() + 1 + json.length);
+        out.writeBytes(typeName.getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+        out.writeBytes(json);
+        return out.toByteArray();
+    }
+
+    private static int indexOf(byte[] bytes, byte value) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == value) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,62 @@
+package com.mega.haksamate.cluster;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+/**
+ * 단일 노드 모드 (기본값) - 다른 노드가 없으므로 아무것도 전달하지 않는다
+ */
+@Component
+@ConditionalOnProperty(name = "haksamate.cluster.mode", havingValue = "local", matchIfMissing = true)
+public class LocalClusterMessageBus implements ClusterMessageBus {
+
+    private final String nodeId;
+
+    public LocalClusterMessageBus(@Value("${haksamate.cluster.node-id:local}") String nodeId) {
+        this.nodeId = nodeId.isBlank() ? "local" : nodeId;
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Set<String> getNodeIds() {
+        return Set.of(nodeId);
+    }
+
+    @Override
+    public boolean isDistributed() {
+        return false;
+    }
+
+    @Override
+    public boolean hasRemoteInterest(String destination) {
+        return false;
+    }
+
+    @Override
+    public void publish(String destination, byte[] payload) {
+    }
+
+    @Override
+    public boolean sendToNode(String nodeId, String destination, byte[] payload) {
+        return false;
+    }
+
+    @Override
+    public void addInterest(String destination) {
+    }
+
+    @Override
+    public void removeInterest(String destination) {
+    }
+
+    @Override
+    public void setListener(ClusterMessageListener listener) {
+    }
+}
@@ -0,0 +1,123 @@
+package com.mega.haksamate.cluster;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * 같은 JVM 안의 여러 애플리케이션 컨텍스트를 노드처럼 묶어 주는 구현 (테스트용)
+ * - 같은 group 이름을 쓰는 버스끼리 메시지를 주고받는다
+ */
+@Component
+@ConditionalOnProperty(name = "haksamate.cluster.mode", havingValue = "loopback")
+public class LoopbackClusterMessageBus implements ClusterMessageBus {
+
+    private static final Map<String, Set<LoopbackClusterMessageBus>> GROUPS = new ConcurrentHashMap<>();
+
+    private final String nodeId;
+    private final String group;
+    private final Set<String> localInterest = ConcurrentHashMap.newKeySet();
+    private volatile ClusterMessageListener listener;
+
+    public LoopbackClusterMessageBus(@Value("${haksamate.cluster.node-id:}") String nodeId,
+                                     @Value("${haksamate.cluster.loopback-group:default}") String group) {
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.group = group;
+        GROUPS.computeIfAbsent(group, g -> new CopyOnWriteArraySet<>()).add(this);
+    }
+
+    @PreDestroy
+    public void leave() {
+        Set<LoopbackClusterMessageBus> members = GROUPS.get(group);
+        if (members != null) {
+            members.remove(this);
+        }
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Set<String> getNodeIds() {
+        Set<String> nodeIds = new HashSet<>();
+        for (LoopbackClusterMessageBus member : members()) {
+            nodeIds.add(member.nodeId);
+        }
+        return nodeIds;
+    }
+
+    @Override
+    public boolean isDistributed() {
+        return true;
+    }
+
+    @Override
+    public boolean hasRemoteInterest(String destination) {
+        for (LoopbackClusterMessageBus other : members()) {
+            if (other != this && other.isInterested(destination)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void publish(String destination, byte[] payload) {
+        for (LoopbackClusterMessageBus other : members()) {
+            if (other != this && other.isInterested(destination)) {
+                other.deliver(destination, payload);
+            }
+        }
+    }
+
+    @Override
+    public boolean sendToNode(String nodeId, String destination, byte[] payload) {
+        for (LoopbackClusterMessageBus other : members()) {
+            if (other != this && other.nodeId.equals(nodeId)) {
+                other.deliver(destination, payload);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void addInterest(String destination) {
+        localInterest.add(destination);
+    }
+
+    @Override
+    public void removeInterest(String destination) {
+        localInterest.remove(destination);
+    }
+
+    @Override
+    public void setListener(ClusterMessageListener listener) {
+        this.listener = listener;
+    }
+
+    private Set<LoopbackClusterMessageBus> members() {
+        return GROUPS.getOrDefault(group, Set.of());
+    }
+
+    private boolean isInterested(String destination) {
+        return ClusterMessageBus.isUserDestination(destination) || localInterest.contains(destination);
+    }
+
+    private void deliver(String destination, byte[] payload) {
+        ClusterMessageListener current = listener;
+        if (current != null) {
+            current.onMessage(destination, payload);
+        }
+    }
+}
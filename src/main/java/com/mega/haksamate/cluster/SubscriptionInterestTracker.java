@@ -0,0 +1,92 @@
+package com.mega.haksamate.cluster;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 이 노드의 STOMP 구독 현황을 세어서 클러스터 버스에 관심(destination) 등록/해제를 알린다
+ * - 채팅방 단위(/topic/chat/{id})로 관심이 관리되므로 구독자가 없는 노드에는 메시지가 가지 않는다
+ */
+@Component
+@RequiredArgsConstructor
+public class SubscriptionInterestTracker {
+
+    private final ClusterMessageBus clusterMessageBus;
+
+    // sessionId -> (subscriptionId -> destination)
+    private final Map<String, Map<String, String>> sessionSubscriptions = new HashMap<>();
+    // destination -> 구독 수
+    private final Map<String, Integer> destinationCounts = new HashMap<>();
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        String destination = accessor.getDestination();
+        if (accessor.getSessionId() == null || accessor.getSubscriptionId() == null
+                || destination == null || ClusterMessageBus.isUserDestination(destination)
+                || isPattern(destination)) {
+            return;
+        }
+        synchronized (this) {
+            String previous = sessionSubscriptions
+                    .computeIfAbsent(accessor.getSessionId(), id -> new HashMap<>())
+                    .put(accessor.getSubscriptionId(), destination);
+            if (previous != null) {
+                release(previous);
+            }
+            acquire(destination);
+        }
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        synchronized (this) {
+            Map<String, String> subscriptions = sessionSubscriptions.get(accessor.getSessionId());
+            if (subscriptions == null) return;
+            String destination = subscriptions.remove(accessor.getSubscriptionId());
+            if (destination != null) {
+                release(destination);
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        synchronized (this) {
+            Map<String, String> subscriptions = sessionSubscriptions.remove(event.getSessionId());
+            if (subscriptions != null) {
+                subscriptions.values().forEach(this::release);
+            }
+        }
+    }
+
+    // 패턴 구독(예: 위치 칸 묶음)은 구체적인 destination 을 아는 쪽이 acquire/release 로 직접 등록한다
+    private static boolean isPattern(String destination) {
+        return destination.indexOf('{') >= 0 || destination.indexOf('*') >= 0;
+    }
+
+    /**
+     * 서버가 직접 등록하는 구독(예: 세션 대신 바꿔주는 구독)도 관심 목록에 반영할 때 사용
+     */
+    public synchronized void acquire(String destination) {
+        if (destinationCounts.merge(destination, 1, Integer::sum) == 1) {
+            clusterMessageBus.addInterest(destination);
+        }
+    }
+
+    public synchronized void release(String destination) {
+        Integer remaining = destinationCounts.computeIfPresent(destination, (d, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null) {
+            clusterMessageBus.removeInterest(destination);
+        }
+    }
+}
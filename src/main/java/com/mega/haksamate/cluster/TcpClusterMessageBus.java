@@ -0,0 +1,508 @@
+package com.mega.haksamate.cluster;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * TCP 로 다른 JVM 과 메시지를 주고받는 구현
+ * - 설정된 peer 마다 나가는 연결을 하나씩 만들고 그 연결로만 publish 한다
+ * - 상대 노드는 같은 연결로 자신의 구독 관심(destination) 목록을 돌려보낸다
+ * - HELLO 로 받은 상대 node id 로 특정 노드에만 보내는 것(sendToNode)도 같은 연결을 쓴다
+ * - 로컬에서 여러 JVM 을 띄울 때는 port 와 peers 만 다르게 주면 된다
+ *   (예: -Dhaksamate.cluster.port=9101 -Dhaksamate.cluster.peers=localhost:9102)
+ * - bind-address 에만 listen 하고, 연결마다 공유 secret 으로 서로 확인한 뒤에만 프레임을 주고받는다
+ *   수신 쪽이 challenge 를 보내면 연결한 쪽이 HELLO, node id, HMAC-SHA256(secret, challenge, node id), 자기 challenge 를 보내고
+ *   수신 쪽도 같은 방식으로 HELLO 에 증명을 붙여 답한다 (secret 자체는 전송하지 않는다)
+ * - max-frame-bytes 보다 큰 payload 는 보내지 않고, 받으면 연결을 끊는다
+ */
+@Component
+@ConditionalOnProperty(name = "haksamate.cluster.mode", havingValue = "tcp")
+public class TcpClusterMessageBus implements ClusterMessageBus {
+
+    private static final byte HELLO = 1;
+    private static final byte INTEREST_ADD = 2;
+    private static final byte INTEREST_REMOVE = 3;
+    private static final byte PUBLISH = 4;
+
+    private static final long RECONNECT_DELAY_MS = 2000;
+    private static final int HANDSHAKE_TIMEOUT_MS = 5000;
+    private static final int NONCE_BYTES = 32;
+    private static final int MAC_BYTES = 32;
+    private static final byte CLIENT_PROOF = 'C';
+    private static final byte SERVER_PROOF = 'S';
+
+    private final String nodeId;
+    private final String bindAddress;
+    private final int port;
+    private final byte[] secret;
+    private final int maxFrameBytes;
+    private final SecureRandom random = new SecureRandom();
+    private final List<InetSocketAddress> peerAddresses = new ArrayList<>();
+    private final int sendQueueSize;
+
+    private final Set<String> localInterest = ConcurrentHashMap.newKeySet();
+    private final List<OutboundPeer> outboundPeers = new CopyOnWriteArrayList<>();
+    private final List<InboundPeer> inboundPeers = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    private volatile ClusterMessageListener listener;
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+
+    public TcpClusterMessageBus(@Value("${haksamate.cluster.node-id:}") String nodeId,
+                                @Value("${haksamate.cluster.bind-address:127.0.0.1}") String bindAddress,
+                                @Value("${haksamate.cluster.port:9100}") int port,
+                                @Value("${haksamate.cluster.peers:}") String peers,
+                                @Value("${haksamate.cluster.secret:}") String secret,
+                                @Value("${haksamate.cluster.max-frame-bytes:1048576}") int maxFrameBytes,
+                                @Value("${haksamate.cluster.send-queue-size:10000}") int sendQueueSize) {
+        if (secret.isBlank()) {
+            throw new IllegalStateException("haksamate.cluster.secret 을 설정해야 tcp 클러스터 모드를 사용할 수 있습니다.");
+        }
+        this.nodeId = nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.maxFrameBytes = maxFrameBytes;
+        this.sendQueueSize = sendQueueSize;
+        for (String peer : peers.split(",")) {
+            String trimmed = peer.trim();
+            if (trimmed.isEmpty()) continue;
+            int idx = trimmed.lastIndexOf(':');
+            peerAddresses.add(new InetSocketAddress(trimmed.substring(0, idx), Integer.parseInt(trimmed.substring(idx + 1))));
+        }
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        running = true;
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(bindAddress, port));
+        Thread acceptor = new Thread(this::acceptLoop, "cluster-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        for (InetSocketAddress address : peerAddresses) {
+            OutboundPeer peer = new OutboundPeer(address);
+            outboundPeers.add(peer);
+            peer.start();
+        }
+        System.out.println("🌐 클러스터 버스 시작: node=" + nodeId + ", bind=" + bindAddress + ":" + port + ", peers=" + peerAddresses);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        closeQuietly(serverSocket);
+        outboundPeers.forEach(OutboundPeer::close);
+        inboundPeers.forEach(InboundPeer::close);
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public Set<String> getNodeIds() {
+        Set<String> nodeIds = new HashSet<>();
+        nodeIds.add(nodeId);
+        for (OutboundPeer peer : outboundPeers) {
+            String remote = peer.connectedNodeId();
+            if (remote != null) {
+                nodeIds.add(remote);
+            }
+        }
+        return nodeIds;
+    }
+
+    @Override
+    public boolean isDistributed() {
+        return true;
+    }
+
+    @Override
+    public boolean hasRemoteInterest(String destination) {
+        for (OutboundPeer peer : outboundPeers) {
+            if (peer.isInterested(destination)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void publish(String destination, byte[] payload) {
+        for (OutboundPeer peer : outboundPeers) {
+            if (peer.isInterested(destination) && !peer.enqueue(destination, payload)) {
+                droppedFrames.incrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public boolean sendToNode(String nodeId, String destination, byte[] payload) {
+        for (OutboundPeer peer : outboundPeers) {
+            if (nodeId.equals(peer.connectedNodeId())) {
+                if (peer.enqueue(destination, payload)) return true;
+                droppedFrames.incrementAndGet();
+                return false;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void addInterest(String destination) {
+        if (localInterest.add(destination)) {
+            inboundPeers.forEach(peer -> peer.sendInterest(INTEREST_ADD, destination));
+        }
+    }
+
+    @Override
+    public void removeInterest(String destination) {
+        if (localInterest.remove(destination)) {
+            inboundPeers.forEach(peer -> peer.sendInterest(INTEREST_REMOVE, destination));
+        }
+    }
+
+    @Override
+    public void setListener(ClusterMessageListener listener) {
+        this.listener = listener;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                InboundPeer peer = new InboundPeer(socket);
+                inboundPeers.add(peer);
+                peer.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("❌ 클러스터 연결 수락 실패: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void deliver(String destination, byte[] payload) {
+        ClusterMessageListener current = listener;
+        if (current == null) return;
+        try {
+            current.onMessage(destination, payload);
+        } catch (Exception e) {
+            System.err.println("❌ 클러스터 메시지 전달 실패: " + destination + " - " + e.getMessage());
+        }
+    }
+
+    private byte[] newNonce() {
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        return nonce;
+    }
+
+    // HMAC-SHA256(secret, 방향, challenge, node id): 방향을 넣어서 받은 증명을 그대로 되돌려 보내는 것을 막는다
+    private byte[] proof(byte direction, byte[] challenge, String signerNodeId) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            mac.update(direction);
+            mac.update(challenge);
+            mac.update(signerNodeId.getBytes(StandardCharsets.UTF_8));
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 을 사용할 수 없습니다.", e);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    private record Frame(String destination, byte[] payload) {
+    }
+
+    /**
+     * 이 노드 -> 상대 노드 방향 연결. publish 를 보내고 상대의 관심 목록을 받는다
+     */
+    private class OutboundPeer {
+
+        private final InetSocketAddress address;
+        private final BlockingQueue<Frame> queue = new ArrayBlockingQueue<>(sendQueueSize);
+        private final Set<String> remoteInterest = ConcurrentHashMap.newKeySet();
+        private volatile boolean connected;
+        private volatile String remoteNodeId;
+        private volatile Socket socket;
+
+        OutboundPeer(InetSocketAddress address) {
+            this.address = address;
+        }
+
+        void start() {
+            Thread thread = new Thread(this::run, "cluster-out-" + address.getPort());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        boolean isInterested(String destination) {
+            return connected
+                    && (ClusterMessageBus.isUserDestination(destination) || remoteInterest.contains(destination));
+        }
+
+        String connectedNodeId() {
+            return connected ? remoteNodeId : null;
+        }
+
+        boolean enqueue(String destination, byte[] payload) {
+            // 상대가 받지 않을 크기라 보내지 않는다 (보내면 연결이 끊긴다)
+            if (payload.length > maxFrameBytes) {
+                System.err.println("❌ 클러스터 프레임이 너무 큼: " + destination + " (" + payload.length + " bytes)");
+                return false;
+            }
+            return queue.offer(new Frame(destination, payload));
+        }
+
+        void close() {
+            closeQuietly(socket);
+        }
+
+        private void run() {
+            while (running) {
+                try (Socket s = new Socket()) {
+                    s.connect(address, (int) RECONNECT_DELAY_MS);
+                    s.setTcpNoDelay(true);
+                    socket = s;
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+                    handshake(s, in, out);
+
+                    Thread reader = new Thread(() -> readInterest(in), "cluster-interest-" + address.getPort());
+                    reader.setDaemon(true);
+                    reader.start();
+
+                    connected = true;
+                    System.out.println("🌐 클러스터 peer 연결: " + address);
+                    writeLoop(out);
+                } catch (IOException e) {
+                    if (running && connected) {
+                        System.err.println("⚠️ 클러스터 peer 연결 끊김: " + address + " - " + e.getMessage());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    connected = false;
+                    remoteNodeId = null;
+                    remoteInterest.clear();
+                }
+                sleepBeforeReconnect();
+            }
+        }
+
+        private void writeLoop(DataOutputStream out) throws IOException, InterruptedException {
+            while (running && !socket.isClosed()) {
+                Frame frame = queue.poll(1, TimeUnit.SECONDS);
+                if (frame == null) continue;
+                writePublish(out, frame);
+                // 쌓여 있는 프레임은 한 번에 flush
+                Frame next;
+                while ((next = queue.poll()) != null) {
+                    writePublish(out, next);
+                }
+                out.flush();
+            }
+        }
+
+        private void writePublish(DataOutputStream out, Frame frame) throws IOException {
+            out.writeByte(PUBLISH);
+            out.writeUTF(frame.destination());
+            out.writeInt(frame.payload().length);
+            out.write(frame.payload());
+        }
+
+        private void readInterest(DataInputStream in) {
+            try {
+                while (running) {
+                    byte type = in.readByte();
+                    String value = in.readUTF();
+                    switch (type) {
+                        case INTEREST_ADD -> remoteInterest.add(value);
+                        case INTEREST_REMOVE -> remoteInterest.remove(value);
+                        default -> {
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                closeQuietly(socket);
+            }
+        }
+
+        // 상대가 보낸 challenge 에 증명을 붙여 HELLO 를 보내고, 상대의 HELLO 증명을 확인한다
+        private void handshake(Socket s, DataInputStream in, DataOutputStream out) throws IOException {
+            s.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+            byte[] challenge = new byte[NONCE_BYTES];
+            in.readFully(challenge);
+            byte[] nonce = newNonce();
+            out.writeByte(HELLO);
+            out.writeUTF(nodeId);
+            out.write(proof(CLIENT_PROOF, challenge, nodeId));
+            out.write(nonce);
+            out.flush();
+
+            if (in.readByte() != HELLO) {
+                throw new IOException("HELLO 가 아닌 응답");
+            }
+            String remote = in.readUTF();
+            byte[] remoteProof = new byte[MAC_BYTES];
+            in.readFully(remoteProof);
+            if (!MessageDigest.isEqual(remoteProof, proof(SERVER_PROOF, nonce, remote))) {
+                System.err.println("🚫 클러스터 인증 실패 (secret 불일치): " + address);
+                throw new IOException("클러스터 인증 실패: " + address);
+            }
+            s.setSoTimeout(0);
+            remoteNodeId = remote;
+        }
+
+        private void sleepBeforeReconnect() {
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 상대 노드 -> 이 노드 방향 연결. publish 를 받아 로컬로 전달하고 이 노드의 관심 목록을 알려준다
+     */
+    private class InboundPeer {
+
+        private final Socket socket;
+        private DataOutputStream out;
+
+        InboundPeer(Socket socket) {
+            this.socket = socket;
+        }
+
+        void start() {
+            Thread thread = new Thread(this::run, "cluster-in-" + socket.getPort());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        synchronized void sendInterest(byte type, String destination) {
+            if (out == null) return;
+            try {
+                out.writeByte(type);
+                out.writeUTF(destination);
+                out.flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            closeQuietly(socket);
+            inboundPeers.remove(this);
+        }
+
+        private void run() {
+            try {
+                socket.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                byte[] challenge = newNonce();
+                stream.write(challenge);
+                stream.flush();
+
+                if (in.readByte() != HELLO) {
+                    close();
+                    return;
+                }
+                String remoteNodeId = in.readUTF();
+                byte[] remoteProof = new byte[MAC_BYTES];
+                in.readFully(remoteProof);
+                byte[] nonce = new byte[NONCE_BYTES];
+                in.readFully(nonce);
+                if (!MessageDigest.isEqual(remoteProof, proof(CLIENT_PROOF, challenge, remoteNodeId))) {
+                    System.err.println("🚫 클러스터 인증 실패 (secret 불일치): " + socket.getRemoteSocketAddress());
+                    close();
+                    return;
+                }
+                socket.setSoTimeout(0);
+
+                synchronized (this) {
+                    out = stream;
+                    out.writeByte(HELLO);
+                    out.writeUTF(nodeId);
+                    out.write(proof(SERVER_PROOF, nonce, nodeId));
+                    for (String destination : localInterest) {
+                        out.writeByte(INTEREST_ADD);
+                        out.writeUTF(destination);
+                    }
+                    out.flush();
+                }
+                System.out.println("🌐 클러스터 peer 수신 연결: " + remoteNodeId);
+
+                while (running) {
+                    byte type = in.readByte();
+                    if (type != PUBLISH) {
+                        throw new IOException("알 수 없는 프레임 타입: " + type);
+                    }
+                    String destination = in.readUTF();
+                    int length = in.readInt();
+                    if (length < 0 || length > maxFrameBytes) {
+                        throw new IOException("프레임 길이 초과: " + length + " bytes");
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    deliver(destination, payload);
+                }
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("⚠️ 클러스터 수신 연결 종료: " + socket.getRemoteSocketAddress() + " - " + e.getMessage());
+                }
+                close();
+            }
+        }
+    }
+}
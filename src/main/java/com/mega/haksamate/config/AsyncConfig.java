@@ -0,0 +1,29 @@
+package com.mega.haksamate.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    // 이미지 미리보기 생성 전용 (CPU/메모리를 많이 쓰므로 스레드 수를 작게 제한)
+    @Bean(name = "thumbnailExecutor")
+    public Executor thumbnailExecutor(@Value("${haksamate.chat.attachment.thumbnail-threads:2}") int threads,
+                                      @Value("${haksamate.chat.attachment.thumbnail-queue:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("thumbnail-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        // 밀리면 미리보기는 건너뛴다 (원본은 이미 저장돼 있음)
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.DiscardPolicy());
+        return executor;
+    }
+}
@@ -0,0 +1,129 @@
+package com.mega.haksamate.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * STOMP inbound/outbound 채널용 실행기 생성
+ * - bounded: 전용 스레드 풀 (기본값)
+ * - virtual: 가상 스레드 (JDK 21 이상에서 실행할 때만, 그 외에는 bounded 로 대체)
+ * - 대기 중인 작업 수, 대기/처리 시간, 거절 횟수를 메트릭으로 노출한다
+ */
+@Component
+public class ChannelExecutorFactory {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${haksamate.websocket.channel-mode:bounded}")
+    private String channelMode;
+
+    @Value("${haksamate.websocket.inbound.core-pool-size:16}")
+    private int inboundCorePoolSize;
+
+    @Value("${haksamate.websocket.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+
+    @Value("${haksamate.websocket.inbound.queue-capacity:2000}")
+    private int inboundQueueCapacity;
+
+    @Value("${haksamate.websocket.outbound.core-pool-size:8}")
+    private int outboundCorePoolSize;
+
+    @Value("${haksamate.websocket.outbound.max-pool-size:16}")
+    private int outboundMaxPoolSize;
+
+    @Value("${haksamate.websocket.outbound.queue-capacity:5000}")
+    private int outboundQueueCapacity;
+
+    public ChannelExecutorFactory(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Executor inbound() {
+        return create("inbound", inboundCorePoolSize, inboundMaxPoolSize, inboundQueueCapacity);
+    }
+
+    public Executor outbound() {
+        return create("outbound", outboundCorePoolSize, outboundMaxPoolSize, outboundQueueCapacity);
+    }
+
+    private Executor create(String channel, int corePoolSize, int maxPoolSize, int queueCapacity) {
+        AtomicInteger queued = new AtomicInteger();
+        Gauge.builder("stomp.channel.queue.depth", queued, AtomicInteger::get)
+                .tag("channel", channel)
+                .description("채널 실행기에서 대기 중인 작업 수")
+                .register(meterRegistry);
+        TaskDecorator decorator = instrument(channel, queued);
+
+        if ("virtual".equalsIgnoreCase(channelMode)) {
+            try {
+                SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("stomp-" + channel + "-");
+                executor.setVirtualThreads(true);
+                executor.setConcurrencyLimit(maxPoolSize * 8);
+                executor.setTaskDecorator(decorator);
+                System.out.println("🧵 STOMP " + channel + " 채널: 가상 스레드 사용");
+                return executor;
+            } catch (UnsupportedOperationException e) {
+                System.err.println("⚠️ 가상 스레드를 지원하지 않는 JDK 입니다. bounded 풀로 대체합니다: " + channel);
+            }
+        }
+
+        Counter rejected = Counter.builder("stomp.channel.rejected")
+                .tag("channel", channel)
+                .description("풀/큐가 가득 차서 호출 스레드에서 실행된 작업 수")
+                .register(meterRegistry);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("stomp-" + channel + "-");
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setTaskDecorator(decorator);
+        // 거절된 작업은 버리지 않고 호출 스레드(웹소켓 I/O)에서 실행해서 자연스럽게 속도를 늦춘다
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            new ThreadPoolExecutor.CallerRunsPolicy().rejectedExecution(task, pool);
+        });
+        // 초기화는 채널 실행기 빈으로 등록될 때 스프링이 수행한다
+        return executor;
+    }
+
+    private TaskDecorator instrument(String channel, AtomicInteger queued) {
+        Timer waitTimer = Timer.builder("stomp.channel.task.wait")
+                .tag("channel", channel)
+                .description("작업이 실행되기까지 큐에서 기다린 시간")
+                .register(meterRegistry);
+        Timer latencyTimer = Timer.builder("stomp.channel.task.latency")
+                .tag("channel", channel)
+                .description("메시지 처리 작업의 실행 시간")
+                .register(meterRegistry);
+
+        return runnable -> {
+            long submittedAt = System.nanoTime();
+            queued.incrementAndGet();
+            return () -> {
+                long startedAt = System.nanoTime();
+                queued.decrementAndGet();
+                waitTimer.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                try {
+                    runnable.run();
+                } finally {
+                    latencyTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            };
+        };
+    }
+}
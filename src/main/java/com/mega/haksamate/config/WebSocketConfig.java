@@ -1,22 +1,115 @@
 package com.mega.haksamate.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mega.haksamate.websocket.CborPayloadSupport;
+import com.mega.haksamate.websocket.InboundRateLimiter;
+import com.mega.haksamate.websocket.LocationDeltaEncoder;
+import com.mega.haksamate.websocket.LocationSubscriptionRouter;
+import com.mega.haksamate.websocket.OutboundPayloadRegistry;
+import com.mega.haksamate.websocket.PayloadCodecInterceptor;
+import com.mega.haksamate.websocket.PayloadRetainingJsonMessageConverter;
+import com.mega.haksamate.websocket.PresenceChannelInterceptor;
+import com.mega.haksamate.websocket.SlowConsumerGuard;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.config.annotation.*;
 
+import java.util.List;
+
 @Configuration
 @EnableWebSocketMessageBroker
+@RequiredArgsConstructor
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final ChannelExecutorFactory channelExecutorFactory;
+    private final ObjectMapper objectMapper;
+    private final OutboundPayloadRegistry outboundPayloadRegistry;
+    private final PayloadCodecInterceptor payloadCodecInterceptor;
+    private final PresenceChannelInterceptor presenceChannelInterceptor;
+    private final SlowConsumerGuard slowConsumerGuard;
+    private final InboundRateLimiter inboundRateLimiter;
+    private final LocationSubscriptionRouter locationSubscriptionRouter;
+    private final LocationDeltaEncoder locationDeltaEncoder;
+
+    // 같은 세션의 메시지 처리/전송 순서 보장 (채팅 순서가 뒤바뀌지 않도록)
+    @Value("${haksamate.websocket.preserve-order:true}")
+    private boolean preserveOrder;
+
+    // 서버/클라이언트 하트비트 간격 (접속 상태 판단에 사용, 0 이면 끔)
+    @Value("${haksamate.websocket.heartbeat-ms:10000}")
+    private long heartbeatMillis;
+
+    // 세션 하나가 한 프레임 쓰기에 쓸 수 있는 최대 시간 / 밀린 프레임 버퍼 최대 크기 (넘으면 세션 종료)
+    @Value("${haksamate.websocket.send-time-limit-ms:20000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${haksamate.websocket.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${haksamate.websocket.message-size-limit:65536}")
+    private int messageSizeLimit;
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")  // ← SockJS 제거!
                 .setAllowedOriginPatterns("*"); // CORS 허용
+        registry.setPreserveReceiveOrder(preserveOrder);
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic");        // 구독 주소
+        var broker = registry.enableSimpleBroker("/topic", "/queue"); // 구독 주소 (/queue 는 /user/queue/... 개인 응답용)
+        if (heartbeatMillis > 0) {
+            ThreadPoolTaskScheduler heartbeatScheduler = new ThreadPoolTaskScheduler();
+            heartbeatScheduler.setPoolSize(1);
+            heartbeatScheduler.setThreadNamePrefix("stomp-heartbeat-");
+            heartbeatScheduler.initialize();
+            broker.setHeartbeatValue(new long[]{heartbeatMillis, heartbeatMillis})
+                    .setTaskScheduler(heartbeatScheduler);
+        }
         registry.setApplicationDestinationPrefixes("/app"); // 메시지 발송 주소
+        registry.setPreservePublishOrder(preserveOrder);
+    }
+
+    // DB 를 호출하는 @MessageMapping 핸들러가 기본 풀을 막지 않도록 전용 실행기 사용
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.executor(channelExecutorFactory.inbound());
+        // 접속 상태 갱신 → 속도 제한 → 위치 구독 변환 → payload 처리 → 위치 delta 구독 기록 순서
+        registration.interceptors(presenceChannelInterceptor, inboundRateLimiter, locationSubscriptionRouter,
+                payloadCodecInterceptor, locationDeltaEncoder);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.executor(channelExecutorFactory.outbound());
+        // 느린 세션에 버릴 프레임은 delta/CBOR 변환 전에 걸러낸다 (버린 프레임이 delta 기준에 들어가지 않도록)
+        registration.interceptors(slowConsumerGuard, locationDeltaEncoder, payloadCodecInterceptor);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registry) {
+        registry.setSendTimeLimit(sendTimeLimitMillis)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(slowConsumerGuard);
+    }
+
+    // JSON 이 기본, content-type: application/cbor 프레임만 CBOR 로 처리
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.clear();
+        messageConverters.add(new StringMessageConverter());
+        messageConverters.add(new ByteArrayMessageConverter());
+        messageConverters.add(CborPayloadSupport.createConverter());
+        messageConverters.add(new PayloadRetainingJsonMessageConverter(objectMapper, outboundPayloadRegistry));
+        return false;
     }
 }
@@ -0,0 +1,51 @@
+package com.mega.haksamate.controller;
+
+import com.mega.haksamate.dto.ChatAttachmentDTO;
+import com.mega.haksamate.service.ChatAttachmentService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/chat-attachments")
+@RequiredArgsConstructor
+public class ChatAttachmentController {
+
+    private final ChatAttachmentService chatAttachmentService;
+
+    // 본문에 이미지 바이트를 그대로 보낸다 (Content-Type: image/jpeg 등, multipart 아님)
+    // 받은 attachmentId 를 MessageDTO.attachmentId 에 넣어서 /app/chat.send 로 보내면 된다
+    @PostMapping(consumes = {"image/jpeg", "image/png", "image/gif", "image/webp", "application/octet-stream"})
+    public ResponseEntity<?> upload(@RequestParam Long chatRoomId,
+                                    @RequestParam UUID uploaderId,
+                                    HttpServletRequest request) {
+        try {
+            ChatAttachmentDTO dto = chatAttachmentService.upload(chatRoomId, uploaderId,
+                    request.getContentLengthLong(), request.getInputStream());
+            return ResponseEntity.status(HttpStatus.CREATED).body(dto);
+        } catch (ChatAttachmentService.AttachmentTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            System.err.println("❌ 첨부 업로드 실패: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(Map.of("error", "첨부 파일 저장에 실패했습니다."));
+        }
+    }
+
+    @GetMapping("/{attachmentId}")
+    public ResponseEntity<ChatAttachmentDTO> getAttachment(@PathVariable Long attachmentId) {
+        try {
+            return ResponseEntity.ok(chatAttachmentService.getAttachment(attachmentId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+}
@@ -1,14 +1,13 @@
 package com.mega.haksamate.controller;
 
+import com.mega.haksamate.dto.ChatSyncResponseDTO;
 import com.mega.haksamate.dto.MessageResponseDTO;
-import com.mega.haksamate.entity.ChatMessage;
 import com.mega.haksamate.service.ChatMessageService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/chat-messages")
@@ -19,17 +18,31 @@ public class ChatMessageController {
 
     @PostMapping("/{chatRoomId}")
     public ResponseEntity<List<MessageResponseDTO>> getMessagesByChatRoom(@PathVariable Long chatRoomId) {
-        List<ChatMessage> messages = chatMessageService.getMessagesByChatRoom(chatRoomId);
-        List<MessageResponseDTO> dtos = messages.stream().map(msg ->
-                MessageResponseDTO.builder()
-                        .messageId(msg.getMessageId())
-                        .chatRoomId(msg.getChatRoom().getChatRoomId())
-                        .senderId(msg.getSender().getId())
-                        .content(msg.getContent())
-                        .sentAt(msg.getSentAt())
-                        .build()
-        ).collect(Collectors.toList());
-
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok(chatMessageService.getMessageHistory(chatRoomId));
+    }
+
+    // 채팅방 첫 화면: 최근 메시지만 (이전 내용은 sync/전체 내역으로)
+    @GetMapping("/{chatRoomId}/recent")
+    public ResponseEntity<List<MessageResponseDTO>> getRecentMessages(@PathVariable Long chatRoomId) {
+        return ResponseEntity.ok(chatMessageService.getRecentMessages(chatRoomId));
+    }
+
+    // 재접속 시 마지막으로 받은 seq 이후 메시지만 받아간다
+    @GetMapping("/{chatRoomId}/sync")
+    public ResponseEntity<ChatSyncResponseDTO> syncMessages(@PathVariable Long chatRoomId,
+                                                            @RequestParam(defaultValue = "0") long afterSeq,
+                                                            @RequestParam(defaultValue = "200") int limit) {
+        return ResponseEntity.ok(chatMessageService.getMessagesAfter(chatRoomId, Math.max(afterSeq, 0L),
+                Math.max(1, Math.min(limit, 1000))));
+    }
+
+    @GetMapping("/{chatRoomId}/search")
+    public ResponseEntity<List<Long>> searchMessages(@PathVariable Long chatRoomId,
+                                                     @RequestParam String keyword,
+                                                     @RequestParam(defaultValue = "50") int limit) {
+        if (keyword.trim().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(chatMessageService.searchMessages(chatRoomId, keyword.trim(), Math.min(limit, 500)));
     }
 }
@@ -1,10 +1,15 @@
 package com.mega.haksamate.controller;
 
+import com.mega.haksamate.dto.ChatSyncRequestDTO;
+import com.mega.haksamate.dto.ChatSyncResponseDTO;
 import com.mega.haksamate.dto.MessageDTO;
 import com.mega.haksamate.service.ChatMessageService;
+import com.mega.haksamate.service.PresenceService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 
 @Controller
@@ -12,10 +17,24 @@ import org.springframework.stereotype.Controller;
 public class ChatSocketController {
 
     private final ChatMessageService chatMessageService;
+    private final PresenceService presenceService;
 
     @MessageMapping("/chat.send")
-    public void sendMessage(@Payload MessageDTO messageDTO) {
+    public void sendMessage(@Payload MessageDTO messageDTO, SimpMessageHeaderAccessor headerAccessor) {
         System.out.println("📨 받은 메시지 DTO: " + messageDTO);
-        chatMessageService.sendMessage(messageDTO);
+        if (messageDTO.getSenderId() != null) {
+            presenceService.connect(headerAccessor.getSessionId(), messageDTO.getSenderId());
+        }
+        // 세션 id 는 재전송 확인 응답(/user/queue/chat/ack)을 보낸 세션에만 보내기 위해 넘긴다
+        chatMessageService.sendMessage(messageDTO, headerAccessor.getSessionId());
+    }
+
+    // 재접속 후 놓친 메시지 요청 → 요청한 세션의 /user/queue/chat/sync 로 응답
+    @MessageMapping("/chat.sync")
+    @SendToUser(destinations = "/queue/chat/sync", broadcast = false)
+    public ChatSyncResponseDTO syncMessages(@Payload ChatSyncRequestDTO request) {
+        long afterSeq = request.getAfterSeq() != null ? Math.max(request.getAfterSeq(), 0L) : 0L;
+        int limit = request.getLimit() != null ? Math.max(1, Math.min(request.getLimit(), 1000)) : 200;
+        return chatMessageService.getMessagesAfter(request.getChatRoomId(), afterSeq, limit);
     }
 }
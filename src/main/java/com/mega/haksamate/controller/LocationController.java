@@ -1,11 +1,19 @@
 package com.mega.haksamate.controller;
 
+import com.mega.haksamate.dto.LocationClusterDTO;
+import com.mega.haksamate.dto.LocationTrailPointDTO;
 import com.mega.haksamate.service.LocationService;
+import com.mega.haksamate.service.LocationTrailService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/location")
@@ -14,6 +22,7 @@ import java.util.UUID;
 public class LocationController {
 
     private final LocationService locationService;
+    private final LocationTrailService locationTrailService;
 
     @PostMapping("/nearby")
     public ResponseEntity<String> getNearbyUsers(
@@ -44,4 +53,50 @@ public class LocationController {
             return ResponseEntity.badRequest().body(0);
         }
     }
+
+    // 지도 화면 범위(남서~북동)와 zoom 에 맞춰 묶은 사용자 클러스터 (사용자 수, 중심 위치)
+    // 여러 노드에 나눠 맡긴 경우 다른 노드의 응답을 기다리는 동안 요청 스레드를 잡지 않도록 비동기로 돌려준다
+    @GetMapping("/clusters")
+    public CompletableFuture<ResponseEntity<List<LocationClusterDTO>>> getClusters(
+            @RequestParam double south,
+            @RequestParam double west,
+            @RequestParam double north,
+            @RequestParam double east,
+            @RequestParam int zoom) {
+        if (south > north || west > east) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return locationService.getClusters(south, west, north, east, zoom).thenApply(ResponseEntity::ok);
+    }
+
+    // 이동 경로 기록 동의 설정/철회
+    @PutMapping("/trail/consent")
+    public ResponseEntity<Void> setTrailConsent(
+            @RequestParam UUID userId,
+            @RequestParam boolean consent) {
+        try {
+            locationTrailService.setConsent(userId, consent);
+            return ResponseEntity.ok().build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // 기록된 이동 경로 조회 (from/to: epoch millis, 본인 또는 확정된 거래 상대방만)
+    @GetMapping("/trail")
+    public ResponseEntity<List<LocationTrailPointDTO>> getTrail(
+            @RequestParam UUID requesterId,
+            @RequestParam UUID userId,
+            @RequestParam long from,
+            @RequestParam long to) {
+        try {
+            return ResponseEntity.ok(locationTrailService.read(requesterId, userId, from, to));
+        } catch (AccessDeniedException e) {
+            System.err.println("🚫 이동 경로 조회 거부: " + requesterId + " -> " + userId);
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ 이동 경로 조회 실패: " + e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
 }
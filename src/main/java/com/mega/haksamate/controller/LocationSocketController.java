@@ -3,6 +3,8 @@ package com.mega.haksamate.controller;
 import com.mega.haksamate.dto.LocationShareDTO;
 import com.mega.haksamate.dto.LocationUpdateRequestDTO;
 import com.mega.haksamate.service.LocationService;
+import com.mega.haksamate.service.PresenceService;
+import com.mega.haksamate.websocket.LocationSubscriptionRouter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
@@ -16,6 +18,8 @@ import java.util.UUID;
 public class LocationSocketController {
 
     private final LocationService locationService;
+    private final PresenceService presenceService;
+    private final LocationSubscriptionRouter locationSubscriptionRouter;
 
     @MessageMapping("location.join")
     public void joinLocationSharing(@Payload LocationUpdateRequestDTO request, SimpMessageHeaderAccessor headerAccessor) {
@@ -25,8 +29,11 @@ public class LocationSocketController {
 
             // 세션에 사용자 ID 저장
             headerAccessor.getSessionAttributes().put("userId", request.getUserId());
+            // CONNECT 에 userId 헤더를 보내지 않는 예전 클라이언트도 접속 상태에 반영
+            presenceService.connect(headerAccessor.getSessionId(), request.getUserId());
+            locationSubscriptionRouter.bindUser(headerAccessor.getSessionId(), request.getUserId());
 
-            locationService.joinLocationSharing(request);
+            locationService.joinLocationSharing(request, headerAccessor.getSessionId());
             System.out.println("✅ 위치 공유 참여 완료: " + request.getUserId());
         } catch (Exception e) {
             System.err.println("❌ 위치 공유 참여 실패: " + e.getMessage());
@@ -37,11 +44,8 @@ public class LocationSocketController {
     @MessageMapping("location.update")
     public void updateLocation(@Payload LocationUpdateRequestDTO request) {
         try {
-            System.out.println("📍 위치 업데이트 요청 수신: " + request.getUserId() +
-                    " - 위도: " + request.getLatitude() + ", 경도: " + request.getLongitude());
-
+            // 최신값만 남기고 tick 마다 반영되므로 프레임마다 로그를 남기지 않는다
             locationService.updateUserLocation(request);
-            System.out.println("✅ 위치 업데이트 완료: " + request.getUserId());
         } catch (Exception e) {
             System.err.println("❌ 위치 업데이트 실패: " + e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,27 @@
+package com.mega.haksamate.controller;
+
+import com.mega.haksamate.dto.PresenceDTO;
+import com.mega.haksamate.service.PresenceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/presence")
+@RequiredArgsConstructor
+public class PresenceController {
+
+    private final PresenceService presenceService;
+
+    // 채팅 목록 화면에서 상대들의 접속 상태를 한 번에 조회 (이후 변경은 /user/queue/presence 로 받음)
+    @GetMapping
+    public ResponseEntity<List<PresenceDTO>> getPresence(@RequestParam List<UUID> userIds) {
+        if (userIds.size() > 200) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(userIds.stream().map(presenceService::getPresence).toList());
+    }
+}
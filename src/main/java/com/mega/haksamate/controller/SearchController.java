@@ -1,6 +1,7 @@
 package com.mega.haksamate.controller;
 
 import com.mega.haksamate.dto.SearchKeywordRequestDTO;
+import com.mega.haksamate.service.SearchHistoryBuffer;
 import com.mega.haksamate.service.SearchService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -20,7 +21,8 @@ public class SearchController {
 
     @PostMapping
     public ResponseEntity<Void> saveKeyword(@RequestBody SearchKeywordRequestDTO req) {
-        if (req.getKeyword() == null || req.getUserId() == null || req.getKeyword().trim().isEmpty()) {
+        if (req.getKeyword() == null || req.getUserId() == null || req.getKeyword().trim().isEmpty()
+                || req.getKeyword().trim().length() > SearchHistoryBuffer.MAX_KEYWORD_LENGTH) {
             return ResponseEntity.badRequest().build();
         }
         searchService.addSearchHistory(req.getUserId(), req.getKeyword().trim());
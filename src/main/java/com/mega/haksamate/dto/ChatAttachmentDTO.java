@@ -0,0 +1,37 @@
+package com.mega.haksamate.dto;
+
+import com.mega.haksamate.entity.ChatAttachment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatAttachmentDTO {
+    private Long attachmentId;
+    private Long chatRoomId;
+    private UUID uploaderId;
+    private String contentType;
+    private Long sizeBytes;
+    private String fileUrl;
+    private String thumbnailUrl; // 아직 만들어지지 않았으면 null
+    private Integer width;
+    private Integer height;
+
+    public static ChatAttachmentDTO from(ChatAttachment attachment) {
+        return new ChatAttachmentDTO(
+                attachment.getAttachmentId(),
+                attachment.getChatRoom().getChatRoomId(),
+                attachment.getUploader().getId(),
+                attachment.getContentType(),
+                attachment.getSizeBytes(),
+                attachment.getFilePath(),
+                attachment.getThumbnailPath(),
+                attachment.getWidth(),
+                attachment.getHeight()
+        );
+    }
+}
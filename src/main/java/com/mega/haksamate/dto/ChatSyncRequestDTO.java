@@ -0,0 +1,14 @@
+package com.mega.haksamate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatSyncRequestDTO {
+    private Long chatRoomId;
+    private Long afterSeq; // 클라이언트가 마지막으로 받은 seq (없으면 0)
+    private Integer limit;
+}
@@ -0,0 +1,15 @@
+package com.mega.haksamate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class ChatSyncResponseDTO {
+    private Long chatRoomId;
+    private List<MessageResponseDTO> messages;
+    private Long lastSeq;    // 이번 응답의 마지막 seq (다음 요청의 afterSeq)
+    private boolean hasMore; // limit 때문에 잘렸으면 true
+}
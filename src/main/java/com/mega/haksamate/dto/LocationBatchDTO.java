@@ -0,0 +1,14 @@
+package com.mega.haksamate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LocationBatchDTO {
+    private List<LocationShareDTO> users;  // 같은 칸에서 한 번에 바뀐 사용자들 (예: 오프라인 정리)
+}
@@ -0,0 +1,14 @@
+package com.mega.haksamate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LocationClusterDTO {
+    private double latitude;  // 클러스터 중심 (사용자 위치 평균)
+    private double longitude;
+    private int count;        // 클러스터에 속한 사용자 수
+}
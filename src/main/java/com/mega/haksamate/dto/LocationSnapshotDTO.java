@@ -0,0 +1,17 @@
+package com.mega.haksamate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LocationSnapshotDTO {
+    private List<LocationShareDTO> users;
+    private int page;        // 0 부터
+    private int totalCount;  // 전체 사용자 수 (여러 페이지로 나뉜 경우)
+    private boolean last;    // 마지막 페이지면 true
+}
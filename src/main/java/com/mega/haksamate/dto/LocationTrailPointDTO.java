@@ -0,0 +1,14 @@
+package com.mega.haksamate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LocationTrailPointDTO {
+    private long timestamp; // epoch millis
+    private double latitude;
+    private double longitude;
+}
@@ -0,0 +1,14 @@
+package com.mega.haksamate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MessageAckDTO {
+    private Long chatRoomId;
+    private String clientMessageId;
+    private Long messageId;
+    private Long seq;
+    private boolean duplicate; // 이미 저장된 메시지를 다시 보낸 경우 true
+}
@@ -14,8 +14,11 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 @NoArgsConstructor
 public class MessageDTO {
     private Long chatRoomId;
+    private Long seq; // 서버가 채워서 보낸다 (방 안의 순번)
+    private String clientMessageId; // 선택: 클라이언트가 만든 id, 재전송 중복 제거용
     private UUID senderId;
     private String content;
+    private Long attachmentId; // 선택: /api/chat-attachments 로 먼저 올린 이미지 id
 
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss") // ISO 형식
     private LocalDateTime sentAt;
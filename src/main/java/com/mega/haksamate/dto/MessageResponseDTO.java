@@ -11,7 +11,10 @@ import java.util.UUID;
 public class MessageResponseDTO {
     private Long messageId;
     private Long chatRoomId;
+    private Long seq;
     private UUID senderId;
     private String content;
+    private Long attachmentId;
+    private Boolean isRead;
     private LocalDateTime sentAt;
 }
@@ -0,0 +1,16 @@
+package com.mega.haksamate.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PresenceDTO {
+    private UUID userId;
+    private String status;   // "online", "away", "offline"
+    private Long lastSeenAt; // 마지막으로 프레임(하트비트 포함)을 받은 시각 (epoch millis)
+}
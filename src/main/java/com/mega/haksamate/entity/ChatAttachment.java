@@ -0,0 +1,51 @@
+package com.mega.haksamate.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Table(name = "chat_attachment")
+public class ChatAttachment {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "attachment_id")
+    private Long attachmentId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "chatroomid", nullable = false)
+    private ChatRoom chatRoom;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "uploader_id", referencedColumnName = "id", nullable = false)
+    private Profile uploader;
+
+    @Column(name = "content_type", nullable = false)
+    private String contentType;
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    // 원본 / 미리보기 경로 (/uploads/chat/...), 미리보기는 백그라운드에서 만들어지므로 처음엔 null
+    @Column(name = "file_path", nullable = false)
+    private String filePath;
+
+    @Column(name = "thumbnail_path")
+    private String thumbnailPath;
+
+    private Integer width;
+
+    private Integer height;
+
+    @Column(name = "created_at")
+    private Long createdAt;
+
+    // 메시지에 한 번이라도 붙었는지 (붙지 않은 채 오래된 업로드는 정리한다)
+    @Column(nullable = false)
+    private boolean attached;
+}
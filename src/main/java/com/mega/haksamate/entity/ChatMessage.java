@@ -11,12 +11,24 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@Table(name = "chat_message", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_chat_message_room_seq", columnNames = {"chatroomid", "seq"}),
+        @UniqueConstraint(name = "uk_chat_message_client_id", columnNames = {"chatroomid", "client_message_id"})
+})
 public class ChatMessage {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long messageId;
 
+    // 채팅방 안에서의 순번 (재접속 시 이 값 이후만 받아간다)
+    @Column(name = "seq")
+    private Long seq;
+
+    // 클라이언트가 만든 메시지 id (재전송 중복 제거용, 없을 수 있음)
+    @Column(name = "client_message_id", length = 64)
+    private String clientMessageId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "chatroomid", nullable = false)
     private ChatRoom chatRoom;
@@ -28,6 +40,11 @@ public class ChatMessage {
     @Column(name = "message_content", columnDefinition = "TEXT", nullable = false)
     private String content;
 
+    // 이미지 첨부 (없으면 null)
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "attachment_id")
+    private ChatAttachment attachment;
+
     @Column(name = "sent_at")
     private LocalDateTime sentAt;
 
@@ -3,13 +3,17 @@ package com.mega.haksamate.entity;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.util.UUID;
+
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-@Table(name = "chat_room")
+@Table(name = "chat_room", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_chat_room_pair", columnNames = {"pair_low", "pair_high"})
+})
 public class ChatRoom {
 
     @Id
@@ -28,4 +32,15 @@ public class ChatRoom {
 
     @Column(name = "created_at")
     private Long createdAt;
+
+    // 두 참여자 UUID 를 정렬한 값 - 누가 먼저 방을 만들었든 같은 키가 된다
+    @Column(name = "pair_low", columnDefinition = "uuid")
+    private UUID pairLow;
+
+    @Column(name = "pair_high", columnDefinition = "uuid")
+    private UUID pairHigh;
+
+    // 삭제 요청 시각 (null 이 아니면 삭제된 방. 메시지는 백그라운드에서 정리된다)
+    @Column(name = "deleted_at")
+    private Long deletedAt;
 }
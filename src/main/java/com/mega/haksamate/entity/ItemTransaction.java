@@ -3,6 +3,7 @@ package com.mega.haksamate.entity;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
@@ -30,6 +31,10 @@ public class ItemTransaction {
     @Column(nullable = false)
     private TransactionStatus status;
 
+    // 거래 요청 시각
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
 
     public enum TransactionStatus {
         대기중, 확정됨, 거절됨
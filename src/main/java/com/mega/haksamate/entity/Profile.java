@@ -33,6 +33,10 @@ public class Profile {
     @Column(name = "created_at")
     private OffsetDateTime createdAt;
 
+    // 이동 경로 기록 동의 시각 (동의하지 않았거나 철회했으면 null)
+    @Column(name = "trail_consent_at")
+    private OffsetDateTime trailConsentAt;
+
     // 연관관계 필드들 (관계 대상 엔티티명/필드명도 Profile 기준으로 전부 맞춰야 함)
 
     @OneToMany(mappedBy = "sender")
@@ -0,0 +1,39 @@
+package com.mega.haksamate.repository;
+
+import com.mega.haksamate.entity.ChatAttachment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface ChatAttachmentRepository extends JpaRepository<ChatAttachment, Long> {
+
+    List<ChatAttachment> findByChatRoom_ChatRoomId(Long chatRoomId);
+
+    // 메시지에 붙지 않은 채 cutoff 전에 올라온 첨부 (오래된 것부터)
+    List<ChatAttachment> findTop100ByAttachedFalseAndCreatedAtLessThanOrderByAttachmentIdAsc(Long cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChatAttachment a SET a.attached = true WHERE a.attachmentId = :attachmentId")
+    int markAttached(@Param("attachmentId") Long attachmentId);
+
+    // 그 사이 메시지에 붙었으면 지우지 않는다 (0 을 돌려줌)
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChatAttachment a WHERE a.attachmentId = :attachmentId AND a.attached = false")
+    int deleteIfUnattached(@Param("attachmentId") Long attachmentId);
+
+    // 미리보기가 만들어지면 그 경로와 크기만 갱신한다
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChatAttachment a SET a.thumbnailPath = :thumbnailPath, a.width = :width, a.height = :height " +
+            "WHERE a.attachmentId = :attachmentId")
+    int updateThumbnail(@Param("attachmentId") Long attachmentId,
+                        @Param("thumbnailPath") String thumbnailPath,
+                        @Param("width") Integer width,
+                        @Param("height") Integer height);
+}
@@ -4,19 +4,21 @@ import com.mega.haksamate.dto.ChatRoomResponseDTO;
 import com.mega.haksamate.dto.ChatRoomWithLastMessageDTO;
 import com.mega.haksamate.entity.ChatMessage;
 import com.mega.haksamate.entity.ChatRoom;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface ChatMessageRepository extends JpaRepository<ChatMessage, Long> {
     List<ChatMessage> findByChatRoom_ChatRoomIdOrderBySentAtAsc(Long chatroomid);
 
-    // ✅ 추가
-    void deleteAllByChatRoom_ChatRoomId(Long chatroomid);
-
     ChatMessage findTop1ByChatRoomOrderBySentAtDesc(ChatRoom chatRoom);
 
     @Query("""
@@ -27,4 +29,44 @@ WHERE m.chatRoom.chatRoomId = :chatRoomId
 """)
     int countUnreadByChatRoomAndUser(@Param("chatRoomId") Long chatRoomId, @Param("myUserId") UUID myUserId);
 
+    // 보관(archive) 대상: 마지막 메시지가 cutoff 이전인 채팅방
+    @Query("SELECT m.chatRoom.chatRoomId FROM ChatMessage m " +
+            "GROUP BY m.chatRoom.chatRoomId " +
+            "HAVING MAX(m.sentAt) < :cutoff")
+    List<Long> findIdleChatRoomIds(@Param("cutoff") LocalDateTime cutoff);
+
+    List<ChatMessage> findTop500ByChatRoom_ChatRoomIdAndMessageIdGreaterThanOrderByMessageIdAsc(Long chatroomid, Long messageId);
+
+    // 보관 대상: cutoff 이전에 보낸 메시지 (id 커서 없이 매번 남은 것 중 앞에서부터. 늦게 commit 된 작은 id 도 다음 실행에 잡힌다)
+    List<ChatMessage> findTop500ByChatRoom_ChatRoomIdAndSentAtBeforeOrderByMessageIdAsc(Long chatroomid, LocalDateTime cutoff);
+
+    // 검색 색인 따라잡기: since 이후에 보낸 메시지 (저장된 색인 이후 늦게 commit 된 작은 id 포함)
+    List<ChatMessage> findTop500ByChatRoom_ChatRoomIdAndSentAtGreaterThanEqualAndMessageIdGreaterThanOrderByMessageIdAsc(
+            Long chatroomid, LocalDateTime since, Long messageId);
+
+    // 보관 파일에 실제로 쓴 id 만 지운다 (id 범위로 지우면 늦게 commit 된 작은 id 의 메시지가 보관되지 않고 사라진다)
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ChatMessage m WHERE m.chatRoom.chatRoomId = :chatRoomId AND m.messageId IN :messageIds")
+    int deleteArchived(@Param("chatRoomId") Long chatRoomId, @Param("messageIds") Collection<Long> messageIds);
+
+    @Query("SELECT MAX(m.seq) FROM ChatMessage m WHERE m.chatRoom.chatRoomId = :chatRoomId")
+    Long findMaxSeqByChatRoomId(@Param("chatRoomId") Long chatRoomId);
+
+    ChatMessage findByChatRoom_ChatRoomIdAndClientMessageId(Long chatroomid, String clientMessageId);
+
+    // 최근 메시지 캐시 채우기 (seq 내림차순 N개)
+    List<ChatMessage> findByChatRoom_ChatRoomIdOrderBySeqDesc(Long chatroomid, Pageable pageable);
+
+    // 재접속 동기화: 마지막으로 받은 seq 이후 메시지
+    List<ChatMessage> findByChatRoom_ChatRoomIdAndSeqGreaterThanOrderBySeqAsc(Long chatroomid, Long seq, Pageable pageable);
+
+    // 삭제된 방의 메시지를 limit 건씩 한 번의 SQL 로 지운다 (엔티티를 읽지 않음)
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM chat_message WHERE message_id IN " +
+            "(SELECT message_id FROM chat_message WHERE chatroomid = :chatRoomId LIMIT :limit)",
+            nativeQuery = true)
+    int deleteChunkByChatRoomId(@Param("chatRoomId") Long chatRoomId, @Param("limit") int limit);
+
 }
@@ -2,6 +2,10 @@ package com.mega.haksamate.repository;
 
 import com.mega.haksamate.entity.ChatRoom;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,4 +17,33 @@ public interface ChatRoomRepository extends JpaRepository<ChatRoom, Long> {
     Optional<ChatRoom> findByChatUsr1Id_IdAndChatUsr2Id_Id(UUID chatusr1Id, UUID chatusr2Id);
 
     List<ChatRoom> findByChatUsr1Id_IdOrChatUsr2Id_Id(UUID userId, UUID userId1);
+
+    @Query("SELECT r FROM ChatRoom r " +
+            "WHERE (r.chatUsr1Id.id = :userId OR r.chatUsr2Id.id = :userId) " +
+            "AND r.deletedAt IS NULL")
+    List<ChatRoom> findActiveByUserId(@Param("userId") UUID userId);
+
+    // 삭제 표시만 하고 바로 반환. pair 키를 비워서 같은 상대와 새 방을 만들 수 있게 한다
+    @Transactional
+    @Modifying
+    @Query("UPDATE ChatRoom r SET r.deletedAt = :deletedAt, r.pairLow = NULL, r.pairHigh = NULL " +
+            "WHERE r.chatRoomId = :chatRoomId AND r.deletedAt IS NULL")
+    int softDelete(@Param("chatRoomId") Long chatRoomId, @Param("deletedAt") Long deletedAt);
+
+    @Query("SELECT r.chatRoomId FROM ChatRoom r WHERE r.deletedAt IS NOT NULL ORDER BY r.deletedAt")
+    List<Long> findDeletedChatRoomIds();
+
+    // 같은 두 사람의 방이 있으면 그 id, 없으면 새로 만든 id (동시 요청이 와도 한 방만 생긴다)
+    @Transactional
+    @Query(value = """
+            INSERT INTO chat_room (chatusr1_id, chatusr2_id, pair_low, pair_high, created_at)
+            VALUES (:user1, :user2, :pairLow, :pairHigh, :createdAt)
+            ON CONFLICT (pair_low, pair_high) DO UPDATE SET pair_low = EXCLUDED.pair_low
+            RETURNING chatroomid
+            """, nativeQuery = true)
+    Long insertOrGetChatRoomId(@Param("user1") UUID user1,
+                               @Param("user2") UUID user2,
+                               @Param("pairLow") UUID pairLow,
+                               @Param("pairHigh") UUID pairHigh,
+                               @Param("createdAt") Long createdAt);
 }
@@ -20,4 +20,12 @@ public interface ItemTransactionRepository extends JpaRepository<ItemTransaction
 
     List<ItemTransaction> findAllByItem_ItemidAndDistinctSeller(Long itemId, UUID sellerId);
 
+    // 두 사용자 사이의 거래 (어느 쪽이 구매자든)
+    @Query("select t from ItemTransaction t join fetch t.item " +
+            "where t.status = :status " +
+            "and ((t.profile.id = :userA and t.distinctSeller = :userB) or (t.profile.id = :userB and t.distinctSeller = :userA))")
+    List<ItemTransaction> findBetween(@Param("userA") UUID userA,
+                                      @Param("userB") UUID userB,
+                                      @Param("status") ItemTransaction.TransactionStatus status);
+
 }
@@ -7,4 +7,6 @@ import java.util.UUID;
 
 public interface ProfileRepository extends JpaRepository<Profile, UUID> {
 
+    // 이동 경로 기록에 동의한 사용자인지
+    boolean existsByIdAndTrailConsentAtIsNotNull(UUID id);
 }
@@ -1,19 +1,40 @@
 package com.mega.haksamate.repository;
 
 import com.mega.haksamate.entity.History;
-import com.mega.haksamate.entity.Profile;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.UUID;
 
 public interface SearchHistoryRepository extends JpaRepository<History, Long> {
 
-    List<History> findTop5ByProfileAndKeywordContainingOrderBySearchAtDesc(Profile user, String keyword);
-
-    List<History> findAllByProfileOrderBySearchAtDesc(Profile user);
-
-    void deleteByProfileAndKeyword(Profile user, String keyword);
-
-    void deleteAllByProfile(Profile user);
+    // 메모리 최근 검색어 채우기 (최신순 N개)
+    List<History> findByProfile_IdOrderBySearchAtDescIdDesc(UUID userId, Pageable pageable);
+
+    // 엔티티를 읽지 않고 한 번의 SQL 로 지운다
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM History h WHERE h.profile.id = :userId AND h.keyword IN :keywords")
+    int deleteKeywords(@Param("userId") UUID userId, @Param("keywords") Collection<String> keywords);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM History h WHERE h.profile.id = :userId")
+    int deleteAllByUserId(@Param("userId") UUID userId);
+
+    // 사용자마다 최신 keep 개만 남기고 지운다
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM search_history WHERE id IN " +
+            "(SELECT id FROM (SELECT id, ROW_NUMBER() OVER (PARTITION BY profile_id ORDER BY search_at DESC, id DESC) AS rn " +
+            "FROM search_history) ranked WHERE rn > :keep)",
+            nativeQuery = true)
+    int trimToLatest(@Param("keep") int keep);
 }
@@ -0,0 +1,95 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.MessageResponseDTO;
+import com.mega.haksamate.entity.ChatMessage;
+import com.mega.haksamate.repository.ChatMessageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 오랫동안 대화가 없는 채팅방의 메시지를 보관 파일로 옮기고 chat_message 에서 지운다
+ * - 보관 파일에 먼저 쓰고(fsync) 나서 그 블록에 쓴 messageId 만 DB 에서 지우므로 중간에 죽어도 메시지가 사라지지 않는다
+ * - 다음 실행 때는 마지막 블록의 messageId 를 먼저 지우고(이전 실행이 삭제 전에 멈춘 경우) 남은 행을 이어서 보관한다
+ * - id 커서를 쓰지 않고 cutoff(idle-days) 이전에 보낸 남은 행을 매번 앞에서부터 읽으므로,
+ *   보관 이후에 늦게 commit 된 더 작은 id 의 메시지도 다음 실행에서 보관된다 (읽는 쪽은 보관된 id 로 중복을 거른다)
+ */
+@Service
+@RequiredArgsConstructor
+public class ChatArchiveService {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatArchiveStore chatArchiveStore;
+
+    @Value("${haksamate.chat.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${haksamate.chat.archive.idle-days:30}")
+    private int idleDays;
+
+    @Scheduled(cron = "${haksamate.chat.archive.cron:0 30 4 * * *}")
+    public void archiveIdleRooms() {
+        if (!enabled) return;
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(idleDays);
+        List<Long> roomIds = chatMessageRepository.findIdleChatRoomIds(cutoff);
+        if (roomIds.isEmpty()) return;
+
+        System.out.println("🗄️ 채팅 보관 시작: 대상 채팅방 " + roomIds.size() + "개");
+        int archived = 0;
+        for (Long roomId : roomIds) {
+            try {
+                archived += archiveRoom(roomId, cutoff);
+            } catch (Exception e) {
+                System.err.println("❌ 채팅방 보관 실패: " + roomId + " - " + e.getMessage());
+            }
+        }
+        System.out.println("🗄️ 채팅 보관 완료: 메시지 " + archived + "건");
+    }
+
+    /**
+     * cutoff 이전에 보낸 메시지를 보관한다
+     */
+    public int archiveRoom(Long chatRoomId, LocalDateTime cutoff) {
+        // 이전 실행에서 보관만 되고 삭제되지 않은 메시지 정리 (블록마다 바로 지우므로 남을 수 있는 건 마지막 블록뿐)
+        // 이걸 먼저 지워야 아래에서 같은 메시지를 두 번 보관하지 않는다
+        List<Long> lastBlockIds = chatArchiveStore.readLastBlock(chatRoomId).stream()
+                .map(MessageResponseDTO::getMessageId)
+                .toList();
+        if (!lastBlockIds.isEmpty()) {
+            chatMessageRepository.deleteArchived(chatRoomId, lastBlockIds);
+        }
+
+        int count = 0;
+        List<ChatMessage> chunk;
+        while (!(chunk = chatMessageRepository
+                .findTop500ByChatRoom_ChatRoomIdAndSentAtBeforeOrderByMessageIdAsc(chatRoomId, cutoff)).isEmpty()) {
+            List<MessageResponseDTO> messages = chunk.stream()
+                    .map(msg -> MessageResponseDTO.builder()
+                            .messageId(msg.getMessageId())
+                            .chatRoomId(chatRoomId)
+                            .seq(msg.getSeq())
+                            .senderId(msg.getSender().getId())
+                            .content(msg.getContent())
+                            .attachmentId(msg.getAttachment() != null ? msg.getAttachment().getAttachmentId() : null)
+                            .isRead(msg.getIsRead())
+                            .sentAt(msg.getSentAt())
+                            .build())
+                    .toList();
+
+            chatArchiveStore.append(chatRoomId, messages);
+            int deleted = chatMessageRepository.deleteArchived(chatRoomId,
+                    messages.stream().map(MessageResponseDTO::getMessageId).toList());
+            count += messages.size();
+            if (deleted == 0) {
+                // 지워지지 않으면 같은 행을 계속 다시 읽게 되므로 멈춘다 (다음 실행이 마지막 블록부터 다시 지운다)
+                throw new IllegalStateException("보관한 메시지를 chat_message 에서 지우지 못했습니다: " + chatRoomId);
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,343 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.MessageResponseDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 오래된 채팅 메시지를 채팅방별 append-only 세그먼트 파일로 보관하는 저장소
+ * - {roomId}.seg : 압축(deflate)된 메시지 블록을 뒤에 계속 붙인다 (블록 헤더: 원본 길이, 포맷 버전)
+ * - {roomId}.idx : 블록마다 32바이트 (첫 messageId, 마지막 messageId, offset, 길이, 메시지 수)
+ * - 읽을 때는 두 파일을 memory map 해서 필요한 블록만 푼다
+ * - 세그먼트를 fsync 한 뒤에 인덱스를 쓰므로, 중간에 죽어 인덱스에 없는 세그먼트 꼬리나 세그먼트보다 긴 인덱스 항목은 무시한다
+ * - 블록 안은 messageId 오름차순이지만, 늦게 commit 된 메시지는 나중 블록에 더 작은 id 로 들어올 수 있다
+ *   (그래서 마지막 메시지/최대 seq 는 마지막 블록이 아니라 전체에서 구한다)
+ */
+@Component
+public class ChatArchiveStore {
+
+    private static final int INDEX_ENTRY_SIZE = 32;
+    private static final int BLOCK_HEADER_SIZE = 8;
+    // 0: 최초 포맷, 1: messageId 뒤에 seq 추가, 2: seq 뒤에 attachmentId 추가, 3: attachmentId 뒤에 flags(읽음) 추가
+    private static final int BLOCK_VERSION = 3;
+    private static final int FLAG_READ = 1;
+
+    private final Path archiveDir;
+
+    // 방별 보관 메시지 요약: 보낸 사람별 안 읽은 수, 최대 seq, messageId 가 가장 큰 메시지 (인덱스 길이가 바뀔 때만 다시 센다)
+    private record Summary(long indexLength, Map<UUID, Integer> unreadBySender, long maxSeq, MessageResponseDTO last) {
+    }
+
+    private final Map<Long, Summary> summaries = new ConcurrentHashMap<>();
+
+    public ChatArchiveStore(@Value("${haksamate.chat.archive.dir:./data/chat-archive}") String archiveDir) {
+        this.archiveDir = Paths.get(archiveDir);
+    }
+
+    /**
+     * 메시지 블록 하나를 세그먼트 끝에 붙이고 인덱스를 갱신한다 (블록 안은 messageId 오름차순으로 전달해야 함)
+     */
+    public synchronized void append(Long chatRoomId, List<MessageResponseDTO> messages) {
+        if (messages.isEmpty()) return;
+        try {
+            Files.createDirectories(archiveDir);
+            byte[] block = compress(encode(messages));
+
+            long offset;
+            try (FileChannel segment = FileChannel.open(segmentPath(chatRoomId),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                offset = segment.size();
+                writeFully(segment, ByteBuffer.wrap(block));
+                segment.force(false);
+            }
+
+            ByteBuffer entry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+            entry.putLong(messages.get(0).getMessageId());
+            entry.putLong(messages.get(messages.size() - 1).getMessageId());
+            entry.putLong(offset);
+            entry.putInt(block.length);
+            entry.putInt(messages.size());
+            entry.flip();
+            try (FileChannel index = FileChannel.open(indexPath(chatRoomId),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                writeFully(index, entry);
+                index.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("채팅 보관 파일 쓰기 실패: " + chatRoomId, e);
+        }
+    }
+
+    /**
+     * 보관된 모든 메시지 (보관한 순서. 늦게 보관된 작은 id 가 뒤에 올 수 있다)
+     */
+    public List<MessageResponseDTO> read(Long chatRoomId) {
+        return read(chatRoomId, 0);
+    }
+
+    /**
+     * fromBlock 번째 블록부터 보관된 메시지
+     */
+    public List<MessageResponseDTO> read(Long chatRoomId, int fromBlock) {
+        List<MessageResponseDTO> result = new ArrayList<>();
+        ByteBuffer index = map(indexPath(chatRoomId));
+        if (index == null) return result;
+        ByteBuffer segment = map(segmentPath(chatRoomId));
+        if (segment == null) return result;
+
+        int entries = index.capacity() / INDEX_ENTRY_SIZE;
+        for (int i = Math.max(0, fromBlock); i < entries; i++) {
+            readBlock(chatRoomId, segment, index, i, result);
+        }
+        return result;
+    }
+
+    /**
+     * 보관된 블록 수
+     */
+    public int blockCount(Long chatRoomId) {
+        ByteBuffer index = map(indexPath(chatRoomId));
+        return index != null ? index.capacity() / INDEX_ENTRY_SIZE : 0;
+    }
+
+    /**
+     * 보관된 메시지 중 messageId 가 가장 큰 메시지 (없으면 null)
+     */
+    public MessageResponseDTO readLast(Long chatRoomId) {
+        Summary summary = summary(chatRoomId);
+        return summary != null ? summary.last() : null;
+    }
+
+    /**
+     * 보관된 메시지의 최대 seq (없으면 0)
+     */
+    public long maxSeq(Long chatRoomId) {
+        Summary summary = summary(chatRoomId);
+        return summary != null ? summary.maxSeq() : 0L;
+    }
+
+    /**
+     * 마지막으로 붙인 블록의 메시지 (오래된 순)
+     */
+    public List<MessageResponseDTO> readLastBlock(Long chatRoomId) {
+        List<MessageResponseDTO> block = new ArrayList<>();
+        ByteBuffer index = map(indexPath(chatRoomId));
+        if (index == null || index.capacity() < INDEX_ENTRY_SIZE) return block;
+        ByteBuffer segment = map(segmentPath(chatRoomId));
+        if (segment == null) return block;
+
+        readBlock(chatRoomId, segment, index, index.capacity() / INDEX_ENTRY_SIZE - 1, block);
+        return block;
+    }
+
+    /**
+     * 보관된 메시지 중 userId 가 아닌 사람이 보낸 안 읽은 메시지 수
+     * (읽음 여부를 저장하기 전(버전 3 미만) 블록의 메시지는 알 수 없으므로 읽은 것으로 본다)
+     */
+    public int countUnread(Long chatRoomId, UUID userId) {
+        Summary summary = summary(chatRoomId);
+        if (summary == null) return 0;
+
+        int unread = 0;
+        for (Map.Entry<UUID, Integer> entry : summary.unreadBySender().entrySet()) {
+            if (!entry.getKey().equals(userId)) {
+                unread += entry.getValue();
+            }
+        }
+        return unread;
+    }
+
+    /**
+     * 마지막 블록의 마지막 messageId (없으면 0, 늦게 보관된 메시지가 있으면 가장 큰 id 가 아닐 수 있다)
+     */
+    public long lastArchivedMessageId(Long chatRoomId) {
+        ByteBuffer index = map(indexPath(chatRoomId));
+        if (index == null || index.capacity() < INDEX_ENTRY_SIZE) return 0L;
+        int last = index.capacity() / INDEX_ENTRY_SIZE - 1;
+        return index.getLong(last * INDEX_ENTRY_SIZE + 8);
+    }
+
+    public synchronized void delete(Long chatRoomId) {
+        summaries.remove(chatRoomId);
+        try {
+            Files.deleteIfExists(indexPath(chatRoomId));
+            Files.deleteIfExists(segmentPath(chatRoomId));
+        } catch (IOException e) {
+            System.err.println("❌ 채팅 보관 파일 삭제 실패: " + chatRoomId + " - " + e.getMessage());
+        }
+    }
+
+    private Summary summary(Long chatRoomId) {
+        Path indexPath = indexPath(chatRoomId);
+        long indexLength;
+        try {
+            if (!Files.exists(indexPath)) return null;
+            indexLength = Files.size(indexPath);
+        } catch (IOException e) {
+            throw new UncheckedIOException("채팅 보관 파일 읽기 실패: " + indexPath, e);
+        }
+
+        Summary summary = summaries.get(chatRoomId);
+        if (summary == null || summary.indexLength() != indexLength) {
+            Map<UUID, Integer> bySender = new HashMap<>();
+            long maxSeq = 0L;
+            MessageResponseDTO last = null;
+            for (MessageResponseDTO message : read(chatRoomId)) {
+                if (Boolean.FALSE.equals(message.getIsRead())) {
+                    bySender.merge(message.getSenderId(), 1, Integer::sum);
+                }
+                if (message.getSeq() != null) {
+                    maxSeq = Math.max(maxSeq, message.getSeq());
+                }
+                if (last == null || message.getMessageId() > last.getMessageId()) {
+                    last = message;
+                }
+            }
+            summary = new Summary(indexLength, Map.copyOf(bySender), maxSeq, last);
+            summaries.put(chatRoomId, summary);
+        }
+        return summary;
+    }
+
+    private void readBlock(Long chatRoomId, ByteBuffer segment, ByteBuffer index, int entry, List<MessageResponseDTO> out) {
+        int base = entry * INDEX_ENTRY_SIZE;
+        long offset = index.getLong(base + 16);
+        int length = index.getInt(base + 24);
+        if (offset + length > segment.capacity()) return; // 아직 쓰는 중인 블록
+
+        ByteBuffer compressed = segment.duplicate();
+        compressed.position((int) offset).limit((int) offset + length);
+        int version = compressed.getInt((int) offset + 4);
+        decode(chatRoomId, version, ByteBuffer.wrap(decompress(compressed)), out);
+    }
+
+    private ByteBuffer map(Path path) {
+        if (!Files.exists(path)) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("채팅 보관 파일 읽기 실패: " + path, e);
+        }
+    }
+
+    private byte[] encode(List<MessageResponseDTO> messages) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (MessageResponseDTO message : messages) {
+            out.writeLong(message.getMessageId());
+            out.writeLong(message.getSeq() != null ? message.getSeq() : 0L);
+            out.writeLong(message.getAttachmentId() != null ? message.getAttachmentId() : 0L);
+            // DB 와 같이 null 은 안 읽음으로 본다
+            out.writeByte(Boolean.TRUE.equals(message.getIsRead()) ? FLAG_READ : 0);
+            out.writeLong(message.getSenderId().getMostSignificantBits());
+            out.writeLong(message.getSenderId().getLeastSignificantBits());
+            out.writeLong(message.getSentAt() != null ? message.getSentAt().toInstant(ZoneOffset.UTC).toEpochMilli() : -1L);
+            byte[] content = message.getContent() != null ? message.getContent().getBytes(StandardCharsets.UTF_8) : new byte[0];
+            out.writeInt(content.length);
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void decode(Long chatRoomId, int version, ByteBuffer in, List<MessageResponseDTO> out) {
+        while (in.hasRemaining()) {
+            long messageId = in.getLong();
+            long seq = version >= 1 ? in.getLong() : 0L;
+            long attachmentId = version >= 2 ? in.getLong() : 0L;
+            Boolean isRead = version >= 3 ? (in.get() & FLAG_READ) != 0 : null;
+            UUID senderId = new UUID(in.getLong(), in.getLong());
+            long sentAt = in.getLong();
+            byte[] content = new byte[in.getInt()];
+            in.get(content);
+            out.add(MessageResponseDTO.builder()
+                    .messageId(messageId)
+                    .chatRoomId(chatRoomId)
+                    .seq(seq > 0 ? seq : null)
+                    .senderId(senderId)
+                    .content(new String(content, StandardCharsets.UTF_8))
+                    .attachmentId(attachmentId > 0 ? attachmentId : null)
+                    .isRead(isRead)
+                    .sentAt(sentAt >= 0 ? LocalDateTime.ofInstant(Instant.ofEpochMilli(sentAt), ZoneOffset.UTC) : null)
+                    .build());
+        }
+    }
+
+    private byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + BLOCK_HEADER_SIZE);
+            DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(raw.length);
+            header.writeInt(BLOCK_VERSION);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] decompress(ByteBuffer block) {
+        int rawLength = block.getInt();
+        block.getInt();
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                read += inflater.inflate(raw, read, rawLength - read);
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("채팅 보관 블록이 손상되었습니다.", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private Path segmentPath(Long chatRoomId) {
+        return archiveDir.resolve(chatRoomId + ".seg");
+    }
+
+    private Path indexPath(Long chatRoomId) {
+        return archiveDir.resolve(chatRoomId + ".idx");
+    }
+}
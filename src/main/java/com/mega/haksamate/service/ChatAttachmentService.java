@@ -0,0 +1,245 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.ChatAttachmentDTO;
+import com.mega.haksamate.entity.ChatAttachment;
+import com.mega.haksamate.entity.ChatRoom;
+import com.mega.haksamate.entity.Profile;
+import com.mega.haksamate.repository.ChatAttachmentRepository;
+import com.mega.haksamate.repository.ProfileRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 채팅 이미지 첨부
+ * - 요청 본문을 그대로 스트리밍으로 파일에 쓴다 (multipart/STOMP 로 메모리에 올리지 않음)
+ * - 저장이 끝나면 바로 id 를 돌려주고, 미리보기는 ChatThumbnailService 가 백그라운드에서 만든다
+ * - 올리기만 하고 메시지에 붙이지 않은 첨부는 orphan-ttl-hours 가 지나면 파일과 행을 지운다
+ */
+@Service
+public class ChatAttachmentService {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final ChatAttachmentRepository chatAttachmentRepository;
+    private final ChatRoomService chatRoomService;
+    private final ProfileRepository profileRepository;
+    private final ChatThumbnailService chatThumbnailService;
+
+    private final Path attachmentDir;
+    private final String urlPrefix;
+    private final long maxBytes;
+    private final long orphanTtlMillis;
+
+    public ChatAttachmentService(ChatAttachmentRepository chatAttachmentRepository,
+                                 ChatRoomService chatRoomService,
+                                 ProfileRepository profileRepository,
+                                 ChatThumbnailService chatThumbnailService,
+                                 @Value("${haksamate.chat.attachment.max-bytes:10485760}") long maxBytes,
+                                 @Value("${haksamate.chat.attachment.orphan-ttl-hours:24}") long orphanTtlHours) {
+        this.chatAttachmentRepository = chatAttachmentRepository;
+        this.chatRoomService = chatRoomService;
+        this.profileRepository = profileRepository;
+        this.chatThumbnailService = chatThumbnailService;
+        // WebConfig 의 /uploads/** 정적 경로 아래에 둔다
+        this.attachmentDir = Paths.get(System.getProperty("user.dir"), "uploads", "chat");
+        this.urlPrefix = "/uploads/chat/";
+        this.maxBytes = maxBytes;
+        this.orphanTtlMillis = TimeUnit.HOURS.toMillis(orphanTtlHours);
+    }
+
+    public ChatAttachmentDTO upload(Long chatRoomId, UUID uploaderId, long contentLength, InputStream body) throws IOException {
+        ChatRoom chatRoom = chatRoomService.getChatRoomById(chatRoomId);
+        if (!isMember(chatRoom, uploaderId)) {
+            throw new IllegalArgumentException("채팅방 참여자만 첨부할 수 있습니다.");
+        }
+        if (contentLength > maxBytes) {
+            throw new AttachmentTooLargeException(maxBytes);
+        }
+        Profile uploader = profileRepository.findById(uploaderId)
+                .orElseThrow(() -> new RuntimeException("보낸 사람을 찾을 수 없습니다"));
+
+        Files.createDirectories(attachmentDir);
+        Path temp = Files.createTempFile(attachmentDir, "upload-", ".part");
+        try {
+            byte[] head = new byte[12];
+            long size = copyLimited(body, temp, head);
+            ImageType type = ImageType.detect(head);
+            if (type == null) {
+                throw new IllegalArgumentException("지원하지 않는 이미지 형식입니다. (jpg, png, gif, webp)");
+            }
+
+            String fileName = UUID.randomUUID().toString().replace("-", "") + "." + type.extension;
+            Path target = attachmentDir.resolve(fileName);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+
+            ChatAttachment saved;
+            try {
+                saved = chatAttachmentRepository.save(ChatAttachment.builder()
+                        .chatRoom(chatRoom)
+                        .uploader(uploader)
+                        .contentType(type.contentType)
+                        .sizeBytes(size)
+                        .filePath(urlPrefix + fileName)
+                        .createdAt(System.currentTimeMillis())
+                        .build());
+            } catch (RuntimeException e) {
+                // 행이 없으면 아무도 찾을 수 없는 파일이 되므로 같이 지운다
+                Files.deleteIfExists(target);
+                throw e;
+            }
+            System.out.println("📎 채팅 첨부 저장: room=" + chatRoomId + ", id=" + saved.getAttachmentId() + ", " + size + " bytes");
+
+            chatThumbnailService.generate(saved.getAttachmentId(), chatRoomId, target);
+            return ChatAttachmentDTO.from(saved);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public ChatAttachmentDTO getAttachment(Long attachmentId) {
+        return ChatAttachmentDTO.from(chatAttachmentRepository.findById(attachmentId)
+                .orElseThrow(() -> new NoSuchElementException("첨부 파일을 찾을 수 없습니다.")));
+    }
+
+    /**
+     * 메시지에 붙일 첨부 확인 (같은 방, 올린 사람 본인만), 붙은 것으로 표시해서 정리 대상에서 뺀다
+     */
+    public ChatAttachment getForMessage(Long attachmentId, Long chatRoomId, UUID senderId) {
+        ChatAttachment attachment = chatAttachmentRepository.findById(attachmentId)
+                .orElseThrow(() -> new NoSuchElementException("첨부 파일을 찾을 수 없습니다."));
+        if (!attachment.getChatRoom().getChatRoomId().equals(chatRoomId)
+                || !attachment.getUploader().getId().equals(senderId)) {
+            throw new IllegalArgumentException("이 채팅방에 보낼 수 없는 첨부입니다.");
+        }
+        // 그 사이 정리 작업이 지웠으면 0
+        if (!attachment.isAttached() && chatAttachmentRepository.markAttached(attachmentId) == 0) {
+            throw new NoSuchElementException("첨부 파일을 찾을 수 없습니다.");
+        }
+        attachment.setAttached(true);
+        return attachment;
+    }
+
+    /**
+     * 채팅방 정리 시 첨부 파일과 행 삭제 (메시지를 먼저 지운 뒤 호출)
+     */
+    public void deleteByChatRoom(Long chatRoomId) {
+        List<ChatAttachment> attachments = chatAttachmentRepository.findByChatRoom_ChatRoomId(chatRoomId);
+        for (ChatAttachment attachment : attachments) {
+            deleteFile(attachment.getFilePath());
+            deleteFile(attachment.getThumbnailPath());
+        }
+        chatAttachmentRepository.deleteAll(attachments);
+    }
+
+    /**
+     * 메시지에 붙지 않은 채 orphan-ttl-hours 가 지난 첨부의 파일과 행을 지운다
+     */
+    @Scheduled(fixedDelayString = "${haksamate.chat.attachment.orphan-sweep-interval-ms:3600000}")
+    public void sweepOrphans() {
+        long cutoff = System.currentTimeMillis() - orphanTtlMillis;
+        int deleted = 0;
+        List<ChatAttachment> batch;
+        do {
+            batch = chatAttachmentRepository.findTop100ByAttachedFalseAndCreatedAtLessThanOrderByAttachmentIdAsc(cutoff);
+            for (ChatAttachment attachment : batch) {
+                try {
+                    // 행을 먼저 지워서, 그 사이 메시지에 붙은 첨부의 파일은 지우지 않는다
+                    if (chatAttachmentRepository.deleteIfUnattached(attachment.getAttachmentId()) == 0) continue;
+                } catch (Exception e) {
+                    System.err.println("❌ 첨부 정리 실패: " + attachment.getAttachmentId() + " - " + e.getMessage());
+                    return;
+                }
+                deleteFile(attachment.getFilePath());
+                deleteFile(attachment.getThumbnailPath());
+                deleted++;
+            }
+        } while (batch.size() == 100);
+        if (deleted > 0) {
+            System.out.println("🧹 메시지에 붙지 않은 첨부 " + deleted + "건 삭제");
+        }
+    }
+
+    private long copyLimited(InputStream in, Path target, byte[] head) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (total < head.length) {
+                    System.arraycopy(buffer, 0, head, (int) total, (int) Math.min(n, head.length - total));
+                }
+                total += n;
+                if (total > maxBytes) {
+                    throw new AttachmentTooLargeException(maxBytes);
+                }
+                out.write(buffer, 0, n);
+            }
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("빈 파일입니다.");
+        }
+        return total;
+    }
+
+    private void deleteFile(String urlPath) {
+        if (urlPath == null || !urlPath.startsWith(urlPrefix)) return;
+        try {
+            Files.deleteIfExists(attachmentDir.resolve(urlPath.substring(urlPrefix.length())));
+        } catch (IOException e) {
+            System.err.println("❌ 첨부 파일 삭제 실패: " + urlPath + " - " + e.getMessage());
+        }
+    }
+
+    private static boolean isMember(ChatRoom chatRoom, UUID userId) {
+        return userId.equals(chatRoom.getChatUsr1Id().getId()) || userId.equals(chatRoom.getChatUsr2Id().getId());
+    }
+
+    // 확장자/Content-Type 헤더 대신 파일 앞부분(magic number)으로 형식을 판단한다
+    private enum ImageType {
+        JPEG("jpg", "image/jpeg", new int[]{0xFF, 0xD8, 0xFF}),
+        PNG("png", "image/png", new int[]{0x89, 'P', 'N', 'G'}),
+        GIF("gif", "image/gif", new int[]{'G', 'I', 'F', '8'}),
+        WEBP("webp", "image/webp", new int[]{'R', 'I', 'F', 'F', -1, -1, -1, -1, 'W', 'E', 'B', 'P'});
+
+        final String extension;
+        final String contentType;
+        final int[] magic;
+
+        ImageType(String extension, String contentType, int[] magic) {
+            this.extension = extension;
+            this.contentType = contentType;
+            this.magic = magic;
+        }
+
+        static ImageType detect(byte[] head) {
+            return Arrays.stream(values()).filter(type -> type.matches(head)).findFirst().orElse(null);
+        }
+
+        boolean matches(byte[] head) {
+            for (int i = 0; i < magic.length; i++) {
+                if (magic[i] != -1 && (head[i] & 0xFF) != magic[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    public static class AttachmentTooLargeException extends RuntimeException {
+        public AttachmentTooLargeException(long maxBytes) {
+            super("첨부 파일은 " + (maxBytes / 1024 / 1024) + "MB 이하만 올릴 수 있습니다.");
+        }
+    }
+}
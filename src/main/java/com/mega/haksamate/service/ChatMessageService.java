@@ -1,17 +1,28 @@
 package com.mega.haksamate.service;
 
+import com.mega.haksamate.cluster.ClusterMessagingTemplate;
+import com.mega.haksamate.dto.ChatSyncResponseDTO;
+import com.mega.haksamate.dto.MessageAckDTO;
 import com.mega.haksamate.dto.MessageDTO;
+import com.mega.haksamate.dto.MessageResponseDTO;
+import com.mega.haksamate.entity.ChatAttachment;
 import com.mega.haksamate.entity.ChatMessage;
 import com.mega.haksamate.entity.ChatRoom;
 import com.mega.haksamate.entity.Profile;
 import com.mega.haksamate.repository.ChatMessageRepository;
 import com.mega.haksamate.repository.ProfileRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @RequiredArgsConstructor
@@ -20,35 +31,241 @@ public class ChatMessageService {
     private final ChatMessageRepository chatMessageRepository;
     private final ChatRoomService chatRoomService;
     private final ProfileRepository profileRepository;
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterMessagingTemplate messagingTemplate;
+    private final ChatArchiveStore chatArchiveStore;
+    private final ChatSearchIndex chatSearchIndex;
+    private final ChatSequenceAllocator chatSequenceAllocator;
+    private final ChatSendDeduplicator chatSendDeduplicator;
+    private final ChatAttachmentService chatAttachmentService;
+    private final ChatTailCache chatTailCache;
+
+    public void sendMessage(MessageDTO dto, String sessionId) {
+        String clientMessageId = normalizeClientMessageId(dto.getClientMessageId());
+        // 재전송이면 DB 를 건드리지 않고 보낸 사람에게 확인 응답만 보낸다
+        if (clientMessageId != null && ackIfDuplicate(dto.getChatRoomId(), clientMessageId, sessionId)) {
+            return;
+        }
 
-    public void sendMessage(MessageDTO dto) {
         ChatRoom chatRoom = chatRoomService.getChatRoomById(dto.getChatRoomId());
         Profile sender = profileRepository.findById(dto.getSenderId())
                 .orElseThrow(() -> new RuntimeException("보낸 사람을 찾을 수 없습니다"));
 
+        ChatAttachment attachment = dto.getAttachmentId() != null
+                ? chatAttachmentService.getForMessage(dto.getAttachmentId(), chatRoom.getChatRoomId(), sender.getId())
+                : null;
+
         ChatMessage message = ChatMessage.builder()
                 .chatRoom(chatRoom)
                 .sender(sender)
-                .content(dto.getContent())
+                .content(dto.getContent() != null ? dto.getContent() : "")
+                .attachment(attachment)
+                .clientMessageId(clientMessageId)
                 .sentAt(LocalDateTime.now())
                 .isRead(false)
                 .build();
 
-        ChatMessage saved = chatMessageRepository.save(message);
+        ChatMessage saved;
+        AtomicLong counter = chatSequenceAllocator.counter(chatRoom.getChatRoomId());
+        synchronized (counter) {
+            // 같은 재전송이 동시에 들어온 경우 먼저 저장한 쪽만 통과한다
+            if (clientMessageId != null && ackIfDuplicate(chatRoom.getChatRoomId(), clientMessageId, sessionId)) {
+                return;
+            }
+            try {
+                saved = saveWithSeq(chatRoom.getChatRoomId(), message, counter);
+            } catch (DataIntegrityViolationException e) {
+                // 기억 범위를 벗어난 재전송이나 다른 노드가 먼저 저장한 경우 (unique 제약)
+                ChatMessage existing = clientMessageId != null
+                        ? chatMessageRepository.findByChatRoom_ChatRoomIdAndClientMessageId(chatRoom.getChatRoomId(), clientMessageId)
+                        : null;
+                if (existing == null) throw e;
+                chatSendDeduplicator.remember(chatRoom.getChatRoomId(), clientMessageId, existing.getMessageId(), existing.getSeq());
+                sendAck(sessionId, new MessageAckDTO(chatRoom.getChatRoomId(), clientMessageId,
+                        existing.getMessageId(), existing.getSeq(), true));
+                return;
+            }
+            if (clientMessageId != null) {
+                chatSendDeduplicator.remember(chatRoom.getChatRoomId(), clientMessageId, saved.getMessageId(), saved.getSeq());
+            }
+        }
+        chatSearchIndex.onMessage(chatRoom.getChatRoomId(), saved.getMessageId(), saved.getContent());
+        chatTailCache.onMessage(chatRoom.getChatRoomId(), toResponseDTO(saved));
 
         // ✅ sentAt 포함된 DTO로 새로 구성해서 전송
         MessageDTO responseDTO = new MessageDTO();
         responseDTO.setChatRoomId(saved.getChatRoom().getChatRoomId());
+        responseDTO.setSeq(saved.getSeq());
+        responseDTO.setClientMessageId(saved.getClientMessageId());
         responseDTO.setSenderId(saved.getSender().getId());
         responseDTO.setContent(saved.getContent());
+        responseDTO.setAttachmentId(attachment != null ? attachment.getAttachmentId() : null);
         responseDTO.setSentAt(saved.getSentAt()); // ✅ 이게 중요
 
         messagingTemplate.convertAndSend("/topic/chat/" + dto.getChatRoomId(), responseDTO);
     }
 
+    private boolean ackIfDuplicate(Long chatRoomId, String clientMessageId, String sessionId) {
+        ChatSendDeduplicator.SentMessage sent = chatSendDeduplicator.find(chatRoomId, clientMessageId);
+        if (sent == null) return false;
+        System.out.println("🔁 중복 전송 무시: room=" + chatRoomId + ", clientMessageId=" + clientMessageId);
+        sendAck(sessionId, new MessageAckDTO(chatRoomId, clientMessageId, sent.messageId(), sent.seq(), true));
+        return true;
+    }
+
+    private void sendAck(String sessionId, MessageAckDTO ack) {
+        if (sessionId == null) return;
+        messagingTemplate.sendToSession(sessionId, "/queue/chat/ack", ack);
+    }
+
+    private static String normalizeClientMessageId(String clientMessageId) {
+        if (clientMessageId == null || clientMessageId.isBlank()) return null;
+        String trimmed = clientMessageId.trim();
+        if (trimmed.length() > 64) {
+            throw new IllegalArgumentException("clientMessageId 는 64자 이하여야 합니다.");
+        }
+        return trimmed;
+    }
+
+    /**
+     * seq 발급과 저장을 방 단위로 묶어서, 커밋 순서와 seq 순서가 같도록 한다
+     * (그래야 afterSeq 동기화에서 늦게 커밋된 작은 seq 를 놓치지 않는다, 호출자가 counter lock 을 잡고 있어야 함)
+     */
+    private ChatMessage saveWithSeq(Long chatRoomId, ChatMessage message, AtomicLong counter) {
+        message.setSeq(counter.incrementAndGet());
+        try {
+            return chatMessageRepository.save(message);
+        } catch (DataIntegrityViolationException e) {
+            // clientMessageId 중복이면 호출자가 처리한다
+            if (message.getClientMessageId() != null && chatMessageRepository
+                    .findByChatRoom_ChatRoomIdAndClientMessageId(chatRoomId, message.getClientMessageId()) != null) {
+                throw e;
+            }
+            // 다른 노드가 같은 seq 를 먼저 쓴 경우: DB 기준으로 카운터를 맞추고 한 번만 다시 시도
+            System.err.println("⚠️ seq 충돌, 카운터 재설정: room=" + chatRoomId + ", seq=" + message.getSeq());
+            chatSequenceAllocator.resync(chatRoomId);
+            message.setMessageId(null);
+            message.setSeq(counter.incrementAndGet());
+            return chatMessageRepository.save(message);
+        }
+    }
+
+    /**
+     * 재접속 동기화: afterSeq 이후 메시지만 (보관 파일 + chat_message, seq 오름차순)
+     */
+    public ChatSyncResponseDTO getMessagesAfter(Long chatRoomId, long afterSeq, int limit) {
+        // 잠깐 끊겼다 붙은 경우는 대부분 최근 메시지 캐시 범위 안이다
+        List<MessageResponseDTO> cached = chatTailCache.getAfter(chatRoomId, afterSeq);
+        if (cached != null && cached.size() <= limit) {
+            return toSyncResponse(chatRoomId, afterSeq, cached, false);
+        }
+
+        // 보관 파일과 chat_message 를 seq 로 합친다. 늦게 commit 된 메시지는 보관 파일/DB 어느 쪽에든
+        // 더 작은 seq 로 있을 수 있으므로 seq 기준선으로 자르지 않고, 보관된 id 로만 중복을 거른다
+        List<MessageResponseDTO> messages = new ArrayList<>();
+        Set<Long> archivedIds = new HashSet<>();
+        if (chatArchiveStore.maxSeq(chatRoomId) > afterSeq) {
+            for (MessageResponseDTO msg : chatArchiveStore.read(chatRoomId)) {
+                archivedIds.add(msg.getMessageId());
+                if (msg.getSeq() != null && msg.getSeq() > afterSeq) {
+                    messages.add(msg);
+                }
+            }
+        }
+
+        // 잘렸는지 알기 위해 하나 더 읽는다
+        List<ChatMessage> rows = chatMessageRepository.findByChatRoom_ChatRoomIdAndSeqGreaterThanOrderBySeqAsc(
+                chatRoomId, afterSeq, PageRequest.of(0, limit + 1));
+        boolean rowsCut = rows.size() > limit;
+        for (ChatMessage msg : rowsCut ? rows.subList(0, limit) : rows) {
+            // 보관 직후 아직 삭제되지 않은 행
+            if (archivedIds.contains(msg.getMessageId())) continue;
+            messages.add(toResponseDTO(msg));
+        }
+        messages.sort(Comparator.comparingLong(MessageResponseDTO::getSeq));
+
+        boolean hasMore = rowsCut;
+        if (rowsCut) {
+            // 읽지 않은 DB 행은 이번 마지막 행보다 seq 가 크므로, 그보다 뒤의 보관 메시지는 다음 요청으로 넘긴다
+            long lastRowSeq = rows.get(limit - 1).getSeq();
+            messages.removeIf(msg -> msg.getSeq() > lastRowSeq);
+        }
+        if (messages.size() > limit) {
+            messages = new ArrayList<>(messages.subList(0, limit));
+            hasMore = true;
+        }
+        return toSyncResponse(chatRoomId, afterSeq, messages, hasMore);
+    }
+
+    private ChatSyncResponseDTO toSyncResponse(Long chatRoomId, long afterSeq, List<MessageResponseDTO> messages, boolean hasMore) {
+        long lastSeq = messages.isEmpty() ? afterSeq : messages.get(messages.size() - 1).getSeq();
+        return new ChatSyncResponseDTO(chatRoomId, messages, lastSeq, hasMore);
+    }
+
+    /**
+     * 채팅방 첫 화면용 최근 메시지 (오래된 순). 캐시에 있으면 DB 를 조회하지 않는다
+     */
+    public List<MessageResponseDTO> getRecentMessages(Long chatRoomId) {
+        List<MessageResponseDTO> cached = chatTailCache.getRecent(chatRoomId);
+        if (cached != null) return cached;
+
+        int size = chatTailCache.getTailSize();
+        List<ChatMessage> rows = chatMessageRepository.findByChatRoom_ChatRoomIdOrderBySeqDesc(chatRoomId, PageRequest.of(0, size));
+        List<MessageResponseDTO> loaded = new ArrayList<>(rows.size());
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            loaded.add(toResponseDTO(rows.get(i)));
+        }
+        if (loaded.size() < size) {
+            // 보관된 방이면 나머지를 보관 파일 끝에서 채운다 (아직 삭제되지 않은 행과 겹치는 id 는 뺀다)
+            List<MessageResponseDTO> archived = chatArchiveStore.read(chatRoomId);
+            Set<Long> hotIds = new HashSet<>();
+            loaded.forEach(msg -> hotIds.add(msg.getMessageId()));
+            archived.removeIf(msg -> hotIds.contains(msg.getMessageId()));
+            archived.sort(Comparator.comparingLong(MessageResponseDTO::getMessageId));
+            List<MessageResponseDTO> head = archived.subList(Math.max(0, archived.size() - (size - loaded.size())), archived.size());
+            loaded.addAll(0, head);
+        }
+        return chatTailCache.fill(chatRoomId, loaded, loaded.size() < size);
+    }
 
     public List<ChatMessage> getMessagesByChatRoom(Long chatRoomId) {
         return chatMessageRepository.findByChatRoom_ChatRoomIdOrderBySentAtAsc(chatRoomId);
     }
+
+    /**
+     * 채팅방 전체 내역 (보관 파일 + chat_message, messageId 순)
+     */
+    public List<MessageResponseDTO> getMessageHistory(Long chatRoomId) {
+        List<MessageResponseDTO> history = new ArrayList<>(chatArchiveStore.read(chatRoomId));
+        Set<Long> archivedIds = new HashSet<>();
+        history.forEach(msg -> archivedIds.add(msg.getMessageId()));
+
+        for (ChatMessage msg : getMessagesByChatRoom(chatRoomId)) {
+            // 보관 직후 아직 삭제되지 않은 메시지는 중복으로 내보내지 않는다
+            if (archivedIds.contains(msg.getMessageId())) continue;
+            history.add(toResponseDTO(msg));
+        }
+        // 늦게 commit 된 메시지는 보관 파일 뒤쪽이나 DB 에 더 작은 id 로 있을 수 있다
+        history.sort(Comparator.comparingLong(MessageResponseDTO::getMessageId));
+        return history;
+    }
+
+    /**
+     * 채팅방 안에서 키워드 검색 (일치하는 messageId, 최신순)
+     */
+    public List<Long> searchMessages(Long chatRoomId, String keyword, int limit) {
+        return chatSearchIndex.search(chatRoomId, keyword, limit);
+    }
+
+    public MessageResponseDTO toResponseDTO(ChatMessage msg) {
+        return MessageResponseDTO.builder()
+                .messageId(msg.getMessageId())
+                .chatRoomId(msg.getChatRoom().getChatRoomId())
+                .seq(msg.getSeq())
+                .senderId(msg.getSender().getId())
+                .content(msg.getContent())
+                .attachmentId(msg.getAttachment() != null ? msg.getAttachment().getAttachmentId() : null)
+                .isRead(msg.getIsRead())
+                .sentAt(msg.getSentAt())
+                .build();
+    }
 }
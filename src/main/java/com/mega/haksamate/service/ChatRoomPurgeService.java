@@ -0,0 +1,106 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.repository.ChatMessageRepository;
+import com.mega.haksamate.repository.ChatRoomRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 삭제 표시된 채팅방의 메시지를 백그라운드에서 조금씩 지운다
+ * - 한 번에 chunk-size 건씩 별도 트랜잭션으로 지워서 락과 커넥션을 오래 잡지 않는다
+ * - 메시지가 모두 지워지면 보관 파일/검색 색인을 정리하고 채팅방 행을 지운다
+ * - 한 방에서 실패하면 로그를 남기고 chat.purge.failures 로 센 뒤 다음 방으로 넘어간다 (그 방은 다음 주기에 다시 시도)
+ */
+@Service
+public class ChatRoomPurgeService {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatRoomRepository chatRoomRepository;
+    private final ChatArchiveStore chatArchiveStore;
+    private final ChatSearchIndex chatSearchIndex;
+    private final ChatSequenceAllocator chatSequenceAllocator;
+    private final ChatAttachmentService chatAttachmentService;
+    private final ChatTailCache chatTailCache;
+
+    private final Counter purgedMessages;
+    private final Counter purgedRooms;
+    private final Counter failedRooms;
+    private final AtomicInteger pendingRooms = new AtomicInteger();
+    private final AtomicLong currentRoomPurged = new AtomicLong();
+
+    @Value("${haksamate.chat.purge.chunk-size:1000}")
+    private int chunkSize;
+
+    // 한 번 실행에서 지울 최대 chunk 수 (다른 방이 너무 오래 기다리지 않도록)
+    @Value("${haksamate.chat.purge.max-chunks-per-run:200}")
+    private int maxChunksPerRun;
+
+    public ChatRoomPurgeService(ChatMessageRepository chatMessageRepository,
+                                ChatRoomRepository chatRoomRepository,
+                                ChatArchiveStore chatArchiveStore,
+                                ChatSearchIndex chatSearchIndex,
+                                ChatSequenceAllocator chatSequenceAllocator,
+                                ChatAttachmentService chatAttachmentService,
+                                ChatTailCache chatTailCache,
+                                MeterRegistry meterRegistry) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatRoomRepository = chatRoomRepository;
+        this.chatArchiveStore = chatArchiveStore;
+        this.chatSearchIndex = chatSearchIndex;
+        this.chatSequenceAllocator = chatSequenceAllocator;
+        this.chatAttachmentService = chatAttachmentService;
+        this.chatTailCache = chatTailCache;
+        this.purgedMessages = Counter.builder("chat.purge.messages")
+                .description("삭제된 채팅방에서 지운 메시지 수")
+                .register(meterRegistry);
+        this.purgedRooms = Counter.builder("chat.purge.rooms")
+                .description("정리가 끝난 채팅방 수")
+                .register(meterRegistry);
+        this.failedRooms = Counter.builder("chat.purge.failures")
+                .description("정리 중 실패한 채팅방 수 (다음 주기에 다시 시도)")
+                .register(meterRegistry);
+        meterRegistry.gauge("chat.purge.pending.rooms", pendingRooms);
+        meterRegistry.gauge("chat.purge.current.room.messages", currentRoomPurged);
+    }
+
+    @Scheduled(fixedDelayString = "${haksamate.chat.purge.interval-ms:5000}")
+    public void purgeDeletedRooms() {
+        List<Long> roomIds = chatRoomRepository.findDeletedChatRoomIds();
+        pendingRooms.set(roomIds.size());
+        if (roomIds.isEmpty()) return;
+
+        int chunks = 0;
+        for (Long roomId : roomIds) {
+            currentRoomPurged.set(0);
+            try {
+                int deleted;
+                do {
+                    if (chunks++ >= maxChunksPerRun) return;
+                    deleted = chatMessageRepository.deleteChunkByChatRoomId(roomId, chunkSize);
+                    purgedMessages.increment(deleted);
+                    currentRoomPurged.addAndGet(deleted);
+                } while (deleted > 0);
+
+                chatAttachmentService.deleteByChatRoom(roomId);
+                chatArchiveStore.delete(roomId);
+                chatSearchIndex.delete(roomId);
+                chatSequenceAllocator.evict(roomId);
+                chatTailCache.evict(roomId);
+                chatRoomRepository.deleteById(roomId);
+                purgedRooms.increment();
+                pendingRooms.decrementAndGet();
+                System.out.println("🗑️ 채팅방 정리 완료: " + roomId + " (메시지 " + currentRoomPurged.get() + "건)");
+            } catch (Exception e) {
+                failedRooms.increment();
+                System.err.println("❌ 채팅방 정리 실패 (다음 주기에 다시 시도): " + roomId + " - " + e.getMessage());
+            }
+        }
+    }
+}
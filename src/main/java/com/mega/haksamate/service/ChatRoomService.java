@@ -2,17 +2,20 @@ package com.mega.haksamate.service;
 
 import com.mega.haksamate.dto.ChatRoomResponseDTO;
 import com.mega.haksamate.dto.ChatRoomWithLastMessageDTO;
+import com.mega.haksamate.dto.MessageResponseDTO;
 import com.mega.haksamate.entity.ChatMessage;
 import com.mega.haksamate.entity.ChatRoom;
-import com.mega.haksamate.entity.Profile;
 import com.mega.haksamate.repository.ChatMessageRepository;
 import com.mega.haksamate.repository.ChatRoomRepository;
-import com.mega.haksamate.repository.ProfileRepository;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -22,28 +25,43 @@ public class ChatRoomService {
 
     private final ChatMessageRepository chatMessageRepository;
     private final ChatRoomRepository chatRoomRepository;
-    private final ProfileRepository profileRepository;
+    private final ChatArchiveStore chatArchiveStore;
+    private final ChatTailCache chatTailCache;
+
+    @Value("${haksamate.chat.room-cache-size:10000}")
+    private int roomCacheSize;
+
+    // (두 사람) -> 채팅방 응답. 같은 상대와 "채팅하기"를 다시 눌러도 DB 를 타지 않는다
+    private final Map<RoomPair, ChatRoomResponseDTO> roomCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<RoomPair, ChatRoomResponseDTO> eldest) {
+                    return size() > roomCacheSize;
+                }
+            });
 
     /**
      * 1:1 채팅방 생성(이미 존재하면 반환)
      */
     public ChatRoomResponseDTO createChatRoom(UUID chatusr1Id, UUID chatusr2Id) {
         // 1. 두 사람이 이미 참여중인 방이 있는지 먼저 검색 (순서 상관없이)
-        ChatRoom room = chatRoomRepository
-                .findByChatUsr1Id_IdAndChatUsr2Id_Id(chatusr1Id, chatusr2Id)
-                .orElseGet(() -> {
-                    Profile user1 = profileRepository.findById(chatusr1Id)
-                            .orElseThrow(() -> new RuntimeException("user1 정보를 찾을 수 없습니다."));
-                    Profile user2 = profileRepository.findById(chatusr2Id)
-                            .orElseThrow(() -> new RuntimeException("user2 정보를 찾을 수 없습니다."));
-                    return chatRoomRepository.save(ChatRoom.builder()
-                            .chatUsr1Id(user1)
-                            .chatUsr2Id(user2)
-                            .createdAt(System.currentTimeMillis())
-                            .build());
-                });
-
-        return new ChatRoomResponseDTO(
+        RoomPair pair = RoomPair.of(chatusr1Id, chatusr2Id);
+        ChatRoomResponseDTO cached = roomCache.get(pair);
+        if (cached != null) {
+            return cached;
+        }
+
+        // 2. 없으면 한 번의 INSERT ... ON CONFLICT 로 생성하거나 기존 방 id 를 받는다
+        Long roomId;
+        try {
+            roomId = chatRoomRepository.insertOrGetChatRoomId(
+                    chatusr1Id, chatusr2Id, pair.low(), pair.high(), System.currentTimeMillis());
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException("채팅 상대 정보를 찾을 수 없습니다.");
+        }
+        ChatRoom room = getChatRoomById(roomId);
+
+        ChatRoomResponseDTO response = new ChatRoomResponseDTO(
                 room.getChatRoomId(),
                 room.getChatUsr1Id().getId(),
                 room.getChatUsr1Id().getName(),
@@ -52,6 +70,8 @@ public class ChatRoomService {
                 room.getCreatedAt()
 
         );
+        roomCache.put(pair, response);
+        return response;
     }
 
     /**
@@ -59,14 +79,25 @@ public class ChatRoomService {
      */
     public List<ChatRoomWithLastMessageDTO> getChatRoomsByUser(UUID userId) {
         // user1, user2 둘 중 하나로 참여한 모든 방 검색
-        List<ChatRoom> rooms = chatRoomRepository.findByChatUsr1Id_IdOrChatUsr2Id_Id(userId, userId);
+        List<ChatRoom> rooms = chatRoomRepository.findActiveByUserId(userId);
 
         return rooms.stream()
                 .map(room -> {
                     // 1. 해당 채팅방의 최신 메시지 1건 조회 (없으면 null)
                     ChatMessage lastMessage = chatMessageRepository.findTop1ByChatRoomOrderBySentAtDesc(room);
-                    // unreadCount
-                    int unreadCount = chatMessageRepository.countUnreadByChatRoomAndUser(room.getChatRoomId(), userId);
+                    String lastContent = lastMessage != null ? lastMessage.getContent() : null;
+                    java.time.LocalDateTime lastSentAt = lastMessage != null ? lastMessage.getSentAt() : null;
+                    if (lastMessage == null) {
+                        // 메시지가 모두 보관 파일로 옮겨진 방
+                        MessageResponseDTO archived = chatArchiveStore.readLast(room.getChatRoomId());
+                        if (archived != null) {
+                            lastContent = archived.getContent();
+                            lastSentAt = archived.getSentAt();
+                        }
+                    }
+                    // unreadCount (보관 파일로 옮겨진 안 읽은 메시지 포함)
+                    int unreadCount = chatMessageRepository.countUnreadByChatRoomAndUser(room.getChatRoomId(), userId)
+                            + chatArchiveStore.countUnread(room.getChatRoomId(), userId);
 
                     return new ChatRoomWithLastMessageDTO(
                             room.getChatRoomId(),
@@ -75,9 +106,9 @@ public class ChatRoomService {
                             room.getChatUsr2Id().getName(),
                             room.getChatUsr2Id().getId(),
                             room.getCreatedAt(),
-                            lastMessage != null ? lastMessage.getContent() : null,
-                            lastMessage != null && lastMessage.getSentAt() != null
-                                    ? lastMessage.getSentAt().toEpochSecond(java.time.ZoneOffset.UTC)
+                            lastContent,
+                            lastSentAt != null
+                                    ? lastSentAt.toEpochSecond(java.time.ZoneOffset.UTC)
                                     : null,
                             unreadCount
                     );
@@ -89,18 +120,34 @@ public class ChatRoomService {
      */
     public ChatRoom getChatRoomById(Long chatRoomId) {
         return chatRoomRepository.findById(chatRoomId)
+                .filter(room -> room.getDeletedAt() == null)
                 .orElseThrow(() -> new RuntimeException("채팅방을 찾을 수 없습니다."));
     }
 
     /**
-     * 채팅방 삭제
+     * 채팅방 삭제 - 삭제 표시만 하고 바로 반환 (메시지는 ChatRoomPurgeService 가 나눠서 지운다)
      */
-    @Transactional
     public void deleteChatRoom(Long chatRoomId) {
-        ChatRoom chatRoom = chatRoomRepository.findById(chatRoomId)
-                .orElseThrow(() -> new RuntimeException("채팅방을 찾을 수 없습니다."));
-        // 메시지 모두 삭제
-        chatMessageRepository.deleteAllByChatRoom_ChatRoomId(chatRoomId);
-        chatRoomRepository.delete(chatRoom);
+        ChatRoom chatRoom = getChatRoomById(chatRoomId);
+        if (chatRoomRepository.softDelete(chatRoomId, System.currentTimeMillis()) == 0) {
+            throw new RuntimeException("채팅방을 찾을 수 없습니다.");
+        }
+        roomCache.remove(RoomPair.of(chatRoom.getChatUsr1Id().getId(), chatRoom.getChatUsr2Id().getId()));
+        chatTailCache.evict(chatRoomId);
+    }
+
+    /**
+     * 순서 없는 두 사용자 쌍. PostgreSQL uuid 정렬(바이트 단위 unsigned)과 같은 기준으로 low/high 를 정한다
+     */
+    record RoomPair(UUID low, UUID high) {
+
+        static RoomPair of(UUID a, UUID b) {
+            return compareUnsigned(a, b) <= 0 ? new RoomPair(a, b) : new RoomPair(b, a);
+        }
+
+        private static int compareUnsigned(UUID a, UUID b) {
+            int cmp = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+            return cmp != 0 ? cmp : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+        }
     }
 }
@@ -0,0 +1,464 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.MessageResponseDTO;
+import com.mega.haksamate.entity.ChatMessage;
+import com.mega.haksamate.repository.ChatMessageRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 채팅방별 메시지 검색용 역색인
+ * - 토큰 -> messageId 목록(오름차순). 한글/한자 등은 1글자와 2글자(bigram) 모두, 영문/숫자는 단어 단위로 색인한다
+ * - 질의는 한글/한자 묶음이 2글자 이상이면 bigram, 1글자면 그 글자로 찾는다 ("역" 으로 "강남역에서" 검색)
+ * - 질의의 모든 토큰을 포함하는 메시지 id 를 최신순으로 돌려준다
+ * - 방마다 {roomId}.fts 파일에 delta + varint 로 압축 저장하고, 메모리에는 최근 사용한 방만 올려 둔다
+ *   (저장할 때는 방 잠금 안에서 복사만 하고 파일 쓰기는 잠금 밖에서 해서, 쓰는 동안에도 색인/검색이 멈추지 않는다)
+ * - 열 때 저장 이후의 메시지를 이어서 색인한다: 보관 파일은 색인한 뒤에 붙은 블록, DB 는 마지막 messageId 이후와
+ *   저장 시각 조금 전(COMMIT_MARGIN_MILLIS)부터 보낸 메시지 (늦게 commit 된 더 작은 id 를 놓치지 않도록. 같은 id 는 한 번만 들어간다)
+ */
+@Component
+public class ChatSearchIndex {
+
+    private static final int FILE_MAGIC = 0x43465453; // "CFTS"
+    // 2: 한글/한자 1글자 토큰 추가, 3: 따라잡기 시각/보관 블록 수 추가 (이전 버전 파일은 버리고 다시 색인)
+    private static final int FILE_VERSION = 3;
+    // 메시지를 만든 뒤(sentAt) commit 되어 색인에 들어오기까지 걸릴 수 있는 시간
+    private static final long COMMIT_MARGIN_MILLIS = 5 * 60 * 1000L;
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatArchiveStore chatArchiveStore;
+    private final Path indexDir;
+    private final int maxLoadedRooms;
+
+    private final Map<Long, RoomIndex> loaded;
+
+    public ChatSearchIndex(ChatMessageRepository chatMessageRepository,
+                           ChatArchiveStore chatArchiveStore,
+                           @Value("${haksamate.chat.search.dir:./data/chat-search}") String indexDir,
+                           @Value("${haksamate.chat.search.max-loaded-rooms:500}") int maxLoadedRooms) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatArchiveStore = chatArchiveStore;
+        this.indexDir = Paths.get(indexDir);
+        this.maxLoadedRooms = maxLoadedRooms;
+        this.loaded = new LinkedHashMap<>(64, 0.75f, true);
+    }
+
+    /**
+     * 새 메시지 색인 (메모리에 올라와 있는 방만. 나머지는 다음에 열 때 따라잡는다)
+     */
+    public void onMessage(Long chatRoomId, Long messageId, String content) {
+        RoomIndex index;
+        synchronized (loaded) {
+            index = loaded.get(chatRoomId);
+        }
+        if (index != null) {
+            index.add(messageId, content);
+        }
+    }
+
+    public List<Long> search(Long chatRoomId, String query, int limit) {
+        Set<String> tokens = queryTokens(query);
+        if (tokens.isEmpty()) return List.of();
+        return open(chatRoomId).search(tokens, limit);
+    }
+
+    public void delete(Long chatRoomId) {
+        synchronized (loaded) {
+            loaded.remove(chatRoomId);
+        }
+        try {
+            Files.deleteIfExists(indexPath(chatRoomId));
+        } catch (IOException e) {
+            System.err.println("❌ 검색 색인 파일 삭제 실패: " + chatRoomId + " - " + e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${haksamate.chat.search.flush-interval-ms:30000}")
+    public void flushDirty() {
+        List<Map.Entry<Long, RoomIndex>> rooms;
+        synchronized (loaded) {
+            rooms = new ArrayList<>(loaded.entrySet());
+        }
+        for (Map.Entry<Long, RoomIndex> room : rooms) {
+            persist(room.getKey(), room.getValue());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushDirty();
+    }
+
+    private RoomIndex open(Long chatRoomId) {
+        synchronized (loaded) {
+            RoomIndex index = loaded.get(chatRoomId);
+            if (index != null) return index;
+        }
+
+        RoomIndex index = load(chatRoomId);
+        catchUp(chatRoomId, index);
+
+        List<Map.Entry<Long, RoomIndex>> evicted = new ArrayList<>();
+        synchronized (loaded) {
+            RoomIndex existing = loaded.putIfAbsent(chatRoomId, index);
+            if (existing != null) return existing;
+            var it = loaded.entrySet().iterator();
+            while (loaded.size() > maxLoadedRooms && it.hasNext()) {
+                evicted.add(it.next());
+                it.remove();
+            }
+        }
+        evicted.forEach(e -> persist(e.getKey(), e.getValue()));
+        // 따라잡는 동안 저장된 메시지는 onMessage 에서 놓쳤으므로 한 번 더 확인
+        catchUp(chatRoomId, index);
+        return index;
+    }
+
+    private void catchUp(Long chatRoomId, RoomIndex index) {
+        long startedAt = System.currentTimeMillis();
+
+        // 보관 파일: 색인한 뒤에 붙은 블록 (늦게 보관된 작은 id 도 새 블록으로 들어온다)
+        int blocks = chatArchiveStore.blockCount(chatRoomId);
+        int indexedBlocks = index.archivedBlocks();
+        if (blocks > indexedBlocks) {
+            for (MessageResponseDTO archived : chatArchiveStore.read(chatRoomId, indexedBlocks)) {
+                index.add(archived.getMessageId(), archived.getContent());
+            }
+            index.setArchivedBlocks(blocks);
+        }
+
+        long after = index.maxIndexedId();
+        long caughtUpAt = index.caughtUpAt();
+        if (caughtUpAt > 0) {
+            // 지난번 따라잡기/저장 이후 늦게 commit 된, after 보다 작은 id
+            LocalDateTime since = LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(caughtUpAt - COMMIT_MARGIN_MILLIS), ZoneId.systemDefault());
+            long cursor = 0L;
+            List<ChatMessage> recent;
+            while (cursor < after && !(recent = chatMessageRepository
+                    .findTop500ByChatRoom_ChatRoomIdAndSentAtGreaterThanEqualAndMessageIdGreaterThanOrderByMessageIdAsc(
+                            chatRoomId, since, cursor)).isEmpty()) {
+                for (ChatMessage msg : recent) {
+                    index.add(msg.getMessageId(), msg.getContent());
+                }
+                cursor = recent.get(recent.size() - 1).getMessageId();
+            }
+        }
+
+        List<ChatMessage> chunk;
+        while (!(chunk = chatMessageRepository
+                .findTop500ByChatRoom_ChatRoomIdAndMessageIdGreaterThanOrderByMessageIdAsc(chatRoomId, after)).isEmpty()) {
+            for (ChatMessage msg : chunk) {
+                index.add(msg.getMessageId(), msg.getContent());
+            }
+            after = chunk.get(chunk.size() - 1).getMessageId();
+        }
+        index.setCaughtUpAt(startedAt);
+    }
+
+    private RoomIndex load(Long chatRoomId) {
+        Path path = indexPath(chatRoomId);
+        RoomIndex index = new RoomIndex();
+        if (!Files.exists(path)) return index;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                return index;
+            }
+            long maxIndexedId = in.readLong();
+            long caughtUpAt = in.readLong();
+            int archivedBlocks = in.readInt();
+            int tokenCount = in.readInt();
+            for (int t = 0; t < tokenCount; t++) {
+                String token = in.readUTF();
+                long[] ids = readPostings(in);
+                index.postings.put(token, new Postings(ids, ids.length));
+            }
+            index.maxIndexedId = maxIndexedId;
+            index.caughtUpAt = caughtUpAt;
+            index.archivedBlocks = archivedBlocks;
+            index.dirty = false;
+        } catch (IOException e) {
+            System.err.println("⚠️ 검색 색인 파일을 읽지 못해 다시 만듭니다: " + chatRoomId + " - " + e.getMessage());
+            return new RoomIndex();
+        }
+        return index;
+    }
+
+    private void persist(Long chatRoomId, RoomIndex index) {
+        // 같은 방을 동시에 저장하면 tmp 파일이 섞이고 오래된 복사본이 나중에 덮어쓸 수 있어서 방마다 한 번에 하나만 쓴다
+        synchronized (index.writeLock) {
+            Snapshot snapshot = index.snapshotIfDirty();
+            if (snapshot == null) return;
+            try {
+                Files.createDirectories(indexDir);
+                Path tmp = indexDir.resolve(chatRoomId + ".fts.tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                    out.writeInt(FILE_MAGIC);
+                    out.writeInt(FILE_VERSION);
+                    out.writeLong(snapshot.maxIndexedId());
+                    out.writeLong(snapshot.caughtUpAt());
+                    out.writeInt(snapshot.archivedBlocks());
+                    out.writeInt(snapshot.postings().size());
+                    for (Map.Entry<String, long[]> entry : snapshot.postings().entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        writePostings(out, entry.getValue(), entry.getValue().length);
+                    }
+                }
+                Files.move(tmp, indexPath(chatRoomId), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                index.markDirty();
+                System.err.println("❌ 검색 색인 저장 실패: " + chatRoomId + " - " + e.getMessage());
+            }
+        }
+    }
+
+    private Path indexPath(Long chatRoomId) {
+        return indexDir.resolve(chatRoomId + ".fts");
+    }
+
+    /**
+     * 색인용 토큰: 소문자로 바꾼 뒤 글자/숫자 묶음으로 자르고, 한글·한자·가나 묶음은 1글자와 bigram 으로 나눈다
+     */
+    static Set<String> tokenize(String text) {
+        return tokens(text, true);
+    }
+
+    /**
+     * 검색어 토큰: 한글·한자·가나 묶음은 2글자 이상이면 bigram 만, 1글자면 그 글자
+     */
+    static Set<String> queryTokens(String text) {
+        return tokens(text, false);
+    }
+
+    private static Set<String> tokens(String text, boolean withUnigrams) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) return tokens;
+        String lower = text.toLowerCase();
+        int i = 0;
+        while (i < lower.length()) {
+            int cp = lower.codePointAt(i);
+            if (!Character.isLetterOrDigit(cp)) {
+                i += Character.charCount(cp);
+                continue;
+            }
+            boolean cjk = isCjk(cp);
+            int start = i;
+            while (i < lower.length()) {
+                int c = lower.codePointAt(i);
+                if (!Character.isLetterOrDigit(c) || isCjk(c) != cjk) break;
+                i += Character.charCount(c);
+            }
+            String run = lower.substring(start, i);
+            if (!cjk || run.codePointCount(0, run.length()) == 1) {
+                tokens.add(run);
+            } else {
+                int[] cps = run.codePoints().toArray();
+                for (int k = 0; k < cps.length; k++) {
+                    if (withUnigrams) tokens.add(new String(cps, k, 1));
+                    if (k + 1 < cps.length) tokens.add(new String(cps, k, 2));
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HANGUL
+                || script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA;
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * 오름차순 id 목록: [개수 varint] 다음 앞 id 와의 차이를 varint 로
+     */
+    static void writePostings(OutputStream out, long[] ids, int size) throws IOException {
+        writeVarLong(out, size);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            writeVarLong(out, ids[i] - previous);
+            previous = ids[i];
+        }
+    }
+
+    static long[] readPostings(InputStream in) throws IOException {
+        int size = (int) readVarLong(in);
+        long[] ids = new long[size];
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            previous += readVarLong(in);
+            ids[i] = previous;
+        }
+        return ids;
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.read();
+            if (b < 0) throw new IOException("색인 파일이 잘렸습니다.");
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * 정렬된 messageId 목록 (대부분 뒤에 붙이기만 한다)
+     */
+    private static final class Postings {
+        long[] ids;
+        int size;
+
+        Postings() {
+            this(new long[4], 0);
+        }
+
+        Postings(long[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) return;
+                insertAt(-pos - 1, id);
+                return;
+            }
+            if (size == ids.length) ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+            ids[size++] = id;
+        }
+
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        private void insertAt(int pos, long id) {
+            if (size == ids.length) ids = Arrays.copyOf(ids, Math.max(4, size * 2));
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+    }
+
+    // caughtUpAt: 이 시각까지 commit 된 메시지는 (COMMIT_MARGIN_MILLIS 안쪽을 빼고) 모두 색인됐다
+    private record Snapshot(long maxIndexedId, long caughtUpAt, int archivedBlocks, Map<String, long[]> postings) {
+    }
+
+    private static final class RoomIndex {
+        final Map<String, Postings> postings = new HashMap<>();
+        final Object writeLock = new Object();
+        long maxIndexedId;
+        long caughtUpAt;
+        int archivedBlocks;
+        boolean dirty = true;
+
+        // 바뀐 게 있으면 파일에 쓸 복사본을 만들고 dirty 를 내린다 (쓰기에 실패하면 markDirty)
+        synchronized Snapshot snapshotIfDirty() {
+            if (!dirty) return null;
+            Map<String, long[]> copy = new HashMap<>(postings.size() * 2);
+            postings.forEach((token, list) -> copy.put(token, Arrays.copyOf(list.ids, list.size)));
+            dirty = false;
+            // 메모리에 올라와 있는 동안의 새 메시지는 onMessage 로 들어왔으므로 저장 시각까지 따라잡은 것으로 본다
+            return new Snapshot(maxIndexedId, System.currentTimeMillis(), archivedBlocks, copy);
+        }
+
+        synchronized void markDirty() {
+            dirty = true;
+        }
+
+        synchronized void add(long messageId, String content) {
+            for (String token : tokenize(content)) {
+                postings.computeIfAbsent(token, t -> new Postings()).add(messageId);
+            }
+            maxIndexedId = Math.max(maxIndexedId, messageId);
+            dirty = true;
+        }
+
+        synchronized long maxIndexedId() {
+            return maxIndexedId;
+        }
+
+        synchronized long caughtUpAt() {
+            return caughtUpAt;
+        }
+
+        synchronized void setCaughtUpAt(long caughtUpAt) {
+            this.caughtUpAt = Math.max(this.caughtUpAt, caughtUpAt);
+        }
+
+        synchronized int archivedBlocks() {
+            return archivedBlocks;
+        }
+
+        synchronized void setArchivedBlocks(int archivedBlocks) {
+            if (archivedBlocks != this.archivedBlocks) {
+                this.archivedBlocks = archivedBlocks;
+                dirty = true;
+            }
+        }
+
+        synchronized List<Long> search(Set<String> tokens, int limit) {
+            List<Postings> lists = new ArrayList<>(tokens.size());
+            for (String token : tokens) {
+                Postings p = postings.get(token);
+                if (p == null) return List.of();
+                lists.add(p);
+            }
+            lists.sort(Comparator.comparingInt(p -> p.size));
+
+            // 가장 짧은 목록을 최신순으로 훑으면서 나머지 목록에 모두 있는지 이진 탐색
+            Postings smallest = lists.get(0);
+            List<Long> hits = new ArrayList<>();
+            for (int i = smallest.size - 1; i >= 0 && hits.size() < limit; i--) {
+                long id = smallest.ids[i];
+                boolean all = true;
+                for (int k = 1; k < lists.size() && all; k++) {
+                    all = lists.get(k).contains(id);
+                }
+                if (all) hits.add(id);
+            }
+            return Collections.unmodifiableList(hits);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.mega.haksamate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 클라이언트가 다시 보낸 채팅(같은 clientMessageId)을 걸러내기 위한 최근 전송 기록
+ * - 최근 window-seconds 동안, 최대 max-entries 개만 기억한다 (오래된 것부터 버림)
+ * - 여기서 놓친 재전송은 DB 의 (chatroomid, client_message_id) unique 제약이 한 번 더 막는다
+ */
+@Component
+public class ChatSendDeduplicator {
+
+    public record SentMessage(Long messageId, Long seq, long recordedAt) {
+    }
+
+    private final int maxEntries;
+    private final long windowMillis;
+
+    // 넣은 순서 = 시간 순서 이므로 앞에서부터 만료시킨다
+    private final LinkedHashMap<String, SentMessage> recent = new LinkedHashMap<>();
+
+    public ChatSendDeduplicator(@Value("${haksamate.chat.dedup.max-entries:100000}") int maxEntries,
+                                @Value("${haksamate.chat.dedup.window-seconds:600}") long windowSeconds) {
+        this.maxEntries = maxEntries;
+        this.windowMillis = windowSeconds * 1000;
+    }
+
+    /**
+     * 이미 저장된 전송이면 그 결과, 처음 보는 id 면 null
+     */
+    public synchronized SentMessage find(Long chatRoomId, String clientMessageId) {
+        expire(System.currentTimeMillis());
+        return recent.get(key(chatRoomId, clientMessageId));
+    }
+
+    public synchronized void remember(Long chatRoomId, String clientMessageId, Long messageId, Long seq) {
+        long now = System.currentTimeMillis();
+        recent.put(key(chatRoomId, clientMessageId), new SentMessage(messageId, seq, now));
+        expire(now);
+    }
+
+    private void expire(long now) {
+        Iterator<Map.Entry<String, SentMessage>> it = recent.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, SentMessage> eldest = it.next();
+            if (recent.size() <= maxEntries && now - eldest.getValue().recordedAt() < windowMillis) break;
+            it.remove();
+        }
+    }
+
+    private static String key(Long chatRoomId, String clientMessageId) {
+        return chatRoomId + ":" + clientMessageId;
+    }
+}
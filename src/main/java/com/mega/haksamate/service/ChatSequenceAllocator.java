@@ -0,0 +1,65 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.repository.ChatMessageRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 채팅방별 메시지 순번(seq) 발급기
+ * - 방마다 메모리 카운터를 두고, 처음 쓸 때 DB 최대값과 보관 파일의 마지막 seq 로 초기화한다
+ * - seq 는 방 안에서 계속 증가만 한다 (저장 실패 등으로 중간 번호가 비는 것은 허용)
+ */
+@Component
+public class ChatSequenceAllocator {
+
+    private final ChatMessageRepository chatMessageRepository;
+    private final ChatArchiveStore chatArchiveStore;
+
+    private final Map<Long, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    public ChatSequenceAllocator(ChatMessageRepository chatMessageRepository, ChatArchiveStore chatArchiveStore) {
+        this.chatMessageRepository = chatMessageRepository;
+        this.chatArchiveStore = chatArchiveStore;
+    }
+
+    /**
+     * 방의 카운터 (같은 방의 발급/저장 순서를 맞출 때 lock 으로도 쓴다)
+     */
+    public AtomicLong counter(Long chatRoomId) {
+        AtomicLong counter = counters.get(chatRoomId);
+        if (counter != null) return counter;
+        // DB 조회는 map 밖에서 하고, 동시에 초기화되면 먼저 넣은 쪽을 쓴다
+        AtomicLong seeded = new AtomicLong(loadLastSeq(chatRoomId));
+        counter = counters.putIfAbsent(chatRoomId, seeded);
+        return counter != null ? counter : seeded;
+    }
+
+    public long next(Long chatRoomId) {
+        return counter(chatRoomId).incrementAndGet();
+    }
+
+    /**
+     * 다른 노드가 먼저 같은 seq 를 쓴 경우 등, 카운터를 DB 기준으로 다시 맞춘다
+     */
+    public void resync(Long chatRoomId) {
+        long last = loadLastSeq(chatRoomId);
+        counter(chatRoomId).accumulateAndGet(last, Math::max);
+    }
+
+    public long lastSeq(Long chatRoomId) {
+        return counter(chatRoomId).get();
+    }
+
+    public void evict(Long chatRoomId) {
+        counters.remove(chatRoomId);
+    }
+
+    private long loadLastSeq(Long chatRoomId) {
+        Long dbMax = chatMessageRepository.findMaxSeqByChatRoomId(chatRoomId);
+        long last = dbMax != null ? dbMax : 0L;
+        return Math.max(last, chatArchiveStore.maxSeq(chatRoomId));
+    }
+}
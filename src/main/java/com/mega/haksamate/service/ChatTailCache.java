@@ -0,0 +1,245 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.cluster.ClusterMessageBus;
+import com.mega.haksamate.dto.MessageResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 채팅방별 최근 메시지 N개 캐시 (방을 열 때 첫 화면을 DB 조회 없이 내려주기 위함)
+ * - 방마다 seq 순 ring buffer, 전체는 접근 순(LRU) 으로 관리하고 추정 메모리가 max-bytes 를 넘으면 오래된 방부터 버린다
+ * - 보낸 메시지는 캐시에 없던 방이라도 "부분" tail 로 먼저 넣어 두고, 처음 읽을 때 DB 내용과 합친다
+ *   (DB 조회와 전송이 겹쳐도 메시지가 빠지지 않도록)
+ * - 여러 노드로 실행하면 다른 노드에서 보낸 메시지를 알 수 없으므로 캐시를 쓰지 않는다
+ */
+@Component
+public class ChatTailCache {
+
+    // DTO 객체/문자열 헤더 등 메시지 하나당 대략적인 고정 비용
+    private static final int MESSAGE_OVERHEAD_BYTES = 160;
+
+    private static final class RoomTail {
+        final MessageResponseDTO[] ring;
+        int head;       // 가장 오래된 메시지 위치
+        int count;
+        long bytes;
+        boolean complete;  // DB 와 합쳐져서 "최근 N개"가 보장되는 상태
+        boolean wholeRoom; // 방 전체 메시지가 N개 미만이라 전부 들어 있음
+
+        RoomTail(int capacity) {
+            this.ring = new MessageResponseDTO[capacity];
+        }
+
+        MessageResponseDTO newest() {
+            return count == 0 ? null : ring[(head + count - 1) % ring.length];
+        }
+
+        MessageResponseDTO oldest() {
+            return count == 0 ? null : ring[head];
+        }
+
+        void append(MessageResponseDTO message) {
+            if (count == ring.length) {
+                bytes -= estimate(ring[head]);
+                ring[head] = message;
+                head = (head + 1) % ring.length;
+                wholeRoom = false;
+            } else {
+                ring[(head + count) % ring.length] = message;
+                count++;
+            }
+            bytes += estimate(message);
+        }
+
+        List<MessageResponseDTO> toList() {
+            List<MessageResponseDTO> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(ring[(head + i) % ring.length]);
+            }
+            return result;
+        }
+
+        void clear() {
+            Arrays.fill(ring, null);
+            head = 0;
+            count = 0;
+            bytes = 0;
+        }
+    }
+
+    private final int tailSize;
+    private final long maxBytes;
+    private final boolean enabled;
+
+    private final LinkedHashMap<Long, RoomTail> rooms = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ChatTailCache(MeterRegistry meterRegistry,
+                         ClusterMessageBus clusterMessageBus,
+                         @Value("${haksamate.chat.tail.size:50}") int tailSize,
+                         @Value("${haksamate.chat.tail.max-bytes:33554432}") long maxBytes) {
+        this.tailSize = tailSize;
+        this.maxBytes = maxBytes;
+        this.enabled = !clusterMessageBus.isDistributed();
+        this.hits = Counter.builder("chat.tail.hits").description("최근 메시지 캐시 적중").register(meterRegistry);
+        this.misses = Counter.builder("chat.tail.misses").description("최근 메시지 캐시 미스 (DB 조회)").register(meterRegistry);
+        Gauge.builder("chat.tail.bytes", this, cache -> cache.currentBytes())
+                .baseUnit("bytes")
+                .description("최근 메시지 캐시의 추정 메모리 사용량")
+                .register(meterRegistry);
+        Gauge.builder("chat.tail.rooms", this, cache -> cache.roomCount())
+                .description("최근 메시지 캐시에 들어 있는 채팅방 수")
+                .register(meterRegistry);
+    }
+
+    public int getTailSize() {
+        return tailSize;
+    }
+
+    /**
+     * 새로 저장된 메시지 추가 (seq 가 마지막보다 작으면 순서를 맞춰 다시 만든다)
+     */
+    public synchronized void onMessage(Long chatRoomId, MessageResponseDTO message) {
+        if (!enabled) return;
+        RoomTail tail = rooms.get(chatRoomId);
+        if (tail == null) {
+            tail = new RoomTail(tailSize);
+            rooms.put(chatRoomId, tail);
+        }
+        long before = tail.bytes;
+        MessageResponseDTO newest = tail.newest();
+        if (newest == null || seqOf(newest) < seqOf(message)) {
+            tail.append(message);
+        } else {
+            rebuild(tail, merge(tail.toList(), List.of(message)));
+        }
+        totalBytes += tail.bytes - before;
+        evictIfNeeded();
+    }
+
+    /**
+     * 최근 N개 (오래된 순), 캐시에 완전한 tail 이 없으면 null
+     */
+    public synchronized List<MessageResponseDTO> getRecent(Long chatRoomId) {
+        if (!enabled) return null;
+        RoomTail tail = rooms.get(chatRoomId);
+        if (tail == null || !tail.complete) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return tail.toList();
+    }
+
+    /**
+     * afterSeq 이후 메시지를 캐시만으로 돌려줄 수 있으면 그 목록, 아니면 null
+     */
+    public synchronized List<MessageResponseDTO> getAfter(Long chatRoomId, long afterSeq) {
+        if (!enabled) return null;
+        RoomTail tail = rooms.get(chatRoomId);
+        if (tail == null || !tail.complete) return null;
+        MessageResponseDTO oldest = tail.oldest();
+        // ring 에 든 것은 방의 마지막 N개이므로, 가장 오래된 seq 가 afterSeq 이하면 그 뒤는 전부 들어 있다
+        if (!tail.wholeRoom && (oldest == null || seqOf(oldest) > afterSeq)) return null;
+
+        hits.increment();
+        List<MessageResponseDTO> result = new ArrayList<>();
+        for (MessageResponseDTO message : tail.toList()) {
+            if (seqOf(message) > afterSeq) result.add(message);
+        }
+        return result;
+    }
+
+    /**
+     * DB(또는 보관 파일)에서 읽은 최근 메시지로 tail 을 채운다. 그 사이에 들어온 메시지와 합쳐진다
+     * @param wholeRoom 읽은 것이 방 전체인지 (N개 미만)
+     */
+    public synchronized List<MessageResponseDTO> fill(Long chatRoomId, List<MessageResponseDTO> loaded, boolean wholeRoom) {
+        if (!enabled) return loaded;
+        RoomTail tail = rooms.get(chatRoomId);
+        if (tail == null) {
+            tail = new RoomTail(tailSize);
+            rooms.put(chatRoomId, tail);
+        }
+        long before = tail.bytes;
+        List<MessageResponseDTO> merged = merge(tail.toList(), loaded);
+        rebuild(tail, merged);
+        tail.complete = true;
+        tail.wholeRoom = wholeRoom && merged.size() <= tailSize;
+        totalBytes += tail.bytes - before;
+        List<MessageResponseDTO> result = tail.toList();
+        evictIfNeeded();
+        return result;
+    }
+
+    public synchronized void evict(Long chatRoomId) {
+        RoomTail tail = rooms.remove(chatRoomId);
+        if (tail != null) totalBytes -= tail.bytes;
+    }
+
+    private void rebuild(RoomTail tail, List<MessageResponseDTO> sorted) {
+        tail.clear();
+        int from = Math.max(0, sorted.size() - tailSize);
+        for (int i = from; i < sorted.size(); i++) {
+            tail.append(sorted.get(i));
+        }
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<Long, RoomTail>> it = rooms.entrySet().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            RoomTail eldest = it.next().getValue();
+            totalBytes -= eldest.bytes;
+            it.remove();
+        }
+    }
+
+    private synchronized long currentBytes() {
+        return totalBytes;
+    }
+
+    private synchronized int roomCount() {
+        return rooms.size();
+    }
+
+    // seq 기준으로 합치고 중복 제거 (seq 가 없는 오래된 메시지는 messageId 순서로 앞쪽에 둔다)
+    private static List<MessageResponseDTO> merge(List<MessageResponseDTO> a, List<MessageResponseDTO> b) {
+        TreeMap<Long, MessageResponseDTO> bySeq = new TreeMap<>();
+        List<MessageResponseDTO> withoutSeq = new ArrayList<>();
+        for (List<MessageResponseDTO> list : List.of(a, b)) {
+            for (MessageResponseDTO message : list) {
+                if (message.getSeq() == null) withoutSeq.add(message);
+                else bySeq.putIfAbsent(message.getSeq(), message);
+            }
+        }
+        withoutSeq.sort(Comparator.comparing(MessageResponseDTO::getMessageId));
+        List<MessageResponseDTO> result = new ArrayList<>(withoutSeq);
+        result.addAll(bySeq.values());
+        return result;
+    }
+
+    private static long seqOf(MessageResponseDTO message) {
+        return message.getSeq() != null ? message.getSeq() : 0L;
+    }
+
+    private static long estimate(MessageResponseDTO message) {
+        if (message == null) return 0;
+        int contentLength = message.getContent() != null ? message.getContent().length() : 0;
+        return MESSAGE_OVERHEAD_BYTES + 2L * contentLength;
+    }
+}
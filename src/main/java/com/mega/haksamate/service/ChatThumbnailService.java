@@ -0,0 +1,114 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.cluster.ClusterMessagingTemplate;
+import com.mega.haksamate.repository.ChatAttachmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 채팅 첨부 이미지 미리보기 생성 (thumbnailExecutor 에서 비동기로 실행)
+ * - 큰 이미지는 subsampling 으로 줄여서 읽으므로 원본 전체를 메모리에 풀지 않는다
+ * - 완료되면 /topic/chat/{roomId}/attachment 로 미리보기 경로를 알린다
+ */
+@Service
+public class ChatThumbnailService {
+
+    private final ChatAttachmentRepository chatAttachmentRepository;
+    private final ClusterMessagingTemplate messagingTemplate;
+
+    @Value("${haksamate.chat.attachment.thumbnail-size:320}")
+    private int thumbnailSize;
+
+    // 이보다 픽셀 수가 큰 이미지는 미리보기를 만들지 않는다 (압축 폭탄 방지)
+    @Value("${haksamate.chat.attachment.max-pixels:50000000}")
+    private long maxPixels;
+
+    public ChatThumbnailService(ChatAttachmentRepository chatAttachmentRepository,
+                                ClusterMessagingTemplate messagingTemplate) {
+        this.chatAttachmentRepository = chatAttachmentRepository;
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    @Async("thumbnailExecutor")
+    public void generate(Long attachmentId, Long chatRoomId, Path source) {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                // webp 등 ImageIO 가 읽지 못하는 형식은 원본만 사용
+                System.out.println("🖼️ 미리보기 생략(지원하지 않는 형식): " + attachmentId);
+                return;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    System.err.println("⚠️ 미리보기 생략(이미지가 너무 큼): " + attachmentId + " " + width + "x" + height);
+                    return;
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.max(width, height) / (thumbnailSize * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage image = reader.read(0, param);
+
+                BufferedImage thumbnail = resize(image, thumbnailSize);
+                boolean alpha = thumbnail.getColorModel().hasAlpha();
+                String format = alpha ? "png" : "jpg";
+                Path target = source.resolveSibling(thumbName(source, format));
+                ImageIO.write(thumbnail, format, target.toFile());
+
+                String thumbnailPath = "/uploads/chat/" + target.getFileName();
+                chatAttachmentRepository.updateThumbnail(attachmentId, thumbnailPath, width, height);
+                messagingTemplate.convertAndSend("/topic/chat/" + chatRoomId + "/attachment", Map.of(
+                        "attachmentId", attachmentId,
+                        "thumbnailUrl", thumbnailPath,
+                        "width", width,
+                        "height", height
+                ));
+                System.out.println("🖼️ 미리보기 생성 완료: " + attachmentId + " (" + width + "x" + height + ")");
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ 미리보기 생성 실패: " + attachmentId + " - " + e.getMessage());
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage image, int maxSize) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage result = new BufferedImage(width, height, type);
+        Graphics2D g = result.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return result;
+    }
+
+    private static String thumbName(Path source, String format) {
+        String name = source.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return "thumb_" + (dot > 0 ? name.substring(0, dot) : name) + "." + format;
+    }
+}
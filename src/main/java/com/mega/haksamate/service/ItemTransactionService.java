@@ -10,6 +10,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -34,6 +35,7 @@ public class ItemTransactionService {
                 .profile(buyer) // 구매자
                 .distinctSeller(seller.getId()) // 판매자 UUID
                 .status(ItemTransaction.TransactionStatus.대기중)  // enum 사용
+                .createdAt(LocalDateTime.now())
                 .build();
 
         return itemTransactionRepository.save(transaction);
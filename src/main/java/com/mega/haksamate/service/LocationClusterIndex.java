@@ -0,0 +1,167 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.LocationClusterDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 지도 마커 클러스터용 zoom 단계별 격자 (위치 공개 사용자만)
+ * - zoom z 의 칸 크기는 360 / 2^z / cells-per-tile 도 (타일 하나를 cells-per-tile x cells-per-tile 칸으로 나눔)
+ * - min-zoom ~ max-zoom 단계마다 칸별 (사용자 수, 위도 합, 경도 합) 을 위치가 바뀔 때마다 더하고 빼서 유지한다
+ * - 조회는 해당 zoom 단계에서 화면 범위에 걸친 칸만 보고, 칸마다 사용자 수와 중심(평균 위치)을 돌려준다
+ * - 여러 노드에 나눠 맡긴 경우 각 노드에는 자기가 맡은 사용자만 더해지므로, 칸별 합계(CellSum)를 모아 merge 로 합친다
+ */
+@Component
+public class LocationClusterIndex {
+
+    /**
+     * 칸 하나의 합계 (노드 사이 조회 응답용, 같은 key 끼리 더하면 된다)
+     */
+    public record CellSum(long key, int count, double latitudeSum, double longitudeSum) {
+    }
+
+    private static final class Cell {
+        int count;
+        double latitudeSum;
+        double longitudeSum;
+
+        synchronized void add(int delta, double latitude, double longitude) {
+            count += delta;
+            latitudeSum += delta * latitude;
+            longitudeSum += delta * longitude;
+        }
+
+        synchronized CellSum toSum(long key) {
+            return count > 0 ? new CellSum(key, count, latitudeSum, longitudeSum) : null;
+        }
+    }
+
+    private static final class Level {
+        final double cellDegrees;
+        final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+
+        Level(double cellDegrees) {
+            this.cellDegrees = cellDegrees;
+        }
+
+        int latIndex(double latitude) {
+            return (int) Math.floor((latitude + 90.0) / cellDegrees);
+        }
+
+        int lonIndex(double longitude) {
+            return (int) Math.floor((longitude + 180.0) / cellDegrees);
+        }
+    }
+
+    private final int minZoom;
+    private final int maxZoom;
+    private final Level[] levels;
+
+    public LocationClusterIndex(@Value("${haksamate.location.cluster.min-zoom:10}") int minZoom,
+                                @Value("${haksamate.location.cluster.max-zoom:18}") int maxZoom,
+                                @Value("${haksamate.location.cluster.cells-per-tile:4}") int cellsPerTile) {
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+        this.levels = new Level[maxZoom - minZoom + 1];
+        for (int zoom = minZoom; zoom <= maxZoom; zoom++) {
+            levels[zoom - minZoom] = new Level(360.0 / (1L << zoom) / cellsPerTile);
+        }
+    }
+
+    public void add(double latitude, double longitude) {
+        apply(1, latitude, longitude);
+    }
+
+    public void remove(double latitude, double longitude) {
+        apply(-1, latitude, longitude);
+    }
+
+    /**
+     * 화면 범위(남서~북동) 안의 클러스터. zoom 은 min-zoom ~ max-zoom 으로 맞춘다
+     */
+    public List<LocationClusterDTO> query(double south, double west, double north, double east, int zoom) {
+        return merge(queryCells(south, west, north, east, zoom));
+    }
+
+    /**
+     * 화면 범위 안에서 이 노드가 가진 칸별 합계
+     */
+    public List<CellSum> queryCells(double south, double west, double north, double east, int zoom) {
+        Level level = levels[Math.max(minZoom, Math.min(maxZoom, zoom)) - minZoom];
+        int fromLat = level.latIndex(Math.max(-90.0, south));
+        int toLat = level.latIndex(Math.min(90.0, north));
+        int fromLon = level.lonIndex(Math.max(-180.0, west));
+        int toLon = level.lonIndex(Math.min(180.0, east));
+
+        List<CellSum> result = new ArrayList<>();
+        long viewportCells = (long) (toLat - fromLat + 1) * (toLon - fromLon + 1);
+        if (viewportCells > level.cells.size()) {
+            // 화면이 넓으면 칸을 하나씩 찾는 것보다 사용 중인 칸을 훑는 쪽이 싸다
+            level.cells.forEach((key, cell) -> {
+                int latIndex = (int) (key >> 32);
+                int lonIndex = (int) (long) key;
+                if (latIndex >= fromLat && latIndex <= toLat && lonIndex >= fromLon && lonIndex <= toLon) {
+                    addSum(key, cell, result);
+                }
+            });
+            return result;
+        }
+        for (int latIndex = fromLat; latIndex <= toLat; latIndex++) {
+            for (int lonIndex = fromLon; lonIndex <= toLon; lonIndex++) {
+                long key = cellKey(latIndex, lonIndex);
+                Cell cell = level.cells.get(key);
+                if (cell != null) {
+                    addSum(key, cell, result);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void apply(int delta, double latitude, double longitude) {
+        for (Level level : levels) {
+            // 칸 생성/제거와 합계 변경을 compute 안에서 같이 해서, 비는 칸을 지우는 중에 더해지는 일이 없게 한다
+            level.cells.compute(cellKey(level.latIndex(latitude), level.lonIndex(longitude)), (key, cell) -> {
+                Cell result = cell != null ? cell : new Cell();
+                result.add(delta, latitude, longitude);
+                return result.count > 0 ? result : null;
+            });
+        }
+    }
+
+    /**
+     * 여러 노드의 칸별 합계를 칸마다 더해서 클러스터(사용자 수, 평균 위치)로
+     */
+    public static List<LocationClusterDTO> merge(List<CellSum> sums) {
+        Map<Long, double[]> merged = new LinkedHashMap<>();
+        for (CellSum sum : sums) {
+            double[] total = merged.computeIfAbsent(sum.key(), key -> new double[3]);
+            total[0] += sum.count();
+            total[1] += sum.latitudeSum();
+            total[2] += sum.longitudeSum();
+        }
+        List<LocationClusterDTO> result = new ArrayList<>(merged.size());
+        for (double[] total : merged.values()) {
+            int count = (int) total[0];
+            result.add(new LocationClusterDTO(total[1] / count, total[2] / count, count));
+        }
+        return result;
+    }
+
+    private static void addSum(long key, Cell cell, List<CellSum> result) {
+        CellSum sum = cell.toSum(key);
+        if (sum != null) {
+            result.add(sum);
+        }
+    }
+
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xFFFFFFFFL);
+    }
+}
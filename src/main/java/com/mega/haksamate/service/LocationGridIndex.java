@@ -0,0 +1,194 @@
+package com.mega.haksamate.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 위치 공유 중인 사용자의 격자(grid) 색인
+ * - 위도/경도를 cell-degrees 단위 칸으로 나누고, 칸마다 사용자 집합을 둔다
+ * - 반경 조회는 반경이 걸치는 주변 칸만 보고, 등장방형(equirectangular) 근사로 먼저 거른 뒤 haversine 으로 확정한다
+ * - 위치가 바뀌어도 같은 칸이면 색인은 그대로 (칸이 바뀔 때만 옮긴다)
+ */
+@Component
+public class LocationGridIndex {
+
+    private static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    private final double cellDegrees;
+    private final int lonCellCount;
+
+    private final Map<Long, Set<UUID>> cells = new ConcurrentHashMap<>();
+    private final Map<UUID, Long> userCells = new ConcurrentHashMap<>();
+
+    public LocationGridIndex(@Value("${haksamate.location.grid.cell-degrees:0.01}") double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+        this.lonCellCount = (int) Math.ceil(360.0 / cellDegrees);
+    }
+
+    public void update(UUID userId, double latitude, double longitude) {
+        long key = cellKey(latIndex(latitude), lonIndex(longitude));
+        Long previous = userCells.put(userId, key);
+        if (previous != null && previous == key) return;
+
+        // 새 칸에 먼저 넣고 이전 칸에서 빼서, 옮기는 중에도 조회에서 빠지지 않게 한다
+        cells.compute(key, (k, users) -> {
+            Set<UUID> result = users != null ? users : ConcurrentHashMap.<UUID>newKeySet();
+            result.add(userId);
+            return result;
+        });
+        if (previous != null) {
+            removeFromCell(previous, userId);
+        }
+    }
+
+    public void remove(UUID userId) {
+        Long previous = userCells.remove(userId);
+        if (previous != null) {
+            removeFromCell(previous, userId);
+        }
+    }
+
+    public int size() {
+        return userCells.size();
+    }
+
+    /**
+     * (latitude, longitude) 반경 radiusKm 에 걸치는 칸들의 사용자를 넘긴다 (거리 확인은 호출자가 withinRadius 로)
+     */
+    public void forEachCandidate(double latitude, double longitude, double radiusKm, Consumer<UUID> consumer) {
+        forEachCellAround(latitude, longitude, radiusKm, (latIndex, lonIndex) -> {
+            Set<UUID> cell = cells.get(cellKey(latIndex, lonIndex));
+            if (cell != null) {
+                cell.forEach(consumer);
+            }
+        });
+    }
+
+    /**
+     * 칸 이름(cellNameOf)으로 그 칸의 사용자를 넘긴다 (다른 노드가 맡긴 칸만 조회할 때)
+     */
+    public void forEachInCell(String cellName, Consumer<UUID> consumer) {
+        int separator = cellName.indexOf('_');
+        int latIndex = Integer.parseInt(cellName.substring(0, separator));
+        int lonIndex = Integer.parseInt(cellName.substring(separator + 1));
+        Set<UUID> cell = cells.get(cellKey(latIndex, lonIndex));
+        if (cell != null) {
+            cell.forEach(consumer);
+        }
+    }
+
+    /**
+     * 위치 topic 이름에 쓰는 칸 이름 ("{위도칸}_{경도칸}")
+     */
+    public String cellNameOf(double latitude, double longitude) {
+        return cellName(latIndex(latitude), lonIndex(longitude));
+    }
+
+    /**
+     * (latitude, longitude) 반경 radiusKm 에 걸치는 칸 이름 목록 (자기 칸 포함)
+     */
+    public List<String> cellNamesAround(double latitude, double longitude, double radiusKm) {
+        List<String> names = new ArrayList<>();
+        forEachCellAround(latitude, longitude, radiusKm, (latIndex, lonIndex) -> names.add(cellName(latIndex, lonIndex)));
+        return names;
+    }
+
+    /**
+     * 화면 범위(남서~북동)에 걸친 칸을 stride x stride 칸 묶음마다 하나씩 (묶음 첫 칸의 이름)
+     * 묶음이 limit 개보다 많으면 null
+     */
+    public List<String> blockNamesIn(double south, double west, double north, double east, int stride, int limit) {
+        int fromLat = Math.floorDiv(latIndex(south), stride);
+        int toLat = Math.floorDiv(latIndex(north), stride);
+        // 경도 칸 번호는 한 바퀴에서 다시 0 이 되므로 범위는 돌리기 전 값으로 잡는다
+        int fromLon = Math.floorDiv((int) Math.floor(west / cellDegrees), stride);
+        int toLon = Math.floorDiv((int) Math.floor(east / cellDegrees), stride);
+        if ((long) (toLat - fromLat + 1) * (toLon - fromLon + 1) > limit) return null;
+
+        List<String> names = new ArrayList<>();
+        for (int lat = fromLat; lat <= toLat; lat++) {
+            for (int lon = fromLon; lon <= toLon; lon++) {
+                names.add(cellName(lat * stride, Math.floorMod(lon * stride, lonCellCount)));
+            }
+        }
+        return names;
+    }
+
+    private interface CellVisitor {
+        void visit(int latIndex, int lonIndex);
+    }
+
+    private void forEachCellAround(double latitude, double longitude, double radiusKm, CellVisitor visitor) {
+        int latCenter = latIndex(latitude);
+        int lonCenter = lonIndex(longitude);
+        int latSpan = (int) Math.ceil(radiusKm / (cellDegrees * KM_PER_DEGREE));
+        double cosLat = Math.max(Math.cos(Math.toRadians(Math.min(89.0, Math.abs(latitude) + latSpan * cellDegrees))), 1e-6);
+        int lonSpan = Math.min(lonCellCount / 2, (int) Math.ceil(radiusKm / (cellDegrees * KM_PER_DEGREE * cosLat)));
+
+        for (int dLat = -latSpan; dLat <= latSpan; dLat++) {
+            for (int dLon = -lonSpan; dLon <= lonSpan; dLon++) {
+                visitor.visit(latCenter + dLat, Math.floorMod(lonCenter + dLon, lonCellCount));
+            }
+        }
+    }
+
+    /**
+     * 두 지점이 radiusKm 안인지. 근사 거리로 확실히 먼 것은 삼각함수 계산 없이 버린다
+     */
+    public static boolean withinRadius(double lat1, double lon1, double lat2, double lon2, double radiusKm) {
+        double dLat = lat2 - lat1;
+        double dLon = lon2 - lon1;
+        if (dLon > 180) dLon -= 360;
+        if (dLon < -180) dLon += 360;
+        // 등장방형 근사: 짧은 거리에서는 오차가 작으므로 10% 여유를 두고 거른다
+        double x = dLon * Math.cos(Math.toRadians((lat1 + lat2) / 2)) * KM_PER_DEGREE;
+        double y = dLat * KM_PER_DEGREE;
+        double limit = radiusKm * 1.1;
+        if (x * x + y * y > limit * limit) return false;
+        return haversineKm(lat1, lon1, lat2, lon2) <= radiusKm;
+    }
+
+    // 두 지점 간 거리 계산 (km)
+    public static double haversineKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+
+        return EARTH_RADIUS_KM * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private void removeFromCell(long key, UUID userId) {
+        cells.computeIfPresent(key, (k, users) -> {
+            users.remove(userId);
+            return users.isEmpty() ? null : users;
+        });
+    }
+
+    private int latIndex(double latitude) {
+        return (int) Math.floor(latitude / cellDegrees);
+    }
+
+    private int lonIndex(double longitude) {
+        return Math.floorMod((int) Math.floor(longitude / cellDegrees), lonCellCount);
+    }
+
+    private static String cellName(int latIndex, int lonIndex) {
+        return latIndex + "_" + lonIndex;
+    }
+
+    private static long cellKey(int latIndex, int lonIndex) {
+        return ((long) latIndex << 32) | (lonIndex & 0xFFFFFFFFL);
+    }
+}
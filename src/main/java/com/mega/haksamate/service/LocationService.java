@@ -1,104 +1,273 @@
 package com.mega.haksamate.service;
 
+import com.mega.haksamate.cluster.ClusterMessagingTemplate;
+import com.mega.haksamate.dto.LocationBatchDTO;
+import com.mega.haksamate.dto.LocationClusterDTO;
 import com.mega.haksamate.dto.LocationShareDTO;
+import com.mega.haksamate.dto.LocationSnapshotDTO;
 import com.mega.haksamate.dto.LocationUpdateRequestDTO;
 import com.mega.haksamate.entity.Profile;
 import com.mega.haksamate.repository.ProfileRepository;
+import com.mega.haksamate.websocket.LocationSubscriptionRouter;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class LocationService {
 
-    private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterMessagingTemplate messagingTemplate;
     private final ProfileRepository profileRepository;
+    private final PresenceService presenceService;
+    private final LocationGridIndex locationGridIndex;
+    private final LocationSubscriptionRouter locationSubscriptionRouter;
+    // 현재 위치/마지막 브로드캐스트 위치/마지막 수신 시각은 사용자별 slot 에 저장 (DTO 는 보낼 때만 만든다)
+    private final LocationStore locationStore;
+    private final LocationTrailService locationTrailService;
+    private final LocationClusterIndex locationClusterIndex;
+    private final LocationShardRouter locationShardRouter;
 
-    // 메모리에 현재 위치 정보 저장 (실제로는 Redis 사용 권장)
-    private final Map<UUID, LocationShareDTO> activeLocations = new ConcurrentHashMap<>();
+    private static final double NEARBY_RADIUS_KM = 1.0;
 
+    // 아직 반영하지 않은 최신 위치 (사용자별 하나, latest-wins)
+    private final Map<UUID, LocationUpdateRequestDTO> pendingUpdates = new ConcurrentHashMap<>();
+    // 위치 공유에 참여한 세션 -> 사용자, 사용자 -> 마지막으로 참여한 세션 (연결이 끊기면 위치 제거)
+    private final Map<String, UUID> sessionUsers = new ConcurrentHashMap<>();
+    private final Map<UUID, String> userSessions = new ConcurrentHashMap<>();
+    // 이 노드에 세션이 붙어 위치를 보내는 사용자와, 그 위치를 맡고 있는 노드 (단일 노드 모드면 항상 자기 자신)
+    private final Set<UUID> sharingUsers = ConcurrentHashMap.newKeySet();
+    private final Map<UUID, String> ownerNodes = new ConcurrentHashMap<>();
+    // tick/조회마다 읽기용 객체를 새로 만들지 않도록 스레드별로 재사용
+    private static final ThreadLocal<LocationStore.Reading> READING = ThreadLocal.withInitial(LocationStore.Reading::new);
+    private static final ThreadLocal<LocationStore.Reading> REPLACED = ThreadLocal.withInitial(LocationStore.Reading::new);
+
+    // idle-ttl-ms 동안 위치 프레임이 없으면 정리
+    @Value("${haksamate.location.idle-ttl-ms:120000}")
+    private long idleTtlMillis;
+
+    @Value("${haksamate.location.min-move-meters:5}")
+    private double minMoveMeters;
+
+    // snapshot 프레임 하나에 담을 최대 사용자 수
+    @Value("${haksamate.location.snapshot-page-size:500}")
+    private int snapshotPageSize;
+
+    @PostConstruct
+    public void registerShardHandlers() {
+        messagingTemplate.registerHandler(LocationShardRouter.UPDATE, (destination, payload) -> {
+            LocationShardRouter.OwnedUpdate update = locationShardRouter.read(payload, LocationShardRouter.OwnedUpdate.class);
+            if (update != null) applyOwned(update);
+        });
+        messagingTemplate.registerHandler(LocationShardRouter.REMOVE, (destination, payload) -> {
+            LocationShardRouter.OwnedRemove remove = locationShardRouter.read(payload, LocationShardRouter.OwnedRemove.class);
+            if (remove == null) return;
+            LocationShareDTO removedLocation = removeOwned(remove.userId());
+            if (removedLocation != null && remove.announce()) {
+                messagingTemplate.convertAndSend(cellDestination(removedLocation), removedLocation);
+            }
+        });
+        messagingTemplate.registerHandler(LocationShardRouter.NEARBY_REQUEST, (destination, payload) -> {
+            LocationShardRouter.NearbyRequest request = locationShardRouter.read(payload, LocationShardRouter.NearbyRequest.class);
+            if (request == null) return;
+            List<LocationShareDTO> users = new ArrayList<>();
+            for (String cellName : request.cells()) {
+                collectNearby(cellName, request.userId(), request.latitude(), request.longitude(), request.radiusKm(), users);
+            }
+            locationShardRouter.replyNearby(request, users);
+        });
+        messagingTemplate.registerHandler(LocationShardRouter.CLUSTER_REQUEST, (destination, payload) -> {
+            LocationShardRouter.ClusterRequest request = locationShardRouter.read(payload, LocationShardRouter.ClusterRequest.class);
+            if (request == null) return;
+            locationShardRouter.replyClusters(request, locationClusterIndex.queryCells(
+                    request.south(), request.west(), request.north(), request.east(), request.zoom()));
+        });
+    }
+
+    /**
+     * 위치 업데이트는 사용자별 최신값 칸에만 넣고 바로 반환한다 (중간 위치는 다음 값으로 덮어쓴다)
+     * 실제 저장/브로드캐스트는 publish-interval-ms 마다 flushPendingUpdates 에서 한 번에 처리
+     */
     public void updateUserLocation(LocationUpdateRequestDTO request) {
+        if (request.getUserId() == null) return;
+        sharingUsers.add(request.getUserId());
+        pendingUpdates.put(request.getUserId(), request);
+    }
+
+    @Scheduled(fixedRateString = "${haksamate.location.publish-interval-ms:500}")
+    public void flushPendingUpdates() {
+        if (pendingUpdates.isEmpty()) return;
+        for (UUID userId : pendingUpdates.keySet()) {
+            LocationUpdateRequestDTO request = pendingUpdates.remove(userId);
+            if (request != null) {
+                applyUpdate(request);
+            }
+        }
+    }
+
+    /**
+     * 세션이 붙은 노드에서 하는 부분: 경로 기록, 구독 칸 갱신, 담당 노드로 전달
+     */
+    private void applyUpdate(LocationUpdateRequestDTO request) {
+        UUID userId = request.getUserId();
         try {
-            System.out.println("📍 위치 업데이트 처리 시작: " + request.getUserId());
-            System.out.println("📍 요청 데이터 상세: 위도=" + request.getLatitude() +
-                    ", 경도=" + request.getLongitude() + ", 가시성=" + request.isVisible());
+            // tick 을 기다리는 동안 위치 공유를 끝냈거나 연결이 끊긴 사용자
+            if (!sharingUsers.contains(userId)) return;
 
-            Profile user = profileRepository.findById(request.getUserId())
-                    .orElse(null);
+            double latitude = request.getLatitude();
+            double longitude = request.getLongitude();
+            long now = System.currentTimeMillis();
+            locationTrailService.record(userId, now, latitude, longitude);
+            // 이 사용자가 받아볼 주변 칸 구독 갱신 (칸이 바뀐 경우에만 실제로 다시 등록됨)
+            locationSubscriptionRouter.onUserMoved(userId, latitude, longitude);
+
+            // 다른 shard 로 넘어갔으면 이전 담당 노드에서는 알리지 않고 지운다
+            String owner = locationShardRouter.ownerOf(latitude, longitude);
+            String previousOwner = ownerNodes.put(userId, owner);
+            if (previousOwner != null && !previousOwner.equals(owner)) {
+                dispatchRemove(previousOwner, userId, false);
+            }
+            LocationShardRouter.OwnedUpdate update = new LocationShardRouter.OwnedUpdate(userId, latitude, longitude, now,
+                    presenceService.getStatus(userId), request.isVisible());
+            if (locationShardRouter.isLocal(owner)) {
+                applyOwned(update);
+            } else {
+                locationShardRouter.send(owner, LocationShardRouter.UPDATE, update);
+            }
 
-            if (user == null) {
-                System.err.println("❌ 사용자를 찾을 수 없습니다: " + request.getUserId());
+            // 반영하는 사이에 위치 공유를 끝냈다면 방금 반영한 위치도 지운다
+            if (!sharingUsers.contains(userId)) {
+                dispatchRemove(owner, userId, true);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ 위치 업데이트 실패: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 위치를 맡은 노드에서 하는 부분: 저장, 근처 조회 색인/클러스터 갱신, 칸 topic 브로드캐스트
+     */
+    private void applyOwned(LocationShardRouter.OwnedUpdate update) {
+        UUID userId = update.userId();
+        try {
+            locationStore.reserve(userId, System.currentTimeMillis());
+            LocationStore.Reading previous = READING.get();
+            if (!locationStore.read(userId, previous)) return;
+
+            String userName = previous.name != null ? previous.name : loadUserName(userId);
+            if (userName == null) {
+                System.err.println("❌ 사용자를 찾을 수 없습니다: " + userId);
+                locationStore.remove(userId);
                 return;
             }
 
-            LocationShareDTO locationData = new LocationShareDTO(
-                    request.getUserId(),
-                    user.getName(),
-                    request.getLatitude(),
-                    request.getLongitude(),
-                    LocalDateTime.now(),
-                    "online",
-                    request.isVisible()
-            );
+            double latitude = update.latitude();
+            double longitude = update.longitude();
+            String status = update.status();
+            // 위치 공개 설정이고 충분히 움직였을 때만 브로드캐스트
+            boolean broadcast = update.visible() && movedEnough(previous, latitude, longitude, status);
 
             // 위치 정보 저장
-            activeLocations.put(request.getUserId(), locationData);
-            System.out.println("📍 위치 정보 저장 완료: " + user.getName() + " - " +
-                    request.getLatitude() + ", " + request.getLongitude() + ", 가시성: " + request.isVisible());
-
-            // 위치 공개 설정인 경우에만 브로드캐스트
-            if (request.isVisible()) {
-                messagingTemplate.convertAndSend("/topic/location/nearby", locationData);
-                System.out.println("📡 위치 정보 브로드캐스트 완료: " + user.getName());
+            LocationStore.Reading replaced = REPLACED.get();
+            if (!locationStore.write(userId, userName, latitude, longitude, update.timestamp(), status, update.visible(), broadcast, replaced)) {
+                return;
+            }
+            // 지도 클러스터: 이전에 공개였던 위치를 빼고 새 위치를 더한다
+            if (replaced.positioned && replaced.visible) {
+                locationClusterIndex.remove(replaced.latitude, replaced.longitude);
+            }
+            if (update.visible()) {
+                locationClusterIndex.add(latitude, longitude);
+            }
+            // 공개한 사용자만 근처 조회 대상 (같은 칸 안에서 움직이면 색인은 그대로)
+            if (update.visible()) {
+                locationGridIndex.update(userId, latitude, longitude);
             } else {
-                System.out.println("🔒 위치 비공개 설정으로 브로드캐스트 생략: " + user.getName());
+                locationGridIndex.remove(userId);
+            }
+
+            // 현재 칸을 구독 중인(=근처) 사용자에게만 브로드캐스트
+            if (broadcast) {
+                LocationShareDTO locationData = new LocationShareDTO(userId, userName, latitude, longitude,
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(update.timestamp()), ZoneId.systemDefault()), status, true);
+                messagingTemplate.convertAndSend(cellDestination(latitude, longitude), locationData);
             }
         } catch (Exception e) {
-            System.err.println("❌ 위치 업데이트 실패: " + e.getMessage());
+            System.err.println("❌ 위치 반영 실패: " + e.getMessage());
             e.printStackTrace();
         }
     }
 
-    public void joinLocationSharing(LocationUpdateRequestDTO request) {
+    // 마지막으로 보낸 위치에서 min-move-meters 이상 움직였거나 상태가 바뀐 경우만 다시 보낸다
+    private boolean movedEnough(LocationStore.Reading previous, double latitude, double longitude, String status) {
+        if (!previous.broadcast || !Objects.equals(previous.broadcastStatus, status)) return true;
+        double movedKm = LocationGridIndex.haversineKm(previous.broadcastLatitude, previous.broadcastLongitude,
+                latitude, longitude);
+        return movedKm * 1000 >= minMoveMeters;
+    }
+
+    // 이름은 slot 에 한 번 저장해 두고 위치 업데이트마다 프로필을 조회하지 않는다
+    private String loadUserName(UUID userId) {
+        Profile user = profileRepository.findById(userId).orElse(null);
+        return user != null ? user.getName() : null;
+    }
+
+    public void joinLocationSharing(LocationUpdateRequestDTO request, String sessionId) {
         try {
             System.out.println("📍 위치 공유 참여 처리 시작: " + request.getUserId());
             System.out.println("📍 참여 요청 데이터: 위도=" + request.getLatitude() +
                     ", 경도=" + request.getLongitude() + ", 가시성=" + request.isVisible());
 
-            // 현재 위치 업데이트
-            updateUserLocation(request);
+            if (sessionId != null) {
+                String previous = userSessions.put(request.getUserId(), sessionId);
+                if (previous != null && !previous.equals(sessionId)) sessionUsers.remove(previous);
+                sessionUsers.put(sessionId, request.getUserId());
+            }
+            sharingUsers.add(request.getUserId());
 
-            // 현재 활성 사용자들의 위치 정보 전송 (자신 제외)
-            var otherUsers = activeLocations.values().stream()
-                    .filter(LocationShareDTO::isVisible)
-                    .filter(loc -> !loc.getUserId().equals(request.getUserId()))
-                    .collect(Collectors.toList());
+            // 참여 시점의 위치는 tick 을 기다리지 않고 바로 반영
+            pendingUpdates.remove(request.getUserId());
+            applyUpdate(request);
 
-            System.out.println("📤 다른 활성 사용자 " + otherUsers.size() + "명의 위치 정보 전송");
+            // 여러 노드에 나눠 맡긴 경우 전체 목록은 한 노드에 없으므로 근처 사용자만 보낸다
+            if (locationShardRouter.isDistributed()) {
+                gatherNearby(request.getUserId(), request.getLatitude(), request.getLongitude(),
+                        users -> sendSnapshot(request.getUserId(), sessionId, "/queue/location/initial", users));
+                return;
+            }
 
-            otherUsers.forEach(loc -> {
-                try {
-                    messagingTemplate.convertAndSendToUser(
-                            request.getUserId().toString(),
-                            "/queue/location/initial",
-                            loc
-                    );
-                    System.out.println("📤 초기 위치 데이터 전송 완료: " + loc.getUserName() +
-                            " -> " + request.getUserId());
-                } catch (Exception e) {
-                    System.err.println("❌ 초기 위치 데이터 전송 실패: " + e.getMessage());
+            // 현재 활성 사용자들의 위치 정보 전송 (자신 제외)
+            List<LocationShareDTO> otherUsers = new ArrayList<>();
+            locationStore.forEachPositioned(READING.get(), loc -> {
+                if (loc.visible && !loc.userId.equals(request.getUserId())) {
+                    otherUsers.add(loc.toDto());
                 }
             });
 
+            System.out.println("📤 다른 활성 사용자 " + otherUsers.size() + "명의 위치 정보 전송");
+            sendSnapshot(request.getUserId(), sessionId, "/queue/location/initial", otherUsers);
+
             System.out.println("✅ 위치 공유 참여 완료: " + request.getUserId() +
-                    ", 총 활성 사용자 수: " + activeLocations.size());
+                    ", 총 활성 사용자 수: " + locationStore.size());
         } catch (Exception e) {
             System.err.println("❌ 위치 공유 참여 실패: " + e.getMessage());
             e.printStackTrace();
@@ -109,14 +278,15 @@ public class LocationService {
         try {
             System.out.println("📍 위치 공유 종료 처리 시작: " + userId);
 
-            LocationShareDTO removedLocation = activeLocations.remove(userId);
+            String sessionId = userSessions.remove(userId);
+            if (sessionId != null) sessionUsers.remove(sessionId, userId);
+            LocationShareDTO removedLocation = removeUser(userId);
 
             if (removedLocation != null) {
                 // 오프라인 상태로 브로드캐스트
-                removedLocation.setStatus("offline");
-                messagingTemplate.convertAndSend("/topic/location/nearby", removedLocation);
+                messagingTemplate.convertAndSend(cellDestination(removedLocation), removedLocation);
                 System.out.println("👋 사용자 위치 공유 종료 브로드캐스트: " + removedLocation.getUserName() +
-                        ", 남은 활성 사용자 수: " + activeLocations.size());
+                        ", 남은 활성 사용자 수: " + locationStore.size());
             } else {
                 System.out.println("⚠️ 제거할 위치 정보를 찾을 수 없습니다: " + userId);
             }
@@ -126,34 +296,98 @@ public class LocationService {
         }
     }
 
-    // 근처 사용자 조회 (반경 1km 내)
+    /**
+     * 앱이 비정상 종료돼 location.leave 없이 연결이 끊긴 경우에도 위치를 정리한다
+     * (같은 사용자가 다른 세션으로 다시 참여했다면 그대로 둔다)
+     */
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        UUID userId = sessionUsers.remove(event.getSessionId());
+        if (userId == null || !userSessions.remove(userId, event.getSessionId())) return;
+        LocationShareDTO removedLocation = removeUser(userId);
+        if (removedLocation != null) {
+            messagingTemplate.convertAndSend(cellDestination(removedLocation), removedLocation);
+            System.out.println("🔌 연결 종료로 위치 공유 해제: " + removedLocation.getUserName());
+        }
+    }
+
+    /**
+     * idle-ttl-ms 동안 위치 프레임이 없던 사용자를 정리하고,
+     * 오프라인 알림은 칸마다 LocationBatchDTO 하나로 묶어 한 번씩만 보낸다
+     */
+    @Scheduled(fixedDelayString = "${haksamate.location.sweep-interval-ms:15000}")
+    public void expireIdleLocations() {
+        long cutoff = System.currentTimeMillis() - idleTtlMillis;
+        Map<String, List<LocationShareDTO>> offlineByCell = new HashMap<>();
+        List<UUID> idleUsers = new ArrayList<>();
+        locationStore.collectIdle(cutoff, idleUsers);
+        for (UUID userId : idleUsers) {
+            String sessionId = userSessions.remove(userId);
+            if (sessionId != null) sessionUsers.remove(sessionId, userId);
+            // 세션이 이 노드에 붙어 있던 사용자면 세션 쪽 상태도 같이 지운다
+            forgetSharing(userId);
+            ownerNodes.remove(userId);
+            LocationShareDTO removedLocation = removeOwned(userId);
+            if (removedLocation != null && removedLocation.isVisible()) {
+                offlineByCell.computeIfAbsent(cellDestination(removedLocation), cell -> new ArrayList<>())
+                        .add(removedLocation);
+            }
+        }
+        if (offlineByCell.isEmpty()) return;
+
+        offlineByCell.forEach((cell, users) -> messagingTemplate.convertAndSend(cell, new LocationBatchDTO(users)));
+        System.out.println("🧹 오래된 위치 정리: " + offlineByCell.values().stream().mapToInt(List::size).sum() +
+                "명, 남은 활성 사용자 수: " + locationStore.size());
+    }
+
+    /**
+     * 위치 공유 종료: 세션 쪽 상태를 지우고 담당 노드에서도 지운다
+     * 이 노드가 맡고 있었으면 offline 상태의 마지막 위치를 돌려주고(호출자가 알림), 다른 노드면 그 노드가 알린다
+     */
+    private LocationShareDTO removeUser(UUID userId) {
+        forgetSharing(userId);
+        String owner = ownerNodes.remove(userId);
+        if (owner != null && !locationShardRouter.isLocal(owner)) {
+            dispatchRemove(owner, userId, true);
+            return null;
+        }
+        return removeOwned(userId);
+    }
+
+    private void forgetSharing(UUID userId) {
+        sharingUsers.remove(userId);
+        pendingUpdates.remove(userId);
+        locationSubscriptionRouter.onUserLeft(userId);
+    }
+
+    private void dispatchRemove(String owner, UUID userId, boolean announce) {
+        if (locationShardRouter.isLocal(owner)) {
+            LocationShareDTO removedLocation = removeOwned(userId);
+            if (removedLocation != null && announce) {
+                messagingTemplate.convertAndSend(cellDestination(removedLocation), removedLocation);
+            }
+        } else {
+            locationShardRouter.send(owner, LocationShardRouter.REMOVE, new LocationShardRouter.OwnedRemove(userId, announce));
+        }
+    }
+
+    // 이 노드가 맡은 위치 상태를 지우고, 지운 위치를 offline 상태로 돌려준다 (없으면 null)
+    private LocationShareDTO removeOwned(UUID userId) {
+        LocationShareDTO removedLocation = locationStore.remove(userId);
+        if (removedLocation != null && removedLocation.isVisible()) {
+            locationClusterIndex.remove(removedLocation.getLatitude(), removedLocation.getLongitude());
+        }
+        locationGridIndex.remove(userId);
+        return removedLocation;
+    }
+
+    // 근처 사용자 조회 (반경 1km 내) - 주변 격자 칸에 있는 사용자만 확인한다
     public void getNearbyUsers(UUID userId, double latitude, double longitude) {
         try {
             System.out.println("🔍 근처 사용자 조회 시작: " + userId + " - " + latitude + ", " + longitude);
-            System.out.println("🔍 현재 활성 사용자 목록:");
-            activeLocations.forEach((id, location) -> {
-                System.out.println("  - " + location.getUserName() + " (가시성: " + location.isVisible() + ")");
-            });
-
-            var nearbyUsers = activeLocations.values().stream()
-                    .filter(LocationShareDTO::isVisible)
-                    .filter(loc -> !loc.getUserId().equals(userId))
-                    .filter(loc -> calculateDistance(latitude, longitude, loc.getLatitude(), loc.getLongitude()) <= 1.0)
-                    .collect(Collectors.toList());
-
-            System.out.println("📍 근처 사용자 " + nearbyUsers.size() + "명 발견");
-
-            nearbyUsers.forEach(loc -> {
-                try {
-                    messagingTemplate.convertAndSendToUser(
-                            userId.toString(),
-                            "/queue/location/nearby",
-                            loc
-                    );
-                    System.out.println("📤 근처 사용자 정보 전송 완료: " + loc.getUserName() + " -> " + userId);
-                } catch (Exception e) {
-                    System.err.println("❌ 근처 사용자 정보 전송 실패: " + e.getMessage());
-                }
+            gatherNearby(userId, latitude, longitude, nearbyUsers -> {
+                System.out.println("📍 근처 사용자 " + nearbyUsers.size() + "명 발견");
+                sendSnapshot(userId, userSessions.get(userId), "/queue/location/nearby", nearbyUsers);
             });
         } catch (Exception e) {
             System.err.println("❌ 근처 사용자 조회 실패: " + e.getMessage());
@@ -161,32 +395,129 @@ public class LocationService {
         }
     }
 
-    // 두 지점 간 거리 계산 (km)
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // 지구 반지름 (km)
+    /**
+     * 지도 화면 범위의 클러스터. 여러 노드에 나눠 맡긴 경우 화면에 걸친 shard 의 담당 노드들에 묻고 칸별로 합친다
+     */
+    public CompletableFuture<List<LocationClusterDTO>> getClusters(double south, double west, double north, double east, int zoom) {
+        if (!locationShardRouter.isDistributed()) {
+            return CompletableFuture.completedFuture(locationClusterIndex.query(south, west, north, east, zoom));
+        }
+        List<LocationClusterIndex.CellSum> cells = new ArrayList<>();
+        List<CompletableFuture<List<LocationClusterIndex.CellSum>>> replies = new ArrayList<>();
+        for (String owner : locationShardRouter.ownersOfArea(south, west, north, east)) {
+            if (locationShardRouter.isLocal(owner)) {
+                cells.addAll(locationClusterIndex.queryCells(south, west, north, east, zoom));
+            } else {
+                replies.add(locationShardRouter.queryClusters(owner, south, west, north, east, zoom));
+            }
+        }
+        return CompletableFuture.allOf(replies.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            replies.forEach(reply -> cells.addAll(reply.join()));
+            return LocationClusterIndex.merge(cells);
+        });
+    }
 
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
+    /**
+     * 반경 안의 사용자를 모아 done 에 넘긴다
+     * 다른 노드가 맡은 칸(shard 경계에 걸친 칸)만 그 노드에 묻고, 응답이 다 오거나 시간이 지나면 done 을 부른다
+     */
+    private void gatherNearby(UUID userId, double latitude, double longitude, Consumer<List<LocationShareDTO>> done) {
+        List<LocationShareDTO> nearbyUsers = new ArrayList<>();
+        if (!locationShardRouter.isDistributed()) {
+            LocationStore.Reading loc = READING.get();
+            locationGridIndex.forEachCandidate(latitude, longitude, NEARBY_RADIUS_KM, candidateId -> {
+                if (candidateId.equals(userId)) return;
+                if (locationStore.read(candidateId, loc) && loc.positioned && loc.visible
+                        && LocationGridIndex.withinRadius(latitude, longitude, loc.latitude, loc.longitude, NEARBY_RADIUS_KM)) {
+                    nearbyUsers.add(loc.toDto());
+                }
+            });
+            done.accept(nearbyUsers);
+            return;
+        }
 
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        Map<String, List<String>> remoteCells = new HashMap<>();
+        for (String cellName : locationGridIndex.cellNamesAround(latitude, longitude, NEARBY_RADIUS_KM)) {
+            String owner = locationShardRouter.ownerOfCell(cellName);
+            if (locationShardRouter.isLocal(owner)) {
+                collectNearby(cellName, userId, latitude, longitude, NEARBY_RADIUS_KM, nearbyUsers);
+            } else {
+                remoteCells.computeIfAbsent(owner, node -> new ArrayList<>()).add(cellName);
+            }
+        }
+        if (remoteCells.isEmpty()) {
+            done.accept(nearbyUsers);
+            return;
+        }
 
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        List<CompletableFuture<List<LocationShareDTO>>> replies = new ArrayList<>();
+        remoteCells.forEach((owner, cells) -> replies.add(
+                locationShardRouter.queryNearby(owner, userId, latitude, longitude, NEARBY_RADIUS_KM, cells)));
+        CompletableFuture.allOf(replies.toArray(CompletableFuture[]::new)).thenRun(() -> {
+            replies.forEach(reply -> nearbyUsers.addAll(reply.join()));
+            done.accept(nearbyUsers);
+        });
+    }
+
+    // 이 노드가 맡은 칸 하나에서 반경 안의 공개 사용자를 모은다
+    private void collectNearby(String cellName, UUID userId, double latitude, double longitude, double radiusKm,
+                               List<LocationShareDTO> out) {
+        LocationStore.Reading loc = READING.get();
+        locationGridIndex.forEachInCell(cellName, candidateId -> {
+            if (candidateId.equals(userId)) return;
+            if (locationStore.read(candidateId, loc) && loc.positioned && loc.visible
+                    && LocationGridIndex.withinRadius(latitude, longitude, loc.latitude, loc.longitude, radiusKm)) {
+                out.add(loc.toDto());
+            }
+        });
+    }
+
+    /**
+     * 사용자 목록을 사용자마다 한 프레임씩이 아니라 snapshot 프레임 하나로 보낸다
+     * (snapshot-page-size 보다 많으면 페이지로 나눔, 빈 목록도 한 프레임 보내서 클라이언트가 완료를 알 수 있게 한다)
+     * 위치 공유에 참여한 세션을 알면 그 세션에만 보내고, 모르면 사용자의 세션을 찾아 보낸다
+     */
+    private void sendSnapshot(UUID userId, String sessionId, String destination, List<LocationShareDTO> users) {
+        int total = users.size();
+        int page = 0;
+        int from = 0;
+        do {
+            int to = Math.min(from + snapshotPageSize, total);
+            try {
+                LocationSnapshotDTO snapshot = new LocationSnapshotDTO(users.subList(from, to), page, total, to == total);
+                if (sessionId != null) {
+                    messagingTemplate.sendToSession(sessionId, destination, snapshot);
+                } else {
+                    messagingTemplate.convertAndSendToUser(userId.toString(), destination, snapshot);
+                }
+            } catch (Exception e) {
+                System.err.println("❌ 위치 snapshot 전송 실패: " + destination + " -> " + userId + " - " + e.getMessage());
+                return;
+            }
+            page++;
+            from = to;
+        } while (from < total);
+    }
+
+    private String cellDestination(LocationShareDTO location) {
+        return cellDestination(location.getLatitude(), location.getLongitude());
+    }
 
-        return R * c;
+    private String cellDestination(double latitude, double longitude) {
+        return LocationSubscriptionRouter.cellDestination(locationGridIndex.cellNameOf(latitude, longitude));
     }
 
     // 현재 활성 사용자 수 조회
     public int getActiveUsersCount() {
-        int count = activeLocations.size();
+        int count = locationStore.size();
         System.out.println("📊 현재 활성 사용자 수: " + count);
         return count;
     }
 
     // 특정 사용자의 위치 정보 조회
     public LocationShareDTO getUserLocation(UUID userId) {
-        LocationShareDTO location = activeLocations.get(userId);
+        LocationStore.Reading reading = READING.get();
+        LocationShareDTO location = locationStore.read(userId, reading) && reading.positioned ? reading.toDto() : null;
         System.out.println("📍 사용자 위치 조회: " + userId + " -> " + (location != null ? "발견" : "없음"));
         return location;
     }
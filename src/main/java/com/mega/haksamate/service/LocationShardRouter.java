@@ -0,0 +1,287 @@
+package com.mega.haksamate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mega.haksamate.cluster.ClusterMessagingTemplate;
+import com.mega.haksamate.dto.LocationShareDTO;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 위치 상태를 노드들에 나눠 맡기는 geo-sharding
+ * - 격자 칸(LocationGridIndex) shard-grid-cells x shard-grid-cells 개를 묶은 shard 칸 단위로 담당 노드를 정한다
+ * - 담당 노드는 consistent hashing ring (노드마다 virtual-nodes 개 지점) 으로 정해서, 노드가 늘거나 줄어도 일부 shard 만 옮겨진다
+ * - ring 은 클러스터 버스가 알려주는 연결된 노드 목록으로 주기적으로 다시 만든다
+ * - 다른 노드에 맡긴 칸의 근처 조회/지도 클러스터 조회는 그 노드로 요청을 보내고 rpc-timeout-ms 안에 온 응답만 쓴다
+ */
+@Component
+public class LocationShardRouter {
+
+    public static final String UPDATE = ClusterMessagingTemplate.INTERNAL_PREFIX + "location/update";
+    public static final String REMOVE = ClusterMessagingTemplate.INTERNAL_PREFIX + "location/remove";
+    public static final String NEARBY_REQUEST = ClusterMessagingTemplate.INTERNAL_PREFIX + "location/nearby";
+    private static final String NEARBY_REPLY = ClusterMessagingTemplate.INTERNAL_PREFIX + "location/nearby-reply";
+    public static final String CLUSTER_REQUEST = ClusterMessagingTemplate.INTERNAL_PREFIX + "location/clusters";
+    private static final String CLUSTER_REPLY = ClusterMessagingTemplate.INTERNAL_PREFIX + "location/clusters-reply";
+
+    // 화면에 걸친 shard 가 이보다 많으면 shard 마다 담당 노드를 찾지 않고 모든 노드에 묻는다
+    private static final int MAX_AREA_SHARDS = 1024;
+
+    /**
+     * 세션이 붙은 노드 → 담당 노드: 위치 반영
+     */
+    public record OwnedUpdate(UUID userId, double latitude, double longitude, long timestamp,
+                              String status, boolean visible) {
+    }
+
+    /**
+     * 세션이 붙은 노드 → 담당 노드: 위치 공유 종료. announce 면 담당 노드가 offline 을 알린다
+     * (다른 shard 로 옮겨 가는 경우는 announce 없이 이전 담당 노드에서만 지운다)
+     */
+    public record OwnedRemove(UUID userId, boolean announce) {
+    }
+
+    /**
+     * 근처 조회 요청. cells 는 받는 노드가 맡은 칸만 담는다
+     */
+    public record NearbyRequest(String requestId, String replyTo, UUID userId, double latitude, double longitude,
+                                double radiusKm, List<String> cells) {
+    }
+
+    public record NearbyReply(String requestId, List<LocationShareDTO> users) {
+    }
+
+    /**
+     * 지도 클러스터 조회 요청. 받는 노드는 자기가 가진 칸별 합계를 돌려준다
+     */
+    public record ClusterRequest(String requestId, String replyTo, double south, double west, double north, double east,
+                                 int zoom) {
+    }
+
+    public record ClusterReply(String requestId, List<LocationClusterIndex.CellSum> cells) {
+    }
+
+    private final ClusterMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final LocationGridIndex locationGridIndex;
+    private final int shardGridCells;
+    private final int virtualNodes;
+    private final long rpcTimeoutMillis;
+
+    private final Map<String, CompletableFuture<List<LocationShareDTO>>> pendingQueries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<List<LocationClusterIndex.CellSum>>> pendingClusterQueries = new ConcurrentHashMap<>();
+
+    // ring 은 통째로 바꿔 끼운다 (hashes 오름차순, owners[i] 가 hashes[i] 지점의 노드)
+    private record Ring(Set<String> nodeIds, long[] hashes, String[] owners) {
+    }
+
+    private volatile Ring ring;
+
+    public LocationShardRouter(ClusterMessagingTemplate messagingTemplate,
+                               ObjectMapper objectMapper,
+                               LocationGridIndex locationGridIndex,
+                               @Value("${haksamate.location.shard.grid-cells:10}") int shardGridCells,
+                               @Value("${haksamate.location.shard.virtual-nodes:64}") int virtualNodes,
+                               @Value("${haksamate.location.shard.rpc-timeout-ms:300}") long rpcTimeoutMillis) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.locationGridIndex = locationGridIndex;
+        this.shardGridCells = shardGridCells;
+        this.virtualNodes = virtualNodes;
+        this.rpcTimeoutMillis = rpcTimeoutMillis;
+    }
+
+    @PostConstruct
+    public void init() {
+        refreshRing();
+        messagingTemplate.registerHandler(NEARBY_REPLY, (destination, payload) -> {
+            NearbyReply reply = read(payload, NearbyReply.class);
+            CompletableFuture<List<LocationShareDTO>> pending = reply != null ? pendingQueries.remove(reply.requestId()) : null;
+            if (pending != null) {
+                pending.complete(reply.users());
+            }
+        });
+        messagingTemplate.registerHandler(CLUSTER_REPLY, (destination, payload) -> {
+            ClusterReply reply = read(payload, ClusterReply.class);
+            CompletableFuture<List<LocationClusterIndex.CellSum>> pending =
+                    reply != null ? pendingClusterQueries.remove(reply.requestId()) : null;
+            if (pending != null) {
+                pending.complete(reply.cells());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${haksamate.location.shard.refresh-interval-ms:1000}")
+    public void refreshRing() {
+        Set<String> nodeIds = messagingTemplate.getNodeIds();
+        Ring current = ring;
+        if (current != null && current.nodeIds().equals(nodeIds)) return;
+
+        long[] hashes = new long[nodeIds.size() * virtualNodes];
+        String[] owners = new String[hashes.length];
+        // (hash, 노드) 쌍을 hash 순으로 정렬
+        long[][] points = new long[hashes.length][];
+        String[] sortedNodes = nodeIds.stream().sorted().toArray(String[]::new);
+        int n = 0;
+        for (int node = 0; node < sortedNodes.length; node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                points[n++] = new long[]{hash(sortedNodes[node] + "#" + v), node};
+            }
+        }
+        Arrays.sort(points, (a, b) -> Long.compare(a[0], b[0]));
+        for (int i = 0; i < points.length; i++) {
+            hashes[i] = points[i][0];
+            owners[i] = sortedNodes[(int) points[i][1]];
+        }
+        ring = new Ring(Set.copyOf(nodeIds), hashes, owners);
+        if (current != null) {
+            System.out.println("🗺️ 위치 shard ring 갱신: " + nodeIds);
+        }
+    }
+
+    public boolean isDistributed() {
+        return messagingTemplate.isDistributed();
+    }
+
+    public boolean isLocal(String nodeId) {
+        return nodeId == null || nodeId.equals(messagingTemplate.getNodeId());
+    }
+
+    public String ownerOf(double latitude, double longitude) {
+        if (!isDistributed()) return messagingTemplate.getNodeId();
+        return ownerOfCell(locationGridIndex.cellNameOf(latitude, longitude));
+    }
+
+    /**
+     * 격자 칸 이름의 담당 노드 (단일 노드 모드면 항상 자기 자신)
+     */
+    public String ownerOfCell(String cellName) {
+        Ring current = ring;
+        if (!isDistributed() || current == null || current.hashes().length == 0) {
+            return messagingTemplate.getNodeId();
+        }
+        int separator = cellName.indexOf('_');
+        long shardLat = Math.floorDiv(Integer.parseInt(cellName.substring(0, separator)), shardGridCells);
+        long shardLon = Math.floorDiv(Integer.parseInt(cellName.substring(separator + 1)), shardGridCells);
+        long key = mix(shardLat * 0x9E3779B97F4A7C15L + shardLon);
+
+        int index = Arrays.binarySearch(current.hashes(), key);
+        if (index < 0) index = -index - 1;
+        if (index == current.hashes().length) index = 0;
+        return current.owners()[index];
+    }
+
+    /**
+     * 화면 범위(남서~북동)에 걸친 shard 들의 담당 노드 (단일 노드 모드면 자기 자신만)
+     */
+    public Set<String> ownersOfArea(double south, double west, double north, double east) {
+        Ring current = ring;
+        if (!isDistributed() || current == null || current.hashes().length == 0) {
+            return Set.of(messagingTemplate.getNodeId());
+        }
+        List<String> blocks = locationGridIndex.blockNamesIn(south, west, north, east, shardGridCells, MAX_AREA_SHARDS);
+        if (blocks == null) return current.nodeIds();
+        Set<String> owners = new HashSet<>();
+        for (String block : blocks) {
+            owners.add(ownerOfCell(block));
+            if (owners.size() == current.nodeIds().size()) break;
+        }
+        return owners;
+    }
+
+    public boolean send(String nodeId, String destination, Object payload) {
+        return messagingTemplate.sendToNode(nodeId, destination, payload);
+    }
+
+    /**
+     * 다른 노드에 맡긴 칸들의 근처 사용자 조회. 시간 안에 답이 없거나 보낼 수 없으면 빈 목록
+     */
+    public CompletableFuture<List<LocationShareDTO>> queryNearby(String nodeId, UUID userId, double latitude,
+                                                                 double longitude, double radiusKm, List<String> cells) {
+        String requestId = UUID.randomUUID().toString();
+        CompletableFuture<List<LocationShareDTO>> future = new CompletableFuture<>();
+        pendingQueries.put(requestId, future);
+        NearbyRequest request = new NearbyRequest(requestId, messagingTemplate.getNodeId(), userId,
+                latitude, longitude, radiusKm, cells);
+        if (!messagingTemplate.sendToNode(nodeId, NEARBY_REQUEST, request)) {
+            pendingQueries.remove(requestId);
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return future.orTimeout(rpcTimeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    pendingQueries.remove(requestId);
+                    System.err.println("⚠️ 근처 조회 응답 없음: " + nodeId);
+                    return List.of();
+                });
+    }
+
+    public void replyNearby(NearbyRequest request, List<LocationShareDTO> users) {
+        messagingTemplate.sendToNode(request.replyTo(), NEARBY_REPLY, new NearbyReply(request.requestId(), users));
+    }
+
+    /**
+     * 다른 노드가 맡은 사용자의 지도 클러스터 칸별 합계. 시간 안에 답이 없거나 보낼 수 없으면 빈 목록
+     */
+    public CompletableFuture<List<LocationClusterIndex.CellSum>> queryClusters(String nodeId, double south, double west,
+                                                                                double north, double east, int zoom) {
+        String requestId = UUID.randomUUID().toString();
+        CompletableFuture<List<LocationClusterIndex.CellSum>> future = new CompletableFuture<>();
+        pendingClusterQueries.put(requestId, future);
+        ClusterRequest request = new ClusterRequest(requestId, messagingTemplate.getNodeId(), south, west, north, east, zoom);
+        if (!messagingTemplate.sendToNode(nodeId, CLUSTER_REQUEST, request)) {
+            pendingClusterQueries.remove(requestId);
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return future.orTimeout(rpcTimeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    pendingClusterQueries.remove(requestId);
+                    System.err.println("⚠️ 지도 클러스터 조회 응답 없음: " + nodeId);
+                    return List.of();
+                });
+    }
+
+    public void replyClusters(ClusterRequest request, List<LocationClusterIndex.CellSum> cells) {
+        messagingTemplate.sendToNode(request.replyTo(), CLUSTER_REPLY, new ClusterReply(request.requestId(), cells));
+    }
+
+    public <T> T read(byte[] payload, Class<T> type) {
+        try {
+            return objectMapper.readValue(payload, type);
+        } catch (IOException e) {
+            System.err.println("❌ 위치 shard 메시지 해석 실패: " + type.getSimpleName() + " - " + e.getMessage());
+            return null;
+        }
+    }
+
+    // FNV-1a 64 + 섞기 (노드 id 지점과 shard 칸이 ring 위에 고르게 퍼지도록)
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
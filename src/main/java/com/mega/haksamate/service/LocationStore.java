@@ -0,0 +1,307 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.LocationShareDTO;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * 위치 공유 중인 사용자의 현재 위치 저장소 (사용자마다 DTO 를 만들지 않는 struct-of-arrays 구조)
+ * - 사용자마다 slot 하나를 주고, 위도/경도/시각/상태를 CHUNK_SIZE 단위 primitive 배열에 나눠 담는다
+ * - slot 마다 version(seqlock): 쓰는 동안 홀수, 읽는 쪽은 읽기 전후 version 이 같은 짝수일 때만 값을 믿는다
+ * - 위치 공유를 끝낸 사용자의 slot 은 재사용하므로, 읽을 때 slot 의 userId 가 같은지도 확인한다
+ *   (새 사용자의 마지막 수신 시각은 slot 을 넘겨받는 같은 쓰기 안에서 남겨서, 이전 사용자의 시각으로 만료되지 않게 한다)
+ * - LocationShareDTO 는 보낼 때(Reading.toDto)만 만든다
+ */
+@Component
+public class LocationStore {
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final int VISIBLE = 1;
+    private static final int POSITIONED = 1 << 1;  // 위치를 한 번이라도 받은 slot (참여/업데이트 대기 중이면 없음)
+    private static final int BROADCAST = 1 << 2;   // 마지막으로 브로드캐스트한 위치가 있음
+
+    private static final String[] STATUSES = {PresenceService.ONLINE, PresenceService.AWAY, PresenceService.OFFLINE};
+
+    private static final class Chunk {
+        final AtomicLongArray versions = new AtomicLongArray(CHUNK_SIZE);
+        final AtomicLongArray lastSeen = new AtomicLongArray(CHUNK_SIZE);
+        final UUID[] userIds = new UUID[CHUNK_SIZE];
+        final String[] names = new String[CHUNK_SIZE];
+        final double[] latitudes = new double[CHUNK_SIZE];
+        final double[] longitudes = new double[CHUNK_SIZE];
+        final long[] updatedAt = new long[CHUNK_SIZE];
+        final int[] flags = new int[CHUNK_SIZE];
+        final byte[] statuses = new byte[CHUNK_SIZE];
+        final double[] broadcastLatitudes = new double[CHUNK_SIZE];
+        final double[] broadcastLongitudes = new double[CHUNK_SIZE];
+        final byte[] broadcastStatuses = new byte[CHUNK_SIZE];
+    }
+
+    /**
+     * 한 slot 을 읽어 온 값 (호출자가 하나 만들어 두고 재사용)
+     */
+    public static final class Reading {
+        public UUID userId;
+        public String name;
+        public double latitude;
+        public double longitude;
+        public long updatedAt;
+        public String status;
+        public boolean visible;
+        public boolean positioned;
+        public boolean broadcast;
+        public double broadcastLatitude;
+        public double broadcastLongitude;
+        public String broadcastStatus;
+
+        public LocationShareDTO toDto() {
+            return new LocationShareDTO(userId, name, latitude, longitude,
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(updatedAt), ZoneId.systemDefault()),
+                    status, visible);
+        }
+    }
+
+    private final Map<UUID, Integer> slots = new ConcurrentHashMap<>();
+    private volatile Chunk[] chunks = new Chunk[0];
+
+    // slot 할당/반납은 this 로 동기화
+    private int nextSlot;
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+
+    /**
+     * 사용자의 slot 을 확보하고 마지막 수신 시각을 남긴다 (위치는 write 로)
+     */
+    public void reserve(UUID userId, long now) {
+        Integer slot = slots.get(userId);
+        if (slot == null) {
+            slot = allocate(userId, now);
+        }
+        chunk(slot).lastSeen.lazySet(slot & CHUNK_MASK, now);
+    }
+
+    /**
+     * 위치를 기록한다. broadcast 면 이 위치를 마지막 브로드캐스트 위치로 남기고,
+     * 비공개로 바뀌면 마지막 브로드캐스트 위치를 지운다. slot 이 없으면(이미 떠난 사용자) false
+     * replaced 에는 같은 잠금 안에서 덮어쓰기 전 값을 담는다 (클러스터 합계를 정확히 빼기 위해)
+     */
+    public boolean write(UUID userId, String name, double latitude, double longitude, long now,
+                         String status, boolean visible, boolean broadcast, Reading replaced) {
+        Integer slot = slots.get(userId);
+        if (slot == null) return false;
+        Chunk chunk = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        long version = beginWrite(chunk, i);
+        try {
+            if (!userId.equals(chunk.userIds[i])) return false;
+            replaced.userId = userId;
+            replaced.latitude = chunk.latitudes[i];
+            replaced.longitude = chunk.longitudes[i];
+            replaced.visible = (chunk.flags[i] & VISIBLE) != 0;
+            replaced.positioned = (chunk.flags[i] & POSITIONED) != 0;
+            byte statusCode = statusCode(status);
+            chunk.names[i] = name;
+            chunk.latitudes[i] = latitude;
+            chunk.longitudes[i] = longitude;
+            chunk.updatedAt[i] = now;
+            chunk.statuses[i] = statusCode;
+            int flags = (chunk.flags[i] | POSITIONED) & ~VISIBLE;
+            if (visible) flags |= VISIBLE;
+            if (broadcast) {
+                chunk.broadcastLatitudes[i] = latitude;
+                chunk.broadcastLongitudes[i] = longitude;
+                chunk.broadcastStatuses[i] = statusCode;
+                flags |= BROADCAST;
+            } else if (!visible) {
+                flags &= ~BROADCAST;
+            }
+            chunk.flags[i] = flags;
+            return true;
+        } finally {
+            chunk.versions.set(i, version + 2);
+        }
+    }
+
+    /**
+     * 사용자의 현재 값을 out 에 읽어 온다 (slot 이 없으면 false)
+     */
+    public boolean read(UUID userId, Reading out) {
+        Integer slot = slots.get(userId);
+        return slot != null && readSlot(slot, out) && userId.equals(out.userId);
+    }
+
+    /**
+     * slot 을 비우고, 위치가 있던 사용자면 offline 상태의 마지막 위치를 돌려준다 (없으면 null)
+     */
+    public LocationShareDTO remove(UUID userId) {
+        Integer slot = slots.remove(userId);
+        if (slot == null) return null;
+        Chunk chunk = chunk(slot);
+        int i = slot & CHUNK_MASK;
+        LocationShareDTO last = null;
+        long version = beginWrite(chunk, i);
+        try {
+            if ((chunk.flags[i] & POSITIONED) != 0) {
+                last = new LocationShareDTO(userId, chunk.names[i], chunk.latitudes[i], chunk.longitudes[i],
+                        LocalDateTime.ofInstant(Instant.ofEpochMilli(chunk.updatedAt[i]), ZoneId.systemDefault()),
+                        PresenceService.OFFLINE, (chunk.flags[i] & VISIBLE) != 0);
+            }
+            chunk.userIds[i] = null;
+            chunk.names[i] = null;
+            chunk.flags[i] = 0;
+        } finally {
+            chunk.versions.set(i, version + 2);
+        }
+        release(slot);
+        return last;
+    }
+
+    /**
+     * 위치가 있는 모든 사용자를 순서대로 out 에 읽어 consumer 에 넘긴다 (out 은 다음 사용자에서 덮어씀)
+     */
+    public void forEachPositioned(Reading out, Consumer<Reading> consumer) {
+        Chunk[] current = chunks;
+        int limit = current.length << CHUNK_SHIFT;
+        for (int slot = 0; slot < limit; slot++) {
+            if (readSlot(slot, out) && out.userId != null && out.positioned) {
+                consumer.accept(out);
+            }
+        }
+    }
+
+    /**
+     * 마지막 수신 시각이 cutoff 보다 오래된 사용자를 out 에 모은다
+     * userId 와 시각은 같은 version 에서 읽은 값만 본다 (쓰는 중인 slot 은 지금 쓰이고 있으므로 건너뛴다)
+     */
+    public void collectIdle(long cutoff, List<UUID> out) {
+        Chunk[] current = chunks;
+        for (Chunk chunk : current) {
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                long before = chunk.versions.get(i);
+                if ((before & 1) != 0) continue;
+                UUID userId = chunk.userIds[i];
+                long lastSeen = chunk.lastSeen.get(i);
+                VarHandle.loadFence();
+                if (userId != null && lastSeen < cutoff && chunk.versions.get(i) == before) {
+                    out.add(userId);
+                }
+            }
+        }
+    }
+
+    /**
+     * 위치가 있는 사용자 수 (조회용이라 slot 을 잠그지 않고 센다)
+     */
+    public int size() {
+        int count = 0;
+        for (Chunk chunk : chunks) {
+            for (int i = 0; i < CHUNK_SIZE; i++) {
+                if ((chunk.flags[i] & POSITIONED) != 0) count++;
+            }
+        }
+        return count;
+    }
+
+    // ===== seqlock =====
+
+    private static long beginWrite(Chunk chunk, int i) {
+        while (true) {
+            long version = chunk.versions.get(i);
+            if ((version & 1) == 0 && chunk.versions.compareAndSet(i, version, version + 1)) {
+                // 아래 값 쓰기가 홀수 version 보다 먼저 보이지 않도록
+                VarHandle.storeFence();
+                return version;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private boolean readSlot(int slot, Reading out) {
+        Chunk[] current = chunks;
+        int chunkIndex = slot >>> CHUNK_SHIFT;
+        if (chunkIndex >= current.length) return false;
+        Chunk chunk = current[chunkIndex];
+        int i = slot & CHUNK_MASK;
+        while (true) {
+            long before = chunk.versions.get(i);
+            if ((before & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            int flags = chunk.flags[i];
+            out.userId = chunk.userIds[i];
+            out.name = chunk.names[i];
+            out.latitude = chunk.latitudes[i];
+            out.longitude = chunk.longitudes[i];
+            out.updatedAt = chunk.updatedAt[i];
+            out.status = STATUSES[chunk.statuses[i]];
+            out.broadcastLatitude = chunk.broadcastLatitudes[i];
+            out.broadcastLongitude = chunk.broadcastLongitudes[i];
+            out.broadcastStatus = STATUSES[chunk.broadcastStatuses[i]];
+            out.visible = (flags & VISIBLE) != 0;
+            out.positioned = (flags & POSITIONED) != 0;
+            out.broadcast = (flags & BROADCAST) != 0;
+            VarHandle.loadFence();
+            if (chunk.versions.get(i) == before) return true;
+        }
+    }
+
+    // ===== slot 할당 =====
+
+    private synchronized Integer allocate(UUID userId, long now) {
+        Integer existing = slots.get(userId);
+        if (existing != null) return existing;
+
+        int slot = freeCount > 0 ? freeSlots[--freeCount] : nextSlot++;
+        int chunkIndex = slot >>> CHUNK_SHIFT;
+        if (chunkIndex >= chunks.length) {
+            Chunk[] grown = Arrays.copyOf(chunks, chunkIndex + 1);
+            grown[chunkIndex] = new Chunk();
+            chunks = grown;
+        }
+        Chunk chunk = chunks[chunkIndex];
+        int i = slot & CHUNK_MASK;
+        long version = beginWrite(chunk, i);
+        // 재사용한 slot 에는 이전 사용자의 시각이 남아 있으므로 userId 와 함께 바꾼다
+        chunk.lastSeen.set(i, now);
+        chunk.userIds[i] = userId;
+        chunk.flags[i] = 0;
+        chunk.versions.set(i, version + 2);
+
+        Integer boxed = slot;
+        slots.put(userId, boxed);
+        return boxed;
+    }
+
+    private synchronized void release(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private Chunk chunk(int slot) {
+        return chunks[slot >>> CHUNK_SHIFT];
+    }
+
+    private static byte statusCode(String status) {
+        for (byte code = 0; code < STATUSES.length; code++) {
+            if (STATUSES[code].equals(status)) return code;
+        }
+        return 0;
+    }
+}
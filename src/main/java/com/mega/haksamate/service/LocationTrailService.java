@@ -0,0 +1,142 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.LocationTrailPointDTO;
+import com.mega.haksamate.entity.ItemTransaction;
+import com.mega.haksamate.entity.Profile;
+import com.mega.haksamate.repository.ItemTransactionRepository;
+import com.mega.haksamate.repository.ProfileRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 이동 경로 기록 동의와 열람 권한
+ * - 기록은 profiles.trail_consent_at 에 저장된 동의가 있는 사용자만 한다 (위치 프레임마다 DB 를 읽지 않도록 consent-cache-ms 동안 캐시)
+ * - 본인은 자기 경로를 볼 수 있고, 상대방은 확정된 거래(ItemTransaction)가 있을 때
+ *   그 거래 구간(요청 시각 ~ 거래 완료 시각, 완료 전이면 지금)에 든 점만 볼 수 있다
+ * - 동의를 철회하면 상대방은 더 이상 볼 수 없다
+ */
+@Service
+public class LocationTrailService {
+
+    private record CachedConsent(boolean consented, long loadedAt) {
+    }
+
+    private final LocationTrailStore locationTrailStore;
+    private final ProfileRepository profileRepository;
+    private final ItemTransactionRepository itemTransactionRepository;
+    private final long consentCacheMillis;
+
+    private final Map<UUID, CachedConsent> consents = new ConcurrentHashMap<>();
+
+    public LocationTrailService(LocationTrailStore locationTrailStore,
+                                ProfileRepository profileRepository,
+                                ItemTransactionRepository itemTransactionRepository,
+                                @Value("${haksamate.location.trail.consent-cache-ms:30000}") long consentCacheMillis) {
+        this.locationTrailStore = locationTrailStore;
+        this.profileRepository = profileRepository;
+        this.itemTransactionRepository = itemTransactionRepository;
+        this.consentCacheMillis = consentCacheMillis;
+    }
+
+    @Transactional
+    public void setConsent(UUID userId, boolean consent) {
+        Profile profile = profileRepository.findById(userId)
+                .orElseThrow(() -> new NoSuchElementException("사용자를 찾을 수 없습니다: " + userId));
+        profile.setTrailConsentAt(consent ? OffsetDateTime.now() : null);
+        profileRepository.save(profile);
+        consents.put(userId, new CachedConsent(consent, System.currentTimeMillis()));
+        System.out.println("📝 이동 경로 기록 동의 " + (consent ? "설정" : "철회") + ": " + userId);
+    }
+
+    public boolean hasConsent(UUID userId) {
+        long now = System.currentTimeMillis();
+        CachedConsent cached = consents.get(userId);
+        if (cached != null && now - cached.loadedAt() < consentCacheMillis) {
+            return cached.consented();
+        }
+        try {
+            boolean consented = profileRepository.existsByIdAndTrailConsentAtIsNotNull(userId);
+            consents.put(userId, new CachedConsent(consented, now));
+            return consented;
+        } catch (Exception e) {
+            // 확인할 수 없으면 기록하지 않는다
+            System.err.println("❌ 이동 경로 동의 확인 실패: " + userId + " - " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 동의한 사용자의 위치만 기록 대기열에 넣는다
+     */
+    public void record(UUID userId, long timestamp, double latitude, double longitude) {
+        if (!locationTrailStore.isEnabled() || !hasConsent(userId)) return;
+        locationTrailStore.record(userId, timestamp, latitude, longitude);
+    }
+
+    /**
+     * requesterId 가 볼 수 있는 userId 의 [from, to] 경로
+     * @throws AccessDeniedException 본인도 아니고 그 구간에 걸친 확정된 거래도 없는 경우
+     */
+    @Transactional(readOnly = true)
+    public List<LocationTrailPointDTO> read(UUID requesterId, UUID userId, long from, long to) {
+        if (to < from) {
+            throw new IllegalArgumentException("조회 구간이 올바르지 않습니다.");
+        }
+        if (requesterId.equals(userId)) {
+            return locationTrailStore.read(userId, from, to);
+        }
+        if (!hasConsent(userId)) {
+            throw new AccessDeniedException("이동 경로를 볼 수 없습니다.");
+        }
+
+        // 확정된 거래 구간과 요청 구간이 겹치는 부분만 읽는다
+        long now = System.currentTimeMillis();
+        List<long[]> windows = new ArrayList<>();
+        for (ItemTransaction transaction : itemTransactionRepository.findBetween(
+                requesterId, userId, ItemTransaction.TransactionStatus.확정됨)) {
+            if (transaction.getCreatedAt() == null) continue;
+            LocalDateTime completedAt = transaction.getItem().getCompletedDate();
+            long start = Math.max(from, epochMillis(transaction.getCreatedAt()));
+            long end = Math.min(to, completedAt != null ? epochMillis(completedAt) : now);
+            if (start <= end) {
+                windows.add(new long[]{start, end});
+            }
+        }
+        if (windows.isEmpty()) {
+            throw new AccessDeniedException("이동 경로를 볼 수 없습니다.");
+        }
+
+        // 같은 두 사람 사이의 거래가 여럿이면 겹치는 구간을 합쳐서 같은 점을 두 번 읽지 않는다
+        windows.sort(Comparator.comparingLong(window -> window[0]));
+        List<LocationTrailPointDTO> result = new ArrayList<>();
+        long[] current = windows.get(0);
+        for (int i = 1; i < windows.size(); i++) {
+            long[] next = windows.get(i);
+            if (next[0] <= current[1]) {
+                current[1] = Math.max(current[1], next[1]);
+            } else {
+                result.addAll(locationTrailStore.read(userId, current[0], current[1]));
+                current = next;
+            }
+        }
+        result.addAll(locationTrailStore.read(userId, current[0], current[1]));
+        return result;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,383 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.LocationTrailPointDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 위치 이동 경로(trail) 기록 저장소 (거래 분쟁 시 약속 장소에 있었는지 확인용, 동의/열람 권한은 LocationTrailService 에서 확인)
+ * - record 는 bounded queue 에 넣기만 하고, 전용 writer 스레드 하나가 모아서 파일에 붙인다 (queue 가 차면 버림)
+ * - {userId}/{hour}.trail : 시간(UTC) 단위 append-only 파일, hour 는 epoch 기준 시간 번호
+ * - 파일은 프레임의 연속: [payload 길이 varint][payload crc32 4바이트][payload]
+ * - payload 는 [점 개수 varint] 다음 점마다 (시각, 위도e7, 경도e7) 를 앞 점과의 차이로 zigzag varint 인코딩
+ *   (블록의 첫 점은 시각은 그 시간의 시작 기준, 좌표는 0 기준)
+ * - 읽을 때 crc 가 맞지 않는 프레임은 건너뛰고, 길이만큼 남아 있지 않은 프레임(쓰다 멈춘 꼬리)에서 멈춘다
+ * - 재시작 후나 쓰기 실패 후 그 파일에 처음 붙일 때는 마지막 온전한 프레임 뒤를 잘라낸 다음 붙인다
+ * - retention-hours 가 지난 파일은 주기적으로 지운다
+ */
+@Component
+public class LocationTrailStore {
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final double COORD_SCALE = 1e7;
+    private static final int BATCH_SIZE = 1024;
+    // crc 가 맞지 않는 프레임
+    private static final ByteBuffer CORRUPT_FRAME = ByteBuffer.allocate(0);
+
+    private record TrailPoint(UUID userId, long timestamp, double latitude, double longitude) {
+    }
+
+    private final Path trailDir;
+    private final boolean enabled;
+    private final int maxRangeHours;
+    private final long retentionHours;
+    private final BlockingQueue<TrailPoint> queue;
+    private final Counter dropped;
+    // 이번 실행에서 꼬리를 확인한 파일 (쓰기에 실패하면 빼서 다음에 다시 확인)
+    private final Set<Path> verified = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public LocationTrailStore(MeterRegistry meterRegistry,
+                              @Value("${haksamate.location.trail.enabled:false}") boolean enabled,
+                              @Value("${haksamate.location.trail.dir:./data/location-trail}") String trailDir,
+                              @Value("${haksamate.location.trail.queue-size:10000}") int queueSize,
+                              @Value("${haksamate.location.trail.max-range-hours:24}") int maxRangeHours,
+                              @Value("${haksamate.location.trail.retention-hours:168}") long retentionHours) {
+        this.enabled = enabled;
+        this.trailDir = Paths.get(trailDir);
+        this.maxRangeHours = maxRangeHours;
+        this.retentionHours = retentionHours;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.dropped = Counter.builder("location.trail.dropped")
+                .description("queue 가 가득 차서 기록하지 못한 위치 수")
+                .register(meterRegistry);
+        Gauge.builder("location.trail.queue", queue, BlockingQueue::size)
+                .description("파일에 쓰기를 기다리는 위치 수")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        running = true;
+        writer = new Thread(this::writeLoop, "location-trail-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(5000);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 위치 하나를 기록 대기열에 넣는다 (꺼져 있으면 무시, 가득 차면 버림)
+     */
+    public void record(UUID userId, long timestamp, double latitude, double longitude) {
+        if (!enabled) return;
+        if (!queue.offer(new TrailPoint(userId, timestamp, latitude, longitude))) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * [from, to] (epoch millis) 사이에 기록된 위치 (오래된 순, 아직 파일에 쓰이지 않은 점은 빠진다)
+     */
+    public List<LocationTrailPointDTO> read(UUID userId, long from, long to) {
+        if (to < from) {
+            throw new IllegalArgumentException("조회 구간이 올바르지 않습니다.");
+        }
+        long fromHour = from / HOUR_MILLIS;
+        long toHour = to / HOUR_MILLIS;
+        if (toHour - fromHour >= maxRangeHours) {
+            throw new IllegalArgumentException("한 번에 " + maxRangeHours + "시간까지만 조회할 수 있습니다.");
+        }
+
+        List<LocationTrailPointDTO> result = new ArrayList<>();
+        for (long hour = fromHour; hour <= toHour; hour++) {
+            Path path = segmentPath(userId, hour);
+            if (!Files.exists(path)) continue;
+            try {
+                decode(ByteBuffer.wrap(Files.readAllBytes(path)), hour * HOUR_MILLIS, from, to, result);
+            } catch (IOException e) {
+                throw new UncheckedIOException("위치 기록 파일 읽기 실패: " + path, e);
+            }
+        }
+        return result;
+    }
+
+    @Scheduled(fixedDelayString = "${haksamate.location.trail.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        if (!enabled || !Files.isDirectory(trailDir)) return;
+        long oldestHour = System.currentTimeMillis() / HOUR_MILLIS - retentionHours;
+        int deleted = 0;
+        try (DirectoryStream<Path> users = Files.newDirectoryStream(trailDir)) {
+            for (Path userDir : users) {
+                if (!Files.isDirectory(userDir)) continue;
+                boolean empty = true;
+                try (DirectoryStream<Path> segments = Files.newDirectoryStream(userDir, "*.trail")) {
+                    for (Path segment : segments) {
+                        if (hourOf(segment) < oldestHour) {
+                            Files.deleteIfExists(segment);
+                            verified.remove(segment);
+                            deleted++;
+                        } else {
+                            empty = false;
+                        }
+                    }
+                }
+                if (empty) {
+                    try {
+                        Files.deleteIfExists(userDir);
+                    } catch (IOException ignored) {
+                        // 그 사이 새 기록이 생긴 경우
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("❌ 위치 기록 정리 실패: " + e.getMessage());
+        }
+        if (deleted > 0) {
+            System.out.println("🧹 오래된 위치 기록 파일 " + deleted + "개 삭제");
+        }
+    }
+
+    // ===== writer =====
+
+    private void writeLoop() {
+        List<TrailPoint> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                TrailPoint first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.err.println("❌ 위치 기록 쓰기 실패: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<TrailPoint> batch) throws IOException {
+        // 같은 파일(사용자, 시간)에 들어갈 점끼리 묶어서 블록 하나로 쓴다
+        Map<Path, List<TrailPoint>> bySegment = new LinkedHashMap<>();
+        for (TrailPoint point : batch) {
+            bySegment.computeIfAbsent(segmentPath(point.userId(), point.timestamp() / HOUR_MILLIS),
+                    path -> new ArrayList<>()).add(point);
+        }
+        for (Map.Entry<Path, List<TrailPoint>> entry : bySegment.entrySet()) {
+            Path path = entry.getKey();
+            Files.createDirectories(path.getParent());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                if (!verified.contains(path)) {
+                    truncateTornTail(path, channel);
+                    verified.add(path);
+                }
+                ByteBuffer block = ByteBuffer.wrap(frame(encode(entry.getValue())));
+                channel.position(channel.size());
+                while (block.hasRemaining()) {
+                    channel.write(block);
+                }
+            } catch (IOException e) {
+                // 일부만 쓰였을 수 있으므로 다음에 붙일 때 꼬리를 다시 확인한다
+                verified.remove(path);
+                throw e;
+            }
+        }
+    }
+
+    private static void truncateTornTail(Path path, FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) return;
+        int validLength = validLength(ByteBuffer.wrap(Files.readAllBytes(path)));
+        if (validLength < size) {
+            channel.truncate(validLength);
+            System.err.println("⚠️ 위치 기록 파일 꼬리 " + (size - validLength) + "바이트 잘라냄: " + path);
+        }
+    }
+
+    // ===== 인코딩 =====
+
+    private static byte[] frame(byte[] payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length + 9);
+        writeVarLong(out, payload.length);
+        int crc = crc32(payload, 0, payload.length);
+        out.write(crc >>> 24);
+        out.write(crc >>> 16);
+        out.write(crc >>> 8);
+        out.write(crc);
+        out.write(payload, 0, payload.length);
+        return out.toByteArray();
+    }
+
+    /**
+     * 다음 프레임의 payload (crc 가 맞지 않으면 CORRUPT_FRAME), 길이만큼 남아 있지 않으면 null
+     */
+    private static ByteBuffer nextFrame(ByteBuffer in) {
+        try {
+            long length = readVarLong(in);
+            int crc = in.getInt();
+            if (length > in.remaining()) return null;
+            int start = in.position();
+            in.position(start + (int) length);
+            if (crc32(in.array(), in.arrayOffset() + start, (int) length) != crc) {
+                return CORRUPT_FRAME;
+            }
+            return in.slice(start, (int) length);
+        } catch (BufferUnderflowException | IllegalStateException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 마지막 온전한 프레임이 끝나는 위치
+     */
+    private static int validLength(ByteBuffer in) {
+        int validLength = 0;
+        ByteBuffer payload;
+        while (in.hasRemaining() && (payload = nextFrame(in)) != null) {
+            if (payload != CORRUPT_FRAME) {
+                validLength = in.position();
+            }
+        }
+        return validLength;
+    }
+
+    private static int crc32(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(List<TrailPoint> points) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4 + points.size() * 8);
+        writeVarLong(out, points.size());
+        long previousTime = points.get(0).timestamp() / HOUR_MILLIS * HOUR_MILLIS;
+        long previousLat = 0;
+        long previousLon = 0;
+        for (TrailPoint point : points) {
+            long lat = Math.round(point.latitude() * COORD_SCALE);
+            long lon = Math.round(point.longitude() * COORD_SCALE);
+            writeVarLong(out, zigzag(point.timestamp() - previousTime));
+            writeVarLong(out, zigzag(lat - previousLat));
+            writeVarLong(out, zigzag(lon - previousLon));
+            previousTime = point.timestamp();
+            previousLat = lat;
+            previousLon = lon;
+        }
+        return out.toByteArray();
+    }
+
+    private static void decode(ByteBuffer in, long hourStart, long from, long to, List<LocationTrailPointDTO> out) {
+        ByteBuffer payload;
+        // 길이만큼 남아 있지 않은 프레임은 아직 쓰는 중이거나 쓰다 멈춘 꼬리
+        while (in.hasRemaining() && (payload = nextFrame(in)) != null) {
+            if (payload == CORRUPT_FRAME) {
+                System.err.println("⚠️ 위치 기록 프레임 crc 불일치, 건너뜀");
+                continue;
+            }
+            List<LocationTrailPointDTO> points = new ArrayList<>();
+            try {
+                long count = readVarLong(payload);
+                long time = hourStart;
+                long lat = 0;
+                long lon = 0;
+                for (long i = 0; i < count; i++) {
+                    time += unzigzag(readVarLong(payload));
+                    lat += unzigzag(readVarLong(payload));
+                    lon += unzigzag(readVarLong(payload));
+                    if (time >= from && time <= to) {
+                        points.add(new LocationTrailPointDTO(time, lat / COORD_SCALE, lon / COORD_SCALE));
+                    }
+                }
+            } catch (BufferUnderflowException | IllegalStateException e) {
+                // crc 는 맞는데 내용이 어긋난 프레임은 통째로 버린다
+                continue;
+            }
+            out.addAll(points);
+        }
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalStateException("위치 기록 파일이 손상되었습니다.");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private Path segmentPath(UUID userId, long hour) {
+        return trailDir.resolve(userId.toString()).resolve(hour + ".trail");
+    }
+
+    private static long hourOf(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - ".trail".length()));
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.cluster.ClusterMessagingTemplate;
+import com.mega.haksamate.dto.PresenceDTO;
+import com.mega.haksamate.entity.ChatRoom;
+import com.mega.haksamate.repository.ChatRoomRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 사용자 접속 상태 (online / away / offline)
+ * - 세션 연결/종료와 모든 inbound 프레임(하트비트 포함)으로 갱신된다
+ * - 만료 시각은 hashed timing wheel 로 관리해서, tick 마다 해당 칸에 든 사용자만 확인한다 (전체 스캔 없음)
+ * - 상태가 바뀌면 그 사용자와 채팅방이 있는 상대에게만 /user/queue/presence 로 알린다
+ *   (세션에 Principal 이 없으므로 /user/ 전송은 여기서 기억한 사용자 -> 세션 목록으로 보낸다)
+ */
+@Service
+public class PresenceService {
+
+    public static final String ONLINE = "online";
+    public static final String AWAY = "away";
+    public static final String OFFLINE = "offline";
+
+    private static final class UserPresence {
+        final UUID userId;
+        final Set<String> sessions = new HashSet<>();
+        volatile long lastSeenAt;
+        volatile long deadlineTick = -1; // 들어 있는 wheel 칸의 만료 tick (-1 이면 wheel 에 없음)
+        volatile String status = OFFLINE;
+
+        UserPresence(UUID userId) {
+            this.userId = userId;
+        }
+    }
+
+    private final ChatRoomRepository chatRoomRepository;
+    private final ClusterMessagingTemplate messagingTemplate;
+
+    private final long tickMillis;
+    private final long timeoutTicks;
+    private final int wheelMask;
+    private final List<Set<UserPresence>> wheel;
+    private volatile long currentTick;
+
+    private final Map<UUID, UserPresence> users = new ConcurrentHashMap<>();
+    private final Map<String, UserPresence> sessions = new ConcurrentHashMap<>();
+
+    public PresenceService(ChatRoomRepository chatRoomRepository,
+                           // WebSocketConfig → 인터셉터 → 이 서비스 → 브로커 템플릿 순환을 끊기 위해 지연 주입
+                           @Lazy ClusterMessagingTemplate messagingTemplate,
+                           @Value("${haksamate.presence.tick-ms:1000}") long tickMillis,
+                           @Value("${haksamate.presence.timeout-ms:30000}") long timeoutMillis) {
+        this.chatRoomRepository = chatRoomRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.tickMillis = tickMillis;
+        this.timeoutTicks = Math.max(1, (timeoutMillis + tickMillis - 1) / tickMillis);
+        // 칸 수를 timeout 보다 크게 잡아서 한 칸에는 같은 바퀴의 만료만 들어가게 한다
+        int size = Integer.highestOneBit((int) timeoutTicks) << 1;
+        this.wheelMask = size - 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new HashSet<>());
+        }
+        this.currentTick = System.currentTimeMillis() / tickMillis;
+    }
+
+    // 브로커 템플릿은 웹소켓 설정이 끝난 뒤에야 만들 수 있어서 context 가 준비된 뒤 등록한다
+    @EventListener(ContextRefreshedEvent.class)
+    public void registerUserSessionResolver() {
+        messagingTemplate.setUserSessionResolver(this::sessionsOf);
+    }
+
+    /**
+     * 세션과 사용자를 연결한다 (CONNECT 헤더, 또는 예전 클라이언트의 첫 요청)
+     */
+    public void connect(String sessionId, UUID userId) {
+        UserPresence presence = users.computeIfAbsent(userId, UserPresence::new);
+        if (sessions.putIfAbsent(sessionId, presence) != null) return;
+        boolean changed;
+        synchronized (this) {
+            presence.sessions.add(sessionId);
+            presence.lastSeenAt = System.currentTimeMillis();
+            schedule(presence);
+            changed = setStatus(presence, ONLINE);
+        }
+        if (changed) notifyPartners(presence);
+    }
+
+    /**
+     * 세션에서 프레임을 받을 때마다 호출 (같은 tick 안의 반복 호출은 lock 없이 끝난다)
+     */
+    public void touch(String sessionId) {
+        UserPresence presence = sessions.get(sessionId);
+        if (presence == null) return;
+        presence.lastSeenAt = System.currentTimeMillis();
+        if (presence.deadlineTick == currentTick + timeoutTicks && ONLINE.equals(presence.status)) return;
+
+        boolean changed;
+        synchronized (this) {
+            if (presence.sessions.isEmpty()) return;
+            schedule(presence);
+            changed = setStatus(presence, ONLINE);
+        }
+        if (changed) notifyPartners(presence);
+    }
+
+    public void disconnect(String sessionId) {
+        UserPresence presence = sessions.remove(sessionId);
+        if (presence == null) return;
+        boolean changed = false;
+        synchronized (this) {
+            presence.sessions.remove(sessionId);
+            if (presence.sessions.isEmpty()) {
+                unschedule(presence);
+                changed = setStatus(presence, OFFLINE);
+            }
+        }
+        if (changed) notifyPartners(presence);
+    }
+
+    /**
+     * 이 노드에 붙은 사용자의 세션 id 목록
+     */
+    public Set<String> sessionsOf(String user) {
+        UUID userId;
+        try {
+            userId = UUID.fromString(user);
+        } catch (IllegalArgumentException e) {
+            return Set.of();
+        }
+        UserPresence presence = users.get(userId);
+        if (presence == null) return Set.of();
+        synchronized (this) {
+            return Set.copyOf(presence.sessions);
+        }
+    }
+
+    public String getStatus(UUID userId) {
+        UserPresence presence = users.get(userId);
+        return presence != null ? presence.status : OFFLINE;
+    }
+
+    public PresenceDTO getPresence(UUID userId) {
+        UserPresence presence = users.get(userId);
+        if (presence == null) return new PresenceDTO(userId, OFFLINE, null);
+        return toDTO(presence);
+    }
+
+    /**
+     * wheel 을 현재 시각까지 돌리면서 만료된 칸의 사용자를 away 로 바꾼다
+     */
+    @Scheduled(fixedRateString = "${haksamate.presence.tick-ms:1000}")
+    public void tick() {
+        long targetTick = System.currentTimeMillis() / tickMillis;
+        List<UserPresence> changed = new ArrayList<>();
+        synchronized (this) {
+            while (currentTick < targetTick) {
+                currentTick++;
+                Set<UserPresence> slot = wheel.get((int) (currentTick & wheelMask));
+                if (slot.isEmpty()) continue;
+                for (UserPresence presence : new ArrayList<>(slot)) {
+                    if (presence.deadlineTick > currentTick) continue;
+                    slot.remove(presence);
+                    presence.deadlineTick = -1;
+                    // 세션은 살아 있는데 하트비트도 없는 상태 (앱이 백그라운드로 간 경우 등)
+                    if (setStatus(presence, presence.sessions.isEmpty() ? OFFLINE : AWAY)) {
+                        changed.add(presence);
+                    }
+                }
+            }
+        }
+        changed.forEach(this::notifyPartners);
+    }
+
+    private void schedule(UserPresence presence) {
+        long deadline = currentTick + timeoutTicks;
+        if (presence.deadlineTick == deadline) return;
+        unschedule(presence);
+        wheel.get((int) (deadline & wheelMask)).add(presence);
+        presence.deadlineTick = deadline;
+    }
+
+    private void unschedule(UserPresence presence) {
+        if (presence.deadlineTick < 0) return;
+        wheel.get((int) (presence.deadlineTick & wheelMask)).remove(presence);
+        presence.deadlineTick = -1;
+    }
+
+    private boolean setStatus(UserPresence presence, String status) {
+        if (status.equals(presence.status)) return false;
+        presence.status = status;
+        return true;
+    }
+
+    private void notifyPartners(UserPresence presence) {
+        try {
+            PresenceDTO dto = toDTO(presence);
+            Set<UUID> partners = new HashSet<>();
+            for (ChatRoom room : chatRoomRepository.findActiveByUserId(presence.userId)) {
+                UUID user1 = room.getChatUsr1Id().getId();
+                UUID user2 = room.getChatUsr2Id().getId();
+                partners.add(presence.userId.equals(user1) ? user2 : user1);
+            }
+            for (UUID partner : partners) {
+                messagingTemplate.convertAndSendToUser(partner.toString(), "/queue/presence", dto);
+            }
+            System.out.println("🟢 접속 상태 변경: " + presence.userId + " → " + dto.getStatus() + " (알림 " + partners.size() + "명)");
+        } catch (Exception e) {
+            System.err.println("❌ 접속 상태 알림 실패: " + presence.userId + " - " + e.getMessage());
+        }
+    }
+
+    private PresenceDTO toDTO(UserPresence presence) {
+        return new PresenceDTO(presence.userId, presence.status, presence.lastSeenAt > 0 ? presence.lastSeenAt : null);
+    }
+}
@@ -0,0 +1,296 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.entity.History;
+import com.mega.haksamate.entity.Profile;
+import com.mega.haksamate.repository.ProfileRepository;
+import com.mega.haksamate.repository.SearchHistoryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 사용자별 최근 검색어 (메모리 ring buffer + write-behind)
+ * - 사용자마다 최근 max-per-user 개 검색어를 중복 없이 최신순으로 메모리에 두고, 조회/추천은 메모리에서 바로 답한다
+ * - 추가/삭제는 메모리에 먼저 반영하고 사용자별 대기 목록에 모았다가 flush-interval-ms 마다 사용자 단위로 DB 에 쓴다
+ *   (같은 검색어를 여러 번 검색해도 마지막 한 번만 쓴다)
+ * - 일시적인 실패는 다음 주기에 다시 쓰고, 다시 해도 실패할 행은 버리고 search.history.dropped 로 센다
+ * - 메모리에는 최근 사용한 max-users 명만 올려 두고, 아직 DB 에 쓰지 않은 사용자는 내리지 않는다
+ * - DB 에 쌓인 오래된 기록은 trim 작업이 사용자마다 max-per-user 개만 남기고 지운다
+ */
+@Component
+public class SearchHistoryBuffer {
+
+    // search_history.keyword 컬럼 길이
+    public static final int MAX_KEYWORD_LENGTH = 255;
+
+    private static final int SUGGESTION_LIMIT = 5;
+    private static final long DELETED = -1L;
+
+    /**
+     * 한 사용자의 최근 검색어 (고정 크기 원형 배열, 논리 위치 0 이 가장 최근)
+     */
+    private static final class RecentSearches {
+        final String[] slots;
+        int start;
+        int size;
+        boolean evicted;  // 메모리에서 내려간 뒤에는 쓰지 않고 다시 연다
+
+        RecentSearches(int capacity) {
+            this.slots = new String[capacity];
+        }
+
+        synchronized void add(String keyword) {
+            remove(keyword);
+            start = (start - 1 + slots.length) % slots.length;
+            // 가득 찬 경우 새 start 자리가 가장 오래된 검색어 자리라 자연스럽게 덮어쓴다
+            slots[start] = keyword;
+            if (size < slots.length) size++;
+        }
+
+        synchronized void remove(String keyword) {
+            for (int i = 0; i < size; i++) {
+                if (slots[index(i)].equals(keyword)) {
+                    for (int j = i; j < size - 1; j++) {
+                        slots[index(j)] = slots[index(j + 1)];
+                    }
+                    slots[index(--size)] = null;
+                    return;
+                }
+            }
+        }
+
+        synchronized void clear() {
+            for (int i = 0; i < size; i++) {
+                slots[index(i)] = null;
+            }
+            size = 0;
+        }
+
+        synchronized List<String> matching(String fragment, int limit) {
+            List<String> result = new ArrayList<>(Math.min(size, limit));
+            for (int i = 0; i < size && result.size() < limit; i++) {
+                String keyword = slots[index(i)];
+                if (fragment == null || keyword.contains(fragment)) {
+                    result.add(keyword);
+                }
+            }
+            return result;
+        }
+
+        private int index(int logical) {
+            return (start + logical) % slots.length;
+        }
+    }
+
+    /**
+     * 아직 DB 에 쓰지 않은 변경 (clearAll 이 먼저, 그 다음 검색어별 마지막 동작: 검색 시각 또는 DELETED)
+     */
+    private static final class PendingWrites {
+        boolean clearAll;
+        final Map<String, Long> keywords = new LinkedHashMap<>();
+
+        // 실패해서 되돌린 older 를 이 변경 앞에 끼워 넣는다
+        void prepend(PendingWrites older) {
+            if (clearAll) return;
+            clearAll = older.clearAll;
+            older.keywords.forEach(keywords::putIfAbsent);
+        }
+    }
+
+    private final SearchHistoryRepository searchHistoryRepository;
+    private final ProfileRepository profileRepository;
+    private final int maxPerUser;
+    private final int maxUsers;
+    private final Counter dropped;
+
+    // 최근 사용 순서 (this.loaded 로 동기화)
+    private final LinkedHashMap<UUID, RecentSearches> loaded = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<UUID, PendingWrites> pending = new ConcurrentHashMap<>();
+    private final Set<UUID> flushing = ConcurrentHashMap.newKeySet();
+
+    public SearchHistoryBuffer(SearchHistoryRepository searchHistoryRepository,
+                               ProfileRepository profileRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${haksamate.search.history.max-per-user:20}") int maxPerUser,
+                               @Value("${haksamate.search.history.max-users:10000}") int maxUsers) {
+        this.searchHistoryRepository = searchHistoryRepository;
+        this.profileRepository = profileRepository;
+        this.maxPerUser = maxPerUser;
+        this.maxUsers = maxUsers;
+        this.dropped = Counter.builder("search.history.dropped")
+                .description("DB 에 쓸 수 없어 버린 검색 기록 수")
+                .register(meterRegistry);
+    }
+
+    public List<String> recent(UUID userId) {
+        return open(userId).matching(null, maxPerUser);
+    }
+
+    public List<String> suggest(UUID userId, String fragment) {
+        return open(userId).matching(fragment, SUGGESTION_LIMIT);
+    }
+
+    public void add(UUID userId, String keyword) {
+        if (keyword.length() > MAX_KEYWORD_LENGTH) {
+            throw new IllegalArgumentException("검색어는 " + MAX_KEYWORD_LENGTH + "자까지 저장할 수 있습니다.");
+        }
+        long now = System.currentTimeMillis();
+        change(userId, recent -> recent.add(keyword), writes -> writes.keywords.put(keyword, now));
+    }
+
+    public void remove(UUID userId, String keyword) {
+        change(userId, recent -> recent.remove(keyword), writes -> writes.keywords.put(keyword, DELETED));
+    }
+
+    public void clear(UUID userId) {
+        change(userId, RecentSearches::clear, writes -> {
+            writes.clearAll = true;
+            writes.keywords.clear();
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${haksamate.search.history.flush-interval-ms:2000}")
+    public void flush() {
+        if (pending.isEmpty()) return;
+        // 사용자 단위로 쓴다 (한 사용자의 실패가 다른 사용자의 기록까지 막지 않도록)
+        for (UUID userId : List.copyOf(pending.keySet())) {
+            // 꺼내는 동안 eviction 되지 않도록 flushing 에 먼저 넣는다
+            flushing.add(userId);
+            try {
+                PendingWrites writes = pending.remove(userId);
+                if (writes == null) continue;
+                try {
+                    write(userId, writes);
+                } catch (Exception e) {
+                    System.err.println("❌ 검색 기록 저장 실패 (다음 주기에 다시 시도): " + userId + " - " + e.getMessage());
+                    pending.merge(userId, writes, (newer, older) -> {
+                        newer.prepend(older);
+                        return newer;
+                    });
+                }
+            } finally {
+                flushing.remove(userId);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${haksamate.search.history.trim-interval-ms:3600000}")
+    public void trim() {
+        int deleted = searchHistoryRepository.trimToLatest(maxPerUser);
+        if (deleted > 0) {
+            System.out.println("🧹 오래된 검색 기록 " + deleted + "건 삭제");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void write(UUID userId, PendingWrites writes) {
+        if (writes.clearAll) {
+            searchHistoryRepository.deleteAllByUserId(userId);
+        }
+        if (writes.keywords.isEmpty()) return;
+        searchHistoryRepository.deleteKeywords(userId, writes.keywords.keySet());
+
+        Profile profile = profileRepository.getReferenceById(userId);
+        List<Map.Entry<String, Long>> searches = writes.keywords.entrySet().stream()
+                .filter(entry -> entry.getValue() != DELETED)
+                .toList();
+        if (searches.isEmpty()) return;
+        try {
+            searchHistoryRepository.saveAll(searches.stream().map(entry -> toHistory(profile, entry)).toList());
+        } catch (NonTransientDataAccessException e) {
+            // 다시 해도 실패할 행(너무 긴 검색어, 탈퇴한 사용자 등)이 섞여 있다: 한 건씩 쓰고 실패한 건은 버린다
+            for (Map.Entry<String, Long> search : searches) {
+                try {
+                    searchHistoryRepository.save(toHistory(profile, search));
+                } catch (NonTransientDataAccessException rowFailure) {
+                    dropped.increment();
+                    System.err.println("❌ 저장할 수 없는 검색 기록을 버림: " + userId + " - "
+                            + rowFailure.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private static History toHistory(Profile profile, Map.Entry<String, Long> search) {
+        return History.builder()
+                .profile(profile)
+                .keyword(search.getKey())
+                .searchAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(search.getValue()), ZoneId.systemDefault()))
+                .build();
+    }
+
+    // 메모리와 대기 목록을 같은 잠금 안에서 바꿔서, 순서가 뒤바뀐 채로 DB 에 쓰이거나 eviction 에 묻히지 않게 한다
+    private void change(UUID userId, Consumer<RecentSearches> memory, Consumer<PendingWrites> write) {
+        while (true) {
+            RecentSearches recent = open(userId);
+            synchronized (recent) {
+                if (recent.evicted) continue;
+                memory.accept(recent);
+                pending.compute(userId, (id, writes) -> {
+                    PendingWrites result = writes != null ? writes : new PendingWrites();
+                    write.accept(result);
+                    return result;
+                });
+                return;
+            }
+        }
+    }
+
+    private RecentSearches open(UUID userId) {
+        synchronized (loaded) {
+            RecentSearches recent = loaded.get(userId);
+            if (recent != null) return recent;
+        }
+        // 메모리에 없는 사용자는 대기 중인 변경도 없으므로 DB 가 최신이다
+        if (!profileRepository.existsById(userId)) {
+            throw new NoSuchElementException("사용자를 찾을 수 없습니다: " + userId);
+        }
+        RecentSearches recent = new RecentSearches(maxPerUser);
+        List<History> rows = searchHistoryRepository.findByProfile_IdOrderBySearchAtDescIdDesc(
+                userId, PageRequest.of(0, maxPerUser));
+        // 오래된 것부터 넣어야 가장 최근 검색어가 맨 앞에 온다
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            recent.add(rows.get(i).getKeyword());
+        }
+
+        synchronized (loaded) {
+            RecentSearches existing = loaded.putIfAbsent(userId, recent);
+            if (existing != null) return existing;
+            Iterator<Map.Entry<UUID, RecentSearches>> it = loaded.entrySet().iterator();
+            while (loaded.size() > maxUsers && it.hasNext()) {
+                Map.Entry<UUID, RecentSearches> candidate = it.next();
+                if (candidate.getKey().equals(userId)) continue;
+                synchronized (candidate.getValue()) {
+                    if (!pending.containsKey(candidate.getKey()) && !flushing.contains(candidate.getKey())) {
+                        candidate.getValue().evicted = true;
+                        it.remove();
+                    }
+                }
+            }
+        }
+        return recent;
+    }
+}
@@ -1,67 +1,34 @@
 package com.mega.haksamate.service;
 
-import com.mega.haksamate.entity.History;
-import com.mega.haksamate.entity.Profile;
-
-import com.mega.haksamate.repository.ProfileRepository;
-import com.mega.haksamate.repository.SearchHistoryRepository;
-
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
+// 최근 검색어는 SearchHistoryBuffer 가 메모리에서 답하고, DB 쓰기는 모아서 나중에 한다
 @Service
 @RequiredArgsConstructor
 public class SearchService {
-    private final SearchHistoryRepository searchHistoryRepository;
-    private final ProfileRepository profileRepository;
+    private final SearchHistoryBuffer searchHistoryBuffer;
 
-    @Transactional(readOnly = true)
     public List<String> getSuggestions(UUID userId, String keyword) {
-        Profile user = profileRepository.findById(userId).orElseThrow();
-        return searchHistoryRepository
-                .findTop5ByProfileAndKeywordContainingOrderBySearchAtDesc(user, keyword)
-                .stream()
-                .map(History::getKeyword)
-                .distinct()
-                .collect(Collectors.toList());
+        return searchHistoryBuffer.suggest(userId, keyword);
     }
 
-    @Transactional(readOnly = true)
     public List<String> getSearchHistory(UUID userId) {
-        Profile user = profileRepository.findById(userId).orElseThrow();
-        return searchHistoryRepository.findAllByProfileOrderBySearchAtDesc(user)
-                .stream()
-                .map(History::getKeyword)
-                .collect(Collectors.toList());
+        return searchHistoryBuffer.recent(userId);
     }
 
-    @Transactional
     public void addSearchHistory(UUID userId, String keyword) {
-        Profile user = profileRepository.findById(userId).orElseThrow();
-        searchHistoryRepository.deleteByProfileAndKeyword(user, keyword);
-        History history = History.builder()
-                .profile(user)
-                .keyword(keyword)
-                .searchAt(LocalDateTime.now())
-                .build();
-        searchHistoryRepository.save(history);
+        searchHistoryBuffer.add(userId, keyword);
     }
 
-    @Transactional
     public void deleteSearchHistory(UUID userId, String keyword) {
-        Profile user = profileRepository.findById(userId).orElseThrow();
-        searchHistoryRepository.deleteByProfileAndKeyword(user, keyword);
+        searchHistoryBuffer.remove(userId, keyword);
     }
 
-    @Transactional
     public void deleteAllSearchHistory(UUID userId) {
-        Profile user = profileRepository.findById(userId).orElseThrow();
-        searchHistoryRepository.deleteAllByProfile(user);
+        searchHistoryBuffer.clear(userId);
     }
 }
@@ -0,0 +1,70 @@
+package com.mega.haksamate.websocket;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.util.MimeType;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * STOMP 용 CBOR 인코딩 설정
+ * - 필드 구조는 JSON 과 같고 LocalDateTime 만 epoch millisecond 숫자로 주고받는다
+ */
+public final class CborPayloadSupport {
+
+    public static final MimeType APPLICATION_CBOR = new MimeType("application", "cbor");
+
+    private CborPayloadSupport() {
+    }
+
+    public static ObjectMapper createMapper() {
+        SimpleModule epochMillis = new SimpleModule("epoch-millis");
+        epochMillis.addSerializer(LocalDateTime.class, new EpochMillisSerializer());
+        epochMillis.addDeserializer(LocalDateTime.class, new EpochMillisDeserializer());
+
+        return CBORMapper.builder()
+                .addModule(new JavaTimeModule())
+                .addModule(epochMillis)
+                .build();
+    }
+
+    /**
+     * content-type 이 application/cbor 인 프레임만 처리하는 변환기 (content-type 이 없으면 JSON 변환기로 넘어간다)
+     */
+    public static MappingJackson2MessageConverter createConverter() {
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter(APPLICATION_CBOR);
+        converter.setObjectMapper(createMapper());
+        converter.setStrictContentTypeMatch(true);
+        return converter;
+    }
+
+    private static class EpochMillisSerializer extends JsonSerializer<LocalDateTime> {
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeNumber(value.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    private static class EpochMillisDeserializer extends JsonDeserializer<LocalDateTime> {
+        @Override
+        public LocalDateTime deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+                return LocalDateTime.ofInstant(Instant.ofEpochMilli(p.getLongValue()), ZoneId.systemDefault());
+            }
+            return LocalDateTime.parse(p.getValueAsString());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.mega.haksamate.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * inbound SEND 프레임 속도 제한
+ * - 세션별, 사용자별(여러 기기 합산) 버킷을 destination 종류(chat / location / 기타)마다 따로 둔다
+ * - 버킷은 GCRA 방식으로 AtomicLong 하나(다음 허용 시각)만 CAS 로 갱신한다 (lock 없음)
+ * - 한도를 넘은 프레임은 핸들러로 넘기지 않고 버린다 (DB 조회/브로드캐스트 전에 차단)
+ */
+@Component
+public class InboundRateLimiter implements ChannelInterceptor {
+
+    private enum Category {
+        CHAT("chat"), LOCATION("location"), OTHER("other");
+
+        final String tag;
+
+        Category(String tag) {
+            this.tag = tag;
+        }
+
+        static Category of(String destination) {
+            if (destination.startsWith("/app/chat.")) return CHAT;
+            if (destination.startsWith("/app/location.")) return LOCATION;
+            return OTHER;
+        }
+    }
+
+    /**
+     * GCRA 버킷: tat(theoretical arrival time) 이 now + 허용 burst 범위 안이면 통과
+     */
+    static final class Bucket {
+        private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE); // nanoTime 은 음수일 수 있음
+
+        boolean tryAcquire(long now, long interval, long tolerance) {
+            while (true) {
+                long current = tat.get();
+                long next = Math.max(current, now) + interval;
+                if (next - now > tolerance) return false;
+                if (tat.compareAndSet(current, next)) return true;
+            }
+        }
+
+        boolean isIdle(long now) {
+            return tat.get() <= now;
+        }
+    }
+
+    private record Budget(long interval, long tolerance) {
+        static Budget of(double perSecond, int burst) {
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+            return new Budget(interval, interval * Math.max(1, burst));
+        }
+    }
+
+    private final Budget[] sessionBudgets = new Budget[Category.values().length];
+    private final Budget[] userBudgets = new Budget[Category.values().length];
+    private final Counter[] sessionLimited = new Counter[Category.values().length];
+    private final Counter[] userLimited = new Counter[Category.values().length];
+
+    private final Map<String, Bucket[]> sessionBuckets = new ConcurrentHashMap<>();
+    private final Map<String, Bucket[]> userBuckets = new ConcurrentHashMap<>();
+
+    // 테스트에서 시간을 직접 돌릴 수 있도록 둔 nanoTime
+    LongSupplier clock = System::nanoTime;
+
+    public InboundRateLimiter(MeterRegistry meterRegistry,
+                              @Value("${haksamate.websocket.rate.chat.per-second:5}") double chatPerSecond,
+                              @Value("${haksamate.websocket.rate.chat.burst:20}") int chatBurst,
+                              @Value("${haksamate.websocket.rate.location.per-second:2}") double locationPerSecond,
+                              @Value("${haksamate.websocket.rate.location.burst:5}") int locationBurst,
+                              @Value("${haksamate.websocket.rate.other.per-second:10}") double otherPerSecond,
+                              @Value("${haksamate.websocket.rate.other.burst:30}") int otherBurst,
+                              @Value("${haksamate.websocket.rate.user-multiplier:2}") double userMultiplier) {
+        setBudget(Category.CHAT, chatPerSecond, chatBurst, userMultiplier);
+        setBudget(Category.LOCATION, locationPerSecond, locationBurst, userMultiplier);
+        setBudget(Category.OTHER, otherPerSecond, otherBurst, userMultiplier);
+
+        for (Category category : Category.values()) {
+            sessionLimited[category.ordinal()] = Counter.builder("stomp.inbound.rate.limited")
+                    .tag("type", category.tag)
+                    .tag("scope", "session")
+                    .description("속도 제한으로 버린 inbound 프레임 수")
+                    .register(meterRegistry);
+            userLimited[category.ordinal()] = Counter.builder("stomp.inbound.rate.limited")
+                    .tag("type", category.tag)
+                    .tag("scope", "user")
+                    .description("속도 제한으로 버린 inbound 프레임 수")
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (destination == null || sessionId == null || !destination.startsWith("/app/")) {
+            return message;
+        }
+
+        Category category = Category.of(destination);
+        int slot = category.ordinal();
+        long now = clock.getAsLong();
+
+        Budget sessionBudget = sessionBudgets[slot];
+        Bucket sessionBucket = sessionBuckets.computeIfAbsent(sessionId, id -> newBuckets())[slot];
+        if (!sessionBucket.tryAcquire(now, sessionBudget.interval(), sessionBudget.tolerance())) {
+            sessionLimited[slot].increment();
+            return null;
+        }
+
+        String userId = userIdOf(message);
+        if (userId != null) {
+            Budget userBudget = userBudgets[slot];
+            Bucket userBucket = userBuckets.computeIfAbsent(userId, id -> newBuckets())[slot];
+            if (!userBucket.tryAcquire(now, userBudget.interval(), userBudget.tolerance())) {
+                userLimited[slot].increment();
+                return null;
+            }
+        }
+        return message;
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessionBuckets.remove(event.getSessionId());
+    }
+
+    // 다 찬(한동안 요청이 없던) 사용자 버킷 정리
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleUsers() {
+        long now = clock.getAsLong();
+        userBuckets.entrySet().removeIf(entry -> {
+            for (Bucket bucket : entry.getValue()) {
+                if (!bucket.isIdle(now)) return false;
+            }
+            return true;
+        });
+    }
+
+    private void setBudget(Category category, double perSecond, int burst, double userMultiplier) {
+        sessionBudgets[category.ordinal()] = Budget.of(perSecond, burst);
+        userBudgets[category.ordinal()] = Budget.of(perSecond * userMultiplier, (int) Math.ceil(burst * userMultiplier));
+    }
+
+    private static Bucket[] newBuckets() {
+        Bucket[] buckets = new Bucket[Category.values().length];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new Bucket();
+        }
+        return buckets;
+    }
+
+    // CONNECT 의 userId 헤더 또는 location.join 에서 저장한 세션 속성
+    private static String userIdOf(Message<?> message) {
+        Map<String, Object> attributes = SimpMessageHeaderAccessor.getSessionAttributes(message.getHeaders());
+        Object userId = attributes != null ? attributes.get("userId") : null;
+        return userId != null ? userId.toString() : null;
+    }
+}
@@ -0,0 +1,246 @@
+package com.mega.haksamate.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mega.haksamate.cluster.ClusterMessagingTemplate;
+import com.mega.haksamate.dto.LocationBatchDTO;
+import com.mega.haksamate.dto.LocationShareDTO;
+import com.mega.haksamate.service.PresenceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.IOException;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 위치 칸 topic 프레임을 구독(subscription)마다 delta 로 줄여 보낸다 (SUBSCRIBE 에 location-encoding: delta 헤더를 준 구독만)
+ * - 구독에서 처음 보는 사용자: 짧은 id 를 붙인 전체 기록 {"i":id,"u":userId,"n":이름,"a":위도,"o":경도,"s":상태,"ts":시각}
+ *   (위도/경도는 1e-5 도 단위 정수)
+ * - 그 다음부터: [id, 위도 차이, 경도 차이] 배열만 보낸다. 상태/이름/공개 여부가 바뀌면 다시 전체 기록
+ * - offline: [id] 를 보내고 그 사용자를 잊는다. 여러 명을 묶은 LocationBatchDTO 프레임은 {"b":[...]} 로 보낸다
+ * - 구독이 기억하는 사용자가 max-users 에 닿으면 목록을 비우고 {"r":1} 을 먼저 보낸다.
+ *   클라이언트는 r 을 받으면 그때까지 받은 id 를 모두 잊고, 뒤따르는 전체 기록부터 다시 쌓는다
+ *   (프레임 하나에 r 과 전체 기록이 같이 가야 하므로 사용자 한 명의 프레임도 {"b":[{"r":1}, 전체 기록]} 으로 보낸다)
+ * - 느린 세션에서 버려진 프레임은 SlowConsumerGuard 에서 이미 걸러진 뒤라 delta 기준이 어긋나지 않는다
+ */
+@Component
+public class LocationDeltaEncoder implements ChannelInterceptor {
+
+    public static final String ENCODING_HEADER = "location-encoding";
+    private static final String DELTA = "delta";
+    private static final double SCALE = 1e5;
+    private static final Map<String, Integer> RESET = Map.of("r", 1);
+
+    private static final class Known {
+        final int id;
+        long latitude;
+        long longitude;
+        String name;
+        String status;
+        boolean visible;
+
+        Known(int id) {
+            this.id = id;
+        }
+    }
+
+    // 구독 하나가 기억하는 사용자 목록 (max-users 를 넘으면 비우고 다시 전체 기록부터)
+    private static final class SubscriptionState {
+        final Map<UUID, Known> users = new HashMap<>();
+        int nextId = 1;
+    }
+
+    private final ObjectMapper objectMapper;
+    private final OutboundPayloadRegistry payloadRegistry;
+    private final int maxUsersPerSubscription;
+
+    // sessionId -> (subscriptionId -> 상태)
+    private final Map<String, Map<String, SubscriptionState>> sessions = new ConcurrentHashMap<>();
+
+    private final Counter originalBytes;
+    private final Counter encodedBytes;
+
+    public LocationDeltaEncoder(ObjectMapper objectMapper,
+                                OutboundPayloadRegistry payloadRegistry,
+                                MeterRegistry meterRegistry,
+                                @Value("${haksamate.websocket.location-delta.max-users:2000}") int maxUsersPerSubscription) {
+        this.objectMapper = objectMapper;
+        this.payloadRegistry = payloadRegistry;
+        this.maxUsersPerSubscription = maxUsersPerSubscription;
+        this.originalBytes = Counter.builder("stomp.location.delta.bytes")
+                .tag("type", "original")
+                .description("delta 구독으로 보낸 위치 프레임의 원래 JSON 크기")
+                .register(meterRegistry);
+        this.encodedBytes = Counter.builder("stomp.location.delta.bytes")
+                .tag("type", "encoded")
+                .description("delta 로 줄여서 실제로 보낸 크기")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor stompAccessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (stompAccessor != null && (StompCommand.SUBSCRIBE.equals(stompAccessor.getCommand())
+                || StompCommand.UNSUBSCRIBE.equals(stompAccessor.getCommand()))) {
+            trackSubscription(stompAccessor);
+            return message;
+        }
+        if (sessions.isEmpty()
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null || !destination.startsWith(LocationSubscriptionRouter.CELL_DESTINATION_PREFIX)) {
+            return message;
+        }
+        Map<String, SubscriptionState> subscriptions = sessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        SubscriptionState state = subscriptions != null
+                ? subscriptions.get(SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()))
+                : null;
+        if (state == null || !(message.getPayload() instanceof byte[] json)) {
+            return message;
+        }
+
+        byte[] encoded = encode(state, json);
+        if (encoded == null) {
+            return message;
+        }
+        originalBytes.increment(json.length);
+        encodedBytes.increment(encoded.length);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        accessor.setNativeHeader(ENCODING_HEADER, DELTA);
+        // payload 가 delta 형식으로 바뀌었으므로 원래 DTO 타입 정보는 더 이상 맞지 않는다
+        accessor.removeHeader(ClusterMessagingTemplate.PAYLOAD_TYPE_HEADER);
+        return MessageBuilder.createMessage(encoded, accessor.getMessageHeaders());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+
+    // inbound: location-encoding: delta 로 구독하면 상태를 만들고, 구독 취소 시 지운다
+    private void trackSubscription(StompHeaderAccessor accessor) {
+        String sessionId = accessor.getSessionId();
+        String subscriptionId = accessor.getSubscriptionId();
+        if (sessionId == null || subscriptionId == null) return;
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand())
+                && DELTA.equalsIgnoreCase(accessor.getFirstNativeHeader(ENCODING_HEADER))) {
+            sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                    .put(subscriptionId, new SubscriptionState());
+        } else if (StompCommand.UNSUBSCRIBE.equals(accessor.getCommand())) {
+            Map<String, SubscriptionState> subscriptions = sessions.get(sessionId);
+            if (subscriptions != null) {
+                subscriptions.remove(subscriptionId);
+            }
+        }
+    }
+
+    private byte[] encode(SubscriptionState state, byte[] json) {
+        try {
+            Object payload = payloadRegistry.lookup(json);
+            if (payload == null) {
+                // 다른 노드에서 넘어온 메시지는 원본 객체가 없으므로 JSON 을 읽는다
+                JsonNode tree = objectMapper.readTree(json);
+                payload = tree.has("users")
+                        ? objectMapper.treeToValue(tree, LocationBatchDTO.class)
+                        : objectMapper.treeToValue(tree, LocationShareDTO.class);
+            }
+            synchronized (state) {
+                if (payload instanceof LocationShareDTO location) {
+                    List<Object> frames = new ArrayList<>(2);
+                    frame(state, location, frames);
+                    return objectMapper.writeValueAsBytes(frames.size() == 1 ? frames.get(0) : Map.of("b", frames));
+                }
+                if (payload instanceof LocationBatchDTO batch) {
+                    List<Object> frames = new ArrayList<>(batch.getUsers().size() + 1);
+                    for (LocationShareDTO location : batch.getUsers()) {
+                        frame(state, location, frames);
+                    }
+                    return objectMapper.writeValueAsBytes(Map.of("b", frames));
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            System.err.println("❌ 위치 delta 인코딩 실패: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // location 하나를 frames 에 붙인다 (기억하는 목록을 비운 경우 reset 을 먼저 붙인다)
+    private void frame(SubscriptionState state, LocationShareDTO location, List<Object> frames) {
+        long latitude = Math.round(location.getLatitude() * SCALE);
+        long longitude = Math.round(location.getLongitude() * SCALE);
+        Known known = state.users.get(location.getUserId());
+
+        if (PresenceService.OFFLINE.equals(location.getStatus())) {
+            if (known == null) {
+                frames.add(fullRecord(-1, location, latitude, longitude));
+                return;
+            }
+            state.users.remove(location.getUserId());
+            frames.add(new int[]{known.id});
+            return;
+        }
+        if (known != null && known.visible == location.isVisible()
+                && known.status.equals(location.getStatus()) && known.name.equals(location.getUserName())) {
+            long dLat = latitude - known.latitude;
+            long dLon = longitude - known.longitude;
+            known.latitude = latitude;
+            known.longitude = longitude;
+            frames.add(new long[]{known.id, dLat, dLon});
+            return;
+        }
+
+        if (known == null) {
+            if (state.users.size() >= maxUsersPerSubscription) {
+                // 클라이언트도 같이 비우도록 알린다 (모르고 있으면 예전 id 로 온 delta 를 엉뚱한 사용자에 적용한다)
+                state.users.clear();
+                frames.add(RESET);
+            }
+            known = new Known(state.nextId++);
+            state.users.put(location.getUserId(), known);
+        }
+        known.latitude = latitude;
+        known.longitude = longitude;
+        known.name = location.getUserName() != null ? location.getUserName() : "";
+        known.status = location.getStatus() != null ? location.getStatus() : "";
+        known.visible = location.isVisible();
+        frames.add(fullRecord(known.id, location, latitude, longitude));
+    }
+
+    private static Map<String, Object> fullRecord(int id, LocationShareDTO location, long latitude, long longitude) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("i", id);
+        record.put("u", location.getUserId());
+        record.put("n", location.getUserName());
+        record.put("a", latitude);
+        record.put("o", longitude);
+        record.put("s", location.getStatus());
+        record.put("v", location.isVisible());
+        if (location.getTimestamp() != null) {
+            record.put("ts", location.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        return record;
+    }
+}
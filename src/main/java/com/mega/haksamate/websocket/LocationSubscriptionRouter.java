@@ -0,0 +1,240 @@
+package com.mega.haksamate.websocket;
+
+import com.mega.haksamate.cluster.SubscriptionInterestTracker;
+import com.mega.haksamate.service.LocationGridIndex;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * 위치 topic 을 격자 칸 단위로 나눈다
+ * - 서버는 /topic/location/cell/{칸} 으로만 보낸다
+ * - 클라이언트가 /topic/location/nearby 를 구독하면, 같은 subscription id 로 "내 주변 칸들" 패턴 구독으로 바꿔 등록한다
+ * - 사용자가 다른 칸으로 움직이면 브로커 구독을 주변 칸 기준으로 다시 등록한다 (클라이언트는 아무것도 안 해도 됨)
+ * - 클러스터 관심 등록도 칸 단위로 여기서 관리한다
+ */
+@Component
+public class LocationSubscriptionRouter implements ChannelInterceptor {
+
+    public static final String NEARBY_DESTINATION = "/topic/location/nearby";
+    public static final String CELL_DESTINATION_PREFIX = "/topic/location/cell/";
+
+    private static final class NearbySubscription {
+        final String sessionId;
+        final String subscriptionId;
+        UUID userId;
+        List<String> cells = List.of();
+
+        NearbySubscription(String sessionId, String subscriptionId, UUID userId) {
+            this.sessionId = sessionId;
+            this.subscriptionId = subscriptionId;
+            this.userId = userId;
+        }
+    }
+
+    private final LocationGridIndex locationGridIndex;
+    private final SubscriptionInterestTracker interestTracker;
+    private final ObjectProvider<SimpleBrokerMessageHandler> brokerProvider;
+
+    // 구독자가 받아볼 반경 (이 반경에 걸치는 칸들을 구독)
+    @Value("${haksamate.location.subscribe-radius-km:1.0}")
+    private double subscribeRadiusKm;
+
+    // 아래 상태는 모두 this 로 동기화
+    private final Map<String, Map<String, NearbySubscription>> sessionSubscriptions = new HashMap<>();
+    private final Map<UUID, Set<NearbySubscription>> userSubscriptions = new HashMap<>();
+    private final Map<UUID, double[]> lastPositions = new HashMap<>();
+
+    public LocationSubscriptionRouter(LocationGridIndex locationGridIndex,
+                                      SubscriptionInterestTracker interestTracker,
+                                      ObjectProvider<SimpleBrokerMessageHandler> brokerProvider) {
+        this.locationGridIndex = locationGridIndex;
+        this.interestTracker = interestTracker;
+        this.brokerProvider = brokerProvider;
+    }
+
+    public static String cellDestination(String cellName) {
+        return CELL_DESTINATION_PREFIX + cellName;
+    }
+
+    // ===== inbound: SUBSCRIBE /topic/location/nearby → 주변 칸 패턴 구독 =====
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getSessionId() == null) return message;
+
+        if (StompCommand.SUBSCRIBE.equals(accessor.getCommand()) && NEARBY_DESTINATION.equals(accessor.getDestination())
+                && accessor.getSubscriptionId() != null) {
+            String pattern = subscribe(accessor.getSessionId(), accessor.getSubscriptionId(), userIdOf(accessor));
+            if (accessor.isMutable()) {
+                accessor.setDestination(pattern);
+                return message;
+            }
+            StompHeaderAccessor copy = StompHeaderAccessor.wrap(message);
+            copy.setDestination(pattern);
+            return MessageBuilder.createMessage(message.getPayload(), copy.getMessageHeaders());
+        }
+        if (StompCommand.UNSUBSCRIBE.equals(accessor.getCommand()) && accessor.getSubscriptionId() != null) {
+            unsubscribe(accessor.getSessionId(), accessor.getSubscriptionId());
+        }
+        return message;
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        synchronized (this) {
+            Map<String, NearbySubscription> subscriptions = sessionSubscriptions.remove(event.getSessionId());
+            if (subscriptions == null) return;
+            subscriptions.values().forEach(this::forget);
+        }
+    }
+
+    // ===== 위치 변경에 따라 구독 칸 갱신 =====
+
+    /**
+     * CONNECT 헤더 없이 접속한 예전 클라이언트: location.join 에서 알게 된 userId 를 구독에 연결
+     */
+    public synchronized void bindUser(String sessionId, UUID userId) {
+        Map<String, NearbySubscription> subscriptions = sessionSubscriptions.get(sessionId);
+        if (subscriptions == null) return;
+        for (NearbySubscription subscription : subscriptions.values()) {
+            if (subscription.userId == null) {
+                subscription.userId = userId;
+                userSubscriptions.computeIfAbsent(userId, id -> new HashSet<>()).add(subscription);
+                double[] position = lastPositions.get(userId);
+                if (position != null) {
+                    moveTo(subscription, locationGridIndex.cellNamesAround(position[0], position[1], subscribeRadiusKm));
+                }
+            }
+        }
+    }
+
+    public synchronized void onUserMoved(UUID userId, double latitude, double longitude) {
+        lastPositions.put(userId, new double[]{latitude, longitude});
+        Set<NearbySubscription> subscriptions = userSubscriptions.get(userId);
+        if (subscriptions == null || subscriptions.isEmpty()) return;
+
+        List<String> cells = locationGridIndex.cellNamesAround(latitude, longitude, subscribeRadiusKm);
+        for (NearbySubscription subscription : subscriptions) {
+            moveTo(subscription, cells);
+        }
+    }
+
+    public synchronized void onUserLeft(UUID userId) {
+        lastPositions.remove(userId);
+        Set<NearbySubscription> subscriptions = userSubscriptions.get(userId);
+        if (subscriptions == null) return;
+        for (NearbySubscription subscription : subscriptions) {
+            moveTo(subscription, List.of());
+        }
+    }
+
+    // ===== 내부 =====
+
+    private synchronized String subscribe(String sessionId, String subscriptionId, UUID userId) {
+        NearbySubscription subscription = new NearbySubscription(sessionId, subscriptionId, userId);
+        NearbySubscription previous = sessionSubscriptions
+                .computeIfAbsent(sessionId, id -> new HashMap<>())
+                .put(subscriptionId, subscription);
+        if (previous != null) forget(previous);
+
+        if (userId != null) {
+            userSubscriptions.computeIfAbsent(userId, id -> new HashSet<>()).add(subscription);
+            double[] position = lastPositions.get(userId);
+            if (position != null) {
+                subscription.cells = locationGridIndex.cellNamesAround(position[0], position[1], subscribeRadiusKm);
+                subscription.cells.forEach(cell -> interestTracker.acquire(cellDestination(cell)));
+            }
+        }
+        return pattern(subscription.cells);
+    }
+
+    private synchronized void unsubscribe(String sessionId, String subscriptionId) {
+        Map<String, NearbySubscription> subscriptions = sessionSubscriptions.get(sessionId);
+        if (subscriptions == null) return;
+        NearbySubscription subscription = subscriptions.remove(subscriptionId);
+        if (subscription != null) forget(subscription);
+        if (subscriptions.isEmpty()) sessionSubscriptions.remove(sessionId);
+    }
+
+    private void forget(NearbySubscription subscription) {
+        subscription.cells.forEach(cell -> interestTracker.release(cellDestination(cell)));
+        subscription.cells = List.of();
+        if (subscription.userId != null) {
+            Set<NearbySubscription> subscriptions = userSubscriptions.get(subscription.userId);
+            if (subscriptions != null) {
+                subscriptions.remove(subscription);
+                if (subscriptions.isEmpty()) userSubscriptions.remove(subscription.userId);
+            }
+        }
+    }
+
+    private void moveTo(NearbySubscription subscription, List<String> cells) {
+        if (subscription.cells.equals(cells)) return;
+
+        Set<String> added = new HashSet<>(cells);
+        subscription.cells.forEach(added::remove);
+        Set<String> removed = new HashSet<>(subscription.cells);
+        cells.forEach(removed::remove);
+
+        added.forEach(cell -> interestTracker.acquire(cellDestination(cell)));
+        reRegister(subscription, pattern(cells));
+        removed.forEach(cell -> interestTracker.release(cellDestination(cell)));
+        subscription.cells = new ArrayList<>(cells);
+    }
+
+    // 같은 세션/subscription id 로 브로커 구독을 바꿔 등록한다 (클라이언트 쪽 id 는 그대로라 메시지가 그대로 전달됨)
+    private void reRegister(NearbySubscription subscription, String destination) {
+        SimpleBrokerMessageHandler broker = brokerProvider.getIfAvailable();
+        if (broker == null) return;
+        SubscriptionRegistry registry = broker.getSubscriptionRegistry();
+
+        SimpMessageHeaderAccessor unsubscribe = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        unsubscribe.setSessionId(subscription.sessionId);
+        unsubscribe.setSubscriptionId(subscription.subscriptionId);
+        registry.unregisterSubscription(MessageBuilder.createMessage(new byte[0], unsubscribe.getMessageHeaders()));
+
+        SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        subscribe.setSessionId(subscription.sessionId);
+        subscribe.setSubscriptionId(subscription.subscriptionId);
+        subscribe.setDestination(destination);
+        registry.registerSubscription(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+    }
+
+    // AntPathMatcher 의 {변수:정규식} 으로 여러 칸을 한 구독에 담는다
+    private static String pattern(List<String> cells) {
+        return CELL_DESTINATION_PREFIX + "{cell:" + (cells.isEmpty() ? "none" : String.join("|", cells)) + "}";
+    }
+
+    private static UUID userIdOf(StompHeaderAccessor accessor) {
+        Object value = accessor.getSessionAttributes() != null ? accessor.getSessionAttributes().get("userId") : null;
+        if (value == null) return null;
+        try {
+            return value instanceof UUID uuid ? uuid : UUID.fromString(value.toString());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.mega.haksamate.websocket;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 브로드캐스트용으로 직렬화된 JSON 바이트와 원본 객체를 잠시 연결해 두는 저장소
+ * - 같은 브로드캐스트는 구독자가 몇 명이든 같은 byte[] 를 공유하므로 identity 로 찾을 수 있다
+ * - 세션별 인코딩(CBOR 등)이 필요할 때 JSON 을 다시 파싱하지 않고 원본 객체에서 바로 인코딩한다
+ * - 키가 약한 참조라서 메시지 전송이 끝나면 자동으로 정리된다
+ */
+@Component
+public class OutboundPayloadRegistry {
+
+    // byte[] 는 equals/hashCode 를 재정의하지 않으므로 identity 기준으로 동작한다
+    private final Map<byte[], Object> payloads = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<byte[], byte[]> cborEncoded = Collections.synchronizedMap(new WeakHashMap<>());
+
+    public void remember(byte[] serialized, Object payload) {
+        payloads.put(serialized, payload);
+    }
+
+    public Object lookup(byte[] serialized) {
+        return payloads.get(serialized);
+    }
+
+    public byte[] getCbor(byte[] serialized) {
+        return cborEncoded.get(serialized);
+    }
+
+    public void putCbor(byte[] serialized, byte[] cbor) {
+        cborEncoded.put(serialized, cbor);
+    }
+}
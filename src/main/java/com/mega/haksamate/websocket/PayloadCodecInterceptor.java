@@ -0,0 +1,121 @@
+package com.mega.haksamate.websocket;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mega.haksamate.cluster.ClusterMessagingTemplate;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 연결(세션) 단위 payload 인코딩 협상
+ * - CONNECT 프레임의 content-type 헤더가 application/cbor 이면 그 세션에 나가는 JSON 메시지를 CBOR 로 바꿔 보낸다
+ * - 헤더가 없거나 JSON 이면 기존 클라이언트처럼 JSON 그대로 보낸다
+ * - 같은 브로드캐스트는 CBOR 인코딩을 한 번만 하고 CBOR 세션끼리 공유한다
+ * - CBOR 프레임은 content-type: application/octet-stream + payload-encoding: cbor 로 보낸다
+ *   (StompSubProtocolHandler 는 octet-stream 일 때만 binary frame 으로 보내고, 그 외에는 text frame 으로 UTF-8 해석해서 깨진다)
+ */
+@Component
+public class PayloadCodecInterceptor implements ChannelInterceptor {
+
+    public static final String PAYLOAD_ENCODING_HEADER = "payload-encoding";
+    public static final String CBOR_ENCODING = "cbor";
+
+    private final OutboundPayloadRegistry payloadRegistry;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper = CborPayloadSupport.createMapper();
+
+    // CBOR 를 요청한 세션 목록
+    private final Map<String, Boolean> cborSessions = new ConcurrentHashMap<>();
+
+    public PayloadCodecInterceptor(OutboundPayloadRegistry payloadRegistry, ObjectMapper jsonMapper) {
+        this.payloadRegistry = payloadRegistry;
+        this.jsonMapper = jsonMapper;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor stompAccessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (stompAccessor != null && (StompCommand.CONNECT.equals(stompAccessor.getCommand())
+                || StompCommand.STOMP.equals(stompAccessor.getCommand()))) {
+            rememberPreference(stompAccessor);
+            return message;
+        }
+
+        if (cborSessions.isEmpty()
+                || SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null || !cborSessions.containsKey(sessionId) || !(message.getPayload() instanceof byte[] json)) {
+            return message;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        MimeType contentType = accessor.getContentType();
+        if (contentType != null && !MimeTypeUtils.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return message;
+        }
+
+        byte[] cbor = toCbor(json, (String) accessor.getHeader(ClusterMessagingTemplate.PAYLOAD_TYPE_HEADER));
+        if (cbor == null) {
+            return message;
+        }
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader("content-type", MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE);
+        accessor.setNativeHeader(PAYLOAD_ENCODING_HEADER, CBOR_ENCODING);
+        return MessageBuilder.createMessage(cbor, accessor.getMessageHeaders());
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        cborSessions.remove(event.getSessionId());
+    }
+
+    public boolean isCborSession(String sessionId) {
+        return cborSessions.containsKey(sessionId);
+    }
+
+    private void rememberPreference(StompHeaderAccessor accessor) {
+        String requested = accessor.getFirstNativeHeader("content-type");
+        if (requested != null && accessor.getSessionId() != null
+                && CborPayloadSupport.APPLICATION_CBOR.isCompatibleWith(MimeTypeUtils.parseMimeType(requested))) {
+            cborSessions.put(accessor.getSessionId(), Boolean.TRUE);
+        }
+    }
+
+    private byte[] toCbor(byte[] json, String payloadType) {
+        byte[] cached = payloadRegistry.getCbor(json);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            Object original = payloadRegistry.lookup(json);
+            if (original == null) {
+                // 다른 노드에서 넘어온 메시지는 원래 DTO 로 읽어서, 날짜가 로컬 메시지와 같은 epoch millis 로 나가게 한다
+                JavaType type = ClusterMessagingTemplate.resolvePayloadType(jsonMapper, payloadType);
+                original = type != null ? jsonMapper.readValue(json, type) : jsonMapper.readTree(json);
+            }
+            byte[] cbor = cborMapper.writeValueAsBytes(original);
+            payloadRegistry.putCbor(json, cbor);
+            return cbor;
+        } catch (IOException e) {
+            System.err.println("❌ CBOR 변환 실패: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.mega.haksamate.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+
+/**
+ * 기본 JSON 변환기 + 직렬화 결과와 원본 객체를 OutboundPayloadRegistry 에 남겨 둔다
+ */
+public class PayloadRetainingJsonMessageConverter extends MappingJackson2MessageConverter {
+
+    private final OutboundPayloadRegistry payloadRegistry;
+
+    public PayloadRetainingJsonMessageConverter(ObjectMapper objectMapper, OutboundPayloadRegistry payloadRegistry) {
+        setObjectMapper(objectMapper);
+        this.payloadRegistry = payloadRegistry;
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        Object serialized = super.convertToInternal(payload, headers, conversionHint);
+        if (serialized instanceof byte[] bytes) {
+            payloadRegistry.remember(bytes, payload);
+        }
+        return serialized;
+    }
+}
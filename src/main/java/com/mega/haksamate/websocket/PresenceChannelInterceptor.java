@@ -0,0 +1,69 @@
+package com.mega.haksamate.websocket;
+
+import com.mega.haksamate.service.PresenceService;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * inbound 채널에서 접속 상태를 갱신한다
+ * - CONNECT 프레임의 userId 헤더는 확인되지 않은 값이라 Principal 로 만들지 않고, 접속 상태용 세션 속성 userId 로만 둔다
+ * - 그 외 모든 프레임(하트비트 포함)은 마지막 접속 시각만 갱신한다
+ */
+@Component
+public class PresenceChannelInterceptor implements ChannelInterceptor {
+
+    private final PresenceService presenceService;
+
+    public PresenceChannelInterceptor(PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        if (sessionId == null) return message;
+
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor != null && (StompCommand.CONNECT.equals(accessor.getCommand())
+                || StompCommand.STOMP.equals(accessor.getCommand()))) {
+            UUID userId = parseUserId(accessor.getFirstNativeHeader("userId"));
+            if (userId != null) {
+                Map<String, Object> attributes = accessor.getSessionAttributes();
+                if (attributes != null) {
+                    attributes.put("userId", userId);
+                }
+                presenceService.connect(sessionId, userId);
+            }
+            return message;
+        }
+
+        presenceService.touch(sessionId);
+        return message;
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        presenceService.disconnect(event.getSessionId());
+    }
+
+    private static UUID parseUserId(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return UUID.fromString(value.trim());
+        } catch (IllegalArgumentException e) {
+            System.err.println("⚠️ CONNECT userId 헤더 형식 오류: " + value);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.mega.haksamate.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 느린 클라이언트 보호
+ * - outbound 채널에서 세션으로 넘긴 MESSAGE 프레임과, 실제로 소켓에 쓴 프레임을 세어서 세션별 밀린 양/지연을 구한다
+ * - 밀리기 시작하면 위치 칸 topic 프레임(/topic/location/cell/)만 버리고 채팅 등 나머지는 그대로 보낸다
+ *   (초기 목록, offline 묶음, 사용자 전용 큐는 다시 오지 않는 값이라 버리지 않는다)
+ * - 지연이 disconnect-after-ms 이상 이어지면 세션을 끊는다 (버퍼가 계속 커지는 것 방지)
+ * - 세션별 태그 대신 지연 분포/최대값/밀린 세션 수를 메트릭으로 노출한다
+ */
+@Component
+public class SlowConsumerGuard implements ChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    private static final byte[] MESSAGE_COMMAND = "MESSAGE\n".getBytes(StandardCharsets.US_ASCII);
+
+    private static final class SessionState {
+        final WebSocketSession session;
+        // 세션으로 넘겼지만 아직 소켓에 쓰지 못한 프레임의 넘긴 시각 (오래된 순)
+        final ConcurrentLinkedQueue<Long> pending = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pendingCount = new AtomicInteger();
+        final AtomicBoolean closing = new AtomicBoolean();
+
+        SessionState(WebSocketSession session) {
+            this.session = session;
+        }
+
+        long lagNanos(long now) {
+            Long oldest = pending.peek();
+            return oldest != null ? now - oldest : 0L;
+        }
+    }
+
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+
+    private final long dropAfterNanos;
+    private final long disconnectAfterNanos;
+    private final int maxPendingFrames;
+
+    private final Counter droppedLocationFrames;
+    private final Counter slowDisconnects;
+    private final Timer sendTime;
+    private final Timer frameLag;
+
+    public SlowConsumerGuard(MeterRegistry meterRegistry,
+                             @Value("${haksamate.websocket.slow.drop-after-ms:1000}") long dropAfterMillis,
+                             @Value("${haksamate.websocket.slow.disconnect-after-ms:15000}") long disconnectAfterMillis,
+                             @Value("${haksamate.websocket.slow.max-pending-frames:200}") int maxPendingFrames) {
+        this.dropAfterNanos = TimeUnit.MILLISECONDS.toNanos(dropAfterMillis);
+        this.disconnectAfterNanos = TimeUnit.MILLISECONDS.toNanos(disconnectAfterMillis);
+        this.maxPendingFrames = maxPendingFrames;
+
+        this.droppedLocationFrames = Counter.builder("stomp.session.frames.dropped")
+                .tag("type", "location")
+                .description("느린 세션이라 보내지 않고 버린 위치 프레임 수")
+                .register(meterRegistry);
+        this.slowDisconnects = Counter.builder("stomp.session.slow.disconnects")
+                .description("지연이 계속돼서 서버가 끊은 세션 수")
+                .register(meterRegistry);
+        this.sendTime = Timer.builder("stomp.session.send.time")
+                .description("프레임 하나를 소켓에 쓰는 데 걸린 시간")
+                .register(meterRegistry);
+        this.frameLag = Timer.builder("stomp.session.lag")
+                .description("프레임을 세션에 넘긴 뒤 실제로 쓰기까지 걸린 시간")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("stomp.session.lagging", this, guard -> guard.countLagging())
+                .description("지연이 drop-after-ms 를 넘은 세션 수")
+                .register(meterRegistry);
+        Gauge.builder("stomp.session.max.lag", this, guard -> guard.maxLagMillis())
+                .baseUnit("milliseconds")
+                .description("가장 느린 세션의 현재 지연")
+                .register(meterRegistry);
+        Gauge.builder("stomp.session.pending.frames", this, guard -> guard.totalPending())
+                .description("모든 세션에서 아직 쓰지 못한 프레임 수")
+                .register(meterRegistry);
+    }
+
+    // ===== outbound 채널: 보낼지 / 버릴지 / 끊을지 결정 =====
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.MESSAGE) {
+            return message;
+        }
+        SessionState state = sessions.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (state == null) return message;
+
+        long now = System.nanoTime();
+        long lag = state.lagNanos(now);
+        if (lag >= disconnectAfterNanos) {
+            disconnect(state, lag);
+            return null;
+        }
+        if ((lag >= dropAfterNanos || state.pendingCount.get() >= maxPendingFrames)
+                && isLocationDestination(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))) {
+            // 칸 위치는 곧 새 값이 오므로 밀린 세션에는 보내지 않는다
+            droppedLocationFrames.increment();
+            return null;
+        }
+        state.pending.offer(now);
+        state.pendingCount.incrementAndGet();
+        return message;
+    }
+
+    // ===== 세션 래핑: 실제로 소켓에 쓴 프레임을 센다 =====
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                SessionState state = new SessionState(session);
+                sessions.put(session.getId(), state);
+                super.afterConnectionEstablished(new MeteredSession(session, state));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    private final class MeteredSession extends WebSocketSessionDecorator {
+
+        private final SessionState state;
+
+        MeteredSession(WebSocketSession delegate, SessionState state) {
+            super(delegate);
+            this.state = state;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            long start = System.nanoTime();
+            try {
+                super.sendMessage(message);
+            } finally {
+                long end = System.nanoTime();
+                sendTime.record(end - start, TimeUnit.NANOSECONDS);
+                if (isMessageFrame(message)) {
+                    Long queuedAt = state.pending.poll();
+                    if (queuedAt != null) {
+                        state.pendingCount.decrementAndGet();
+                        frameLag.record(end - queuedAt, TimeUnit.NANOSECONDS);
+                    }
+                }
+            }
+        }
+    }
+
+    private void disconnect(SessionState state, long lagNanos) {
+        if (!state.closing.compareAndSet(false, true)) return;
+        slowDisconnects.increment();
+        System.err.println("🐢 느린 세션 연결 종료: " + state.session.getId()
+                + " (지연 " + TimeUnit.NANOSECONDS.toMillis(lagNanos) + "ms, 밀린 프레임 " + state.pendingCount.get() + ")");
+        try {
+            state.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            System.err.println("❌ 느린 세션 종료 실패: " + state.session.getId() + " - " + e.getMessage());
+        }
+    }
+
+    private int countLagging() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (SessionState state : sessions.values()) {
+            if (state.lagNanos(now) >= dropAfterNanos) count++;
+        }
+        return count;
+    }
+
+    private double maxLagMillis() {
+        long now = System.nanoTime();
+        long max = 0;
+        for (SessionState state : sessions.values()) {
+            max = Math.max(max, state.lagNanos(now));
+        }
+        return TimeUnit.NANOSECONDS.toMillis(max);
+    }
+
+    private long totalPending() {
+        long total = 0;
+        for (SessionState state : sessions.values()) {
+            total += state.pendingCount.get();
+        }
+        return total;
+    }
+
+    // 곧 새 값이 오는 위치 칸 topic 만
+    private static boolean isLocationDestination(String destination) {
+        return destination != null && destination.startsWith(LocationSubscriptionRouter.CELL_DESTINATION_PREFIX);
+    }
+
+    private static boolean isMessageFrame(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage text) {
+            return text.getPayload().startsWith("MESSAGE\n");
+        }
+        if (message instanceof BinaryMessage binary) {
+            ByteBuffer payload = binary.getPayload();
+            if (payload.remaining() < MESSAGE_COMMAND.length) return false;
+            for (int i = 0; i < MESSAGE_COMMAND.length; i++) {
+                if (payload.get(payload.position() + i) != MESSAGE_COMMAND[i]) return false;
+            }
+            return true;
+        }
+        return false;
+    }
+}
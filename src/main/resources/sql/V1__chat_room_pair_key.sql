@@ -0,0 +1,28 @@
+-- 채팅방 (두 사람) 순서 무관 키 + 중복 방 정리
+ALTER TABLE chat_room ADD COLUMN IF NOT EXISTS pair_low uuid;
+ALTER TABLE chat_room ADD COLUMN IF NOT EXISTS pair_high uuid;
+
+UPDATE chat_room
+SET pair_low  = LEAST(chatusr1_id, chatusr2_id),
+    pair_high = GREATEST(chatusr1_id, chatusr2_id)
+WHERE pair_low IS NULL;
+
+-- 같은 두 사람의 방이 여러 개면 가장 먼저 만든 방으로 메시지를 합친다
+WITH ranked AS (
+    SELECT chatroomid,
+           MIN(chatroomid) OVER (PARTITION BY pair_low, pair_high) AS keep_id
+    FROM chat_room
+)
+UPDATE chat_message m
+SET chatroomid = r.keep_id
+FROM ranked r
+WHERE m.chatroomid = r.chatroomid
+  AND r.chatroomid <> r.keep_id;
+
+DELETE FROM chat_room c
+USING chat_room k
+WHERE c.pair_low = k.pair_low
+  AND c.pair_high = k.pair_high
+  AND c.chatroomid > k.chatroomid;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_chat_room_pair ON chat_room (pair_low, pair_high);
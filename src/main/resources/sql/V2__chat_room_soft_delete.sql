@@ -0,0 +1,6 @@
+-- 채팅방 soft delete
+ALTER TABLE chat_room ADD COLUMN IF NOT EXISTS deleted_at bigint;
+
+-- 삭제 대기 방 조회 / 방별 chunk 삭제용
+CREATE INDEX IF NOT EXISTS idx_chat_room_deleted_at ON chat_room (deleted_at) WHERE deleted_at IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_chat_message_room ON chat_message (chatroomid, message_id);
@@ -0,0 +1,15 @@
+-- 채팅방별 메시지 순번(seq)
+ALTER TABLE chat_message ADD COLUMN IF NOT EXISTS seq bigint;
+
+-- 기존 메시지는 messageId 순서대로 1부터 채운다
+-- (이미 보관 파일로 옮겨진 메시지는 seq 가 없으므로 동기화 대신 전체 내역 조회로만 내려간다)
+UPDATE chat_message m
+SET seq = numbered.rn
+FROM (
+    SELECT message_id, row_number() OVER (PARTITION BY chatroomid ORDER BY message_id) AS rn
+    FROM chat_message
+) numbered
+WHERE m.message_id = numbered.message_id
+  AND m.seq IS NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_chat_message_room_seq ON chat_message (chatroomid, seq);
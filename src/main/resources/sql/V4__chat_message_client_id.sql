@@ -0,0 +1,5 @@
+-- 클라이언트 메시지 id (재전송 중복 제거)
+ALTER TABLE chat_message ADD COLUMN IF NOT EXISTS client_message_id varchar(64);
+
+-- NULL 은 여러 개 허용되므로 id 를 보내지 않는 기존 클라이언트에는 영향 없음
+CREATE UNIQUE INDEX IF NOT EXISTS uk_chat_message_client_id ON chat_message (chatroomid, client_message_id);
@@ -0,0 +1,17 @@
+-- 채팅 이미지 첨부
+CREATE TABLE IF NOT EXISTS chat_attachment (
+    attachment_id  bigserial PRIMARY KEY,
+    chatroomid     bigint       NOT NULL REFERENCES chat_room (chatroomid),
+    uploader_id    uuid         NOT NULL REFERENCES profiles (id),
+    content_type   varchar(255) NOT NULL,
+    size_bytes     bigint       NOT NULL,
+    file_path      varchar(255) NOT NULL,
+    thumbnail_path varchar(255),
+    width          integer,
+    height         integer,
+    created_at     bigint
+);
+
+CREATE INDEX IF NOT EXISTS idx_chat_attachment_room ON chat_attachment (chatroomid);
+
+ALTER TABLE chat_message ADD COLUMN IF NOT EXISTS attachment_id bigint REFERENCES chat_attachment (attachment_id);
@@ -0,0 +1,2 @@
+-- 사용자별 최근 검색어 조회 / trim 작업용
+CREATE INDEX IF NOT EXISTS idx_search_history_profile_search_at ON search_history (profile_id, search_at DESC, id DESC);
@@ -0,0 +1,8 @@
+-- 이동 경로 기록 동의 시각 (철회하면 NULL)
+ALTER TABLE profiles ADD COLUMN IF NOT EXISTS trail_consent_at timestamptz;
+
+-- 거래 요청 시각 (상대방이 이동 경로를 볼 수 있는 구간의 시작)
+ALTER TABLE item_transaction ADD COLUMN IF NOT EXISTS created_at timestamp;
+
+-- 두 사용자 사이의 확정된 거래 조회용
+CREATE INDEX IF NOT EXISTS idx_item_transaction_pair ON item_transaction (profile_id, distinct_seller);
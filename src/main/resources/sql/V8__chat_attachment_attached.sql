@@ -0,0 +1,6 @@
+-- 메시지에 붙은 첨부인지 (붙지 않은 채 오래된 업로드는 정리 작업이 지운다)
+-- 이미 있는 첨부는 보관(archive)된 메시지에 붙어 있을 수 있으므로 추가할 때만 true 로 채우고, 이후 새 행은 false
+ALTER TABLE chat_attachment ADD COLUMN IF NOT EXISTS attached boolean NOT NULL DEFAULT true;
+ALTER TABLE chat_attachment ALTER COLUMN attached SET DEFAULT false;
+
+CREATE INDEX IF NOT EXISTS idx_chat_attachment_unattached ON chat_attachment (created_at) WHERE attached = false;
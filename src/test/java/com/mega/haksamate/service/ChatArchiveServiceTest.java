@@ -0,0 +1,100 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.MessageResponseDTO;
+import com.mega.haksamate.entity.ChatMessage;
+import com.mega.haksamate.entity.Profile;
+import com.mega.haksamate.repository.ChatMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatArchiveServiceTest {
+
+    private static final Long ROOM_ID = 3L;
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2026, 9, 1, 0, 0);
+
+    @TempDir
+    Path archiveDir;
+
+    private final ChatMessageRepository chatMessageRepository = mock(ChatMessageRepository.class);
+    private final Profile sender = Profile.builder().id(UUID.randomUUID()).build();
+
+    @Test
+    void deletesExactlyTheArchivedIds() {
+        ChatArchiveStore store = new ChatArchiveStore(archiveDir.toString());
+        ChatArchiveService service = new ChatArchiveService(chatMessageRepository, store);
+        // id 4 는 아직 commit 되지 않아 읽히지 않았다
+        when(chatMessageRepository.findTop500ByChatRoom_ChatRoomIdAndSentAtBeforeOrderByMessageIdAsc(ROOM_ID, CUTOFF))
+                .thenReturn(List.of(message(3L, false), message(5L, true)))
+                .thenReturn(List.of());
+        when(chatMessageRepository.deleteArchived(eq(ROOM_ID), anyList()))
+                .thenAnswer(invocation -> invocation.<List<Long>>getArgument(1).size());
+
+        assertThat(service.archiveRoom(ROOM_ID, CUTOFF)).isEqualTo(2);
+
+        verify(chatMessageRepository).deleteArchived(ROOM_ID, List.of(3L, 5L));
+        assertThat(store.read(ROOM_ID)).extracting(MessageResponseDTO::getMessageId).containsExactly(3L, 5L);
+        assertThat(store.read(ROOM_ID)).extracting(MessageResponseDTO::getIsRead).containsExactly(false, true);
+    }
+
+    @Test
+    void retriesDeleteOfLastBlockFromPreviousRun() {
+        ChatArchiveStore store = new ChatArchiveStore(archiveDir.toString());
+        ChatArchiveService service = new ChatArchiveService(chatMessageRepository, store);
+        // 이전 실행이 보관 파일에 쓰고 DB 에서 지우기 전에 멈춘 상태
+        store.append(ROOM_ID, List.of(MessageResponseDTO.builder()
+                .messageId(8L).senderId(sender.getId()).content("x").isRead(true).build()));
+        when(chatMessageRepository.findTop500ByChatRoom_ChatRoomIdAndSentAtBeforeOrderByMessageIdAsc(ROOM_ID, CUTOFF))
+                .thenReturn(List.of());
+
+        assertThat(service.archiveRoom(ROOM_ID, CUTOFF)).isZero();
+
+        verify(chatMessageRepository).deleteArchived(ROOM_ID, List.of(8L));
+    }
+
+    @Test
+    void lateCommittedSmallerIdIsArchivedOnNextRun() {
+        ChatArchiveStore store = new ChatArchiveStore(archiveDir.toString());
+        ChatArchiveService service = new ChatArchiveService(chatMessageRepository, store);
+        when(chatMessageRepository.deleteArchived(eq(ROOM_ID), anyList()))
+                .thenAnswer(invocation -> invocation.<List<Long>>getArgument(1).size());
+        when(chatMessageRepository.findTop500ByChatRoom_ChatRoomIdAndSentAtBeforeOrderByMessageIdAsc(ROOM_ID, CUTOFF))
+                .thenReturn(List.of(message(3L, true), message(5L, true)))
+                .thenReturn(List.of())
+                // 다음 실행: 그 사이 commit 된 id 4 가 남아 있다
+                .thenReturn(List.of(message(4L, false)))
+                .thenReturn(List.of());
+
+        service.archiveRoom(ROOM_ID, CUTOFF);
+        assertThat(service.archiveRoom(ROOM_ID, CUTOFF)).isEqualTo(1);
+
+        verify(chatMessageRepository).deleteArchived(ROOM_ID, List.of(4L));
+        assertThat(store.read(ROOM_ID)).extracting(MessageResponseDTO::getMessageId).containsExactly(3L, 5L, 4L);
+        // 마지막/최대 seq 는 블록 순서가 아니라 전체에서 구한다
+        assertThat(store.readLast(ROOM_ID).getMessageId()).isEqualTo(5L);
+        assertThat(store.maxSeq(ROOM_ID)).isEqualTo(5L);
+        assertThat(store.countUnread(ROOM_ID, UUID.randomUUID())).isEqualTo(1);
+    }
+
+    private ChatMessage message(long id, boolean read) {
+        return ChatMessage.builder()
+                .messageId(id)
+                .seq(id)
+                .sender(sender)
+                .content("message " + id)
+                .isRead(read)
+                .sentAt(LocalDateTime.of(2026, 8, 1, 9, 0))
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.MessageResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatArchiveStoreTest {
+
+    private static final Long ROOM_ID = 7L;
+
+    @TempDir
+    Path archiveDir;
+
+    private ChatArchiveStore store;
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        store = new ChatArchiveStore(archiveDir.toString());
+    }
+
+    @Test
+    void appendedBlocksReadBackInOrder() {
+        List<MessageResponseDTO> first = List.of(
+                message(1L, alice, "안녕하세요", true, null),
+                message(2L, bob, "", false, 42L));
+        List<MessageResponseDTO> second = List.of(message(5L, alice, "강남역에서 봬요 🙂", null, null));
+        store.append(ROOM_ID, first);
+        store.append(ROOM_ID, second);
+
+        List<MessageResponseDTO> read = store.read(ROOM_ID);
+
+        assertThat(read).hasSize(3);
+        assertThat(read.get(0)).isEqualTo(first.get(0));
+        assertThat(read.get(1)).isEqualTo(first.get(1));
+        // 읽음 여부가 null 이면 DB 와 같이 안 읽음으로 저장된다
+        assertThat(read.get(2).getIsRead()).isFalse();
+        assertThat(read.get(2).getContent()).isEqualTo("강남역에서 봬요 🙂");
+        assertThat(store.lastArchivedMessageId(ROOM_ID)).isEqualTo(5L);
+        assertThat(store.readLastBlock(ROOM_ID)).extracting(MessageResponseDTO::getMessageId).containsExactly(5L);
+        assertThat(store.readLast(ROOM_ID).getMessageId()).isEqualTo(5L);
+    }
+
+    @Test
+    void largeBlockRoundTrips() {
+        List<MessageResponseDTO> messages = new ArrayList<>();
+        for (long id = 1; id <= 500; id++) {
+            messages.add(message(id, id % 2 == 0 ? alice : bob, "메시지 " + id + " ".repeat((int) (id % 37)), id % 3 == 0, null));
+        }
+        store.append(ROOM_ID, messages);
+
+        assertThat(store.read(ROOM_ID)).isEqualTo(messages);
+    }
+
+    @Test
+    void countsUnreadFromTheOtherSender() {
+        store.append(ROOM_ID, List.of(
+                message(1L, alice, "a", false, null),
+                message(2L, alice, "b", true, null),
+                message(3L, bob, "c", false, null)));
+
+        assertThat(store.countUnread(ROOM_ID, bob)).isEqualTo(1);
+        assertThat(store.countUnread(ROOM_ID, alice)).isEqualTo(1);
+
+        // 블록이 더 붙으면 다시 센다
+        store.append(ROOM_ID, List.of(message(4L, alice, "d", false, null)));
+        assertThat(store.countUnread(ROOM_ID, bob)).isEqualTo(2);
+        assertThat(store.countUnread(99L, bob)).isZero();
+    }
+
+    @Test
+    void segmentTailWithoutIndexEntryIsIgnored() throws IOException {
+        store.append(ROOM_ID, List.of(message(1L, alice, "kept", true, null)));
+        // 세그먼트를 쓰고 인덱스를 쓰기 전에 죽은 경우
+        Files.write(archiveDir.resolve(ROOM_ID + ".seg"), new byte[]{1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        assertThat(store.read(ROOM_ID)).extracting(MessageResponseDTO::getContent).containsExactly("kept");
+    }
+
+    @Test
+    void indexEntryPastSegmentEndIsSkipped() throws IOException {
+        store.append(ROOM_ID, List.of(message(1L, alice, "kept", true, null)));
+        long firstSegmentSize = Files.size(archiveDir.resolve(ROOM_ID + ".seg"));
+        store.append(ROOM_ID, List.of(message(2L, bob, "torn", true, null)));
+        // 두 번째 블록이 잘린 세그먼트
+        try (FileChannel segment = FileChannel.open(archiveDir.resolve(ROOM_ID + ".seg"), StandardOpenOption.WRITE)) {
+            segment.truncate(firstSegmentSize + 3);
+        }
+
+        assertThat(store.read(ROOM_ID)).extracting(MessageResponseDTO::getContent).containsExactly("kept");
+        assertThat(store.readLastBlock(ROOM_ID)).isEmpty();
+    }
+
+    @Test
+    void deleteRemovesArchive() {
+        store.append(ROOM_ID, List.of(message(1L, alice, "bye", false, null)));
+        assertThat(store.countUnread(ROOM_ID, bob)).isEqualTo(1);
+
+        store.delete(ROOM_ID);
+
+        assertThat(store.read(ROOM_ID)).isEmpty();
+        assertThat(store.lastArchivedMessageId(ROOM_ID)).isZero();
+        assertThat(store.countUnread(ROOM_ID, bob)).isZero();
+    }
+
+    private static MessageResponseDTO message(long id, UUID sender, String content, Boolean isRead, Long attachmentId) {
+        return MessageResponseDTO.builder()
+                .messageId(id)
+                .chatRoomId(ROOM_ID)
+                .seq(id)
+                .senderId(sender)
+                .content(content)
+                .attachmentId(attachmentId)
+                .isRead(isRead)
+                // 보관 파일은 millisecond 단위로 저장한다
+                .sentAt(LocalDateTime.of(2026, 9, 1, 10, 0).plusSeconds(id))
+                .build();
+    }
+}
@@ -0,0 +1,150 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.cluster.ClusterMessagingTemplate;
+import com.mega.haksamate.dto.ChatSyncResponseDTO;
+import com.mega.haksamate.dto.MessageResponseDTO;
+import com.mega.haksamate.entity.ChatMessage;
+import com.mega.haksamate.entity.ChatRoom;
+import com.mega.haksamate.entity.Profile;
+import com.mega.haksamate.repository.ChatMessageRepository;
+import com.mega.haksamate.repository.ProfileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatMessageServiceTest {
+
+    private static final Long ROOM_ID = 9L;
+
+    @TempDir
+    Path archiveDir;
+
+    private final ChatMessageRepository chatMessageRepository = mock(ChatMessageRepository.class);
+    private final ChatRoom chatRoom = ChatRoom.builder().chatRoomId(ROOM_ID).build();
+    private final ChatTailCache chatTailCache = mock(ChatTailCache.class);
+    private final Profile sender = Profile.builder().id(UUID.randomUUID()).build();
+
+    // chat_message 에 남아 있는 행
+    private final List<ChatMessage> rows = new ArrayList<>();
+    private ChatArchiveStore store;
+    private ChatMessageService service;
+
+    @BeforeEach
+    void setUp() {
+        store = new ChatArchiveStore(archiveDir.toString());
+        service = new ChatMessageService(chatMessageRepository, mock(ChatRoomService.class), mock(ProfileRepository.class),
+                mock(ClusterMessagingTemplate.class), store, mock(ChatSearchIndex.class), mock(ChatSequenceAllocator.class),
+                mock(ChatSendDeduplicator.class), mock(ChatAttachmentService.class), chatTailCache);
+        // 최근 메시지 캐시에 없는 방
+        when(chatTailCache.getAfter(eq(ROOM_ID), anyLong())).thenReturn(null);
+        when(chatMessageRepository.findByChatRoom_ChatRoomIdOrderBySentAtAsc(ROOM_ID)).thenAnswer(invocation -> List.copyOf(rows));
+        when(chatMessageRepository.findByChatRoom_ChatRoomIdAndSeqGreaterThanOrderBySeqAsc(eq(ROOM_ID), anyLong(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    long after = invocation.getArgument(1);
+                    Pageable page = invocation.getArgument(2);
+                    return rows.stream()
+                            .filter(row -> row.getSeq() > after)
+                            .sorted(Comparator.comparingLong(ChatMessage::getSeq))
+                            .limit(page.getPageSize())
+                            .toList();
+                });
+    }
+
+    @Test
+    void lateCommittedRowBelowArchivedIdsIsStillReturned() {
+        // 3, 5 는 보관됐고, 그 사이 늦게 commit 된 4 는 아직 chat_message 에 있다
+        store.append(ROOM_ID, List.of(archived(3L), archived(5L)));
+        rows.add(row(4L));
+
+        assertThat(service.getMessageHistory(ROOM_ID)).extracting(MessageResponseDTO::getMessageId).containsExactly(3L, 4L, 5L);
+
+        ChatSyncResponseDTO sync = service.getMessagesAfter(ROOM_ID, 3L, 50);
+        assertThat(sync.getMessages()).extracting(MessageResponseDTO::getMessageId).containsExactly(4L, 5L);
+        assertThat(sync.getLastSeq()).isEqualTo(5L);
+        assertThat(sync.isHasMore()).isFalse();
+    }
+
+    @Test
+    void lateRowArchivedInLaterBlockKeepsOrder() {
+        store.append(ROOM_ID, List.of(archived(3L), archived(5L)));
+        store.append(ROOM_ID, List.of(archived(4L)));
+        rows.add(row(6L));
+
+        assertThat(service.getMessageHistory(ROOM_ID)).extracting(MessageResponseDTO::getMessageId)
+                .containsExactly(3L, 4L, 5L, 6L);
+        assertThat(service.getMessagesAfter(ROOM_ID, 3L, 50).getMessages()).extracting(MessageResponseDTO::getMessageId)
+                .containsExactly(4L, 5L, 6L);
+    }
+
+    @Test
+    void archivedRowNotYetDeletedIsNotDuplicated() {
+        store.append(ROOM_ID, List.of(archived(1L), archived(2L)));
+        // 보관 직후 삭제 전에 멈춘 경우
+        rows.add(row(1L));
+        rows.add(row(2L));
+        rows.add(row(3L));
+
+        assertThat(service.getMessageHistory(ROOM_ID)).extracting(MessageResponseDTO::getMessageId).containsExactly(1L, 2L, 3L);
+        assertThat(service.getMessagesAfter(ROOM_ID, 0L, 50).getMessages()).extracting(MessageResponseDTO::getMessageId)
+                .containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void syncPagesAcrossArchiveAndRowsWithoutSkipping() {
+        store.append(ROOM_ID, List.of(archived(1L), archived(2L), archived(5L)));
+        rows.add(row(3L));
+        rows.add(row(4L));
+        rows.add(row(6L));
+
+        List<Long> seen = new ArrayList<>();
+        long afterSeq = 0L;
+        ChatSyncResponseDTO page;
+        do {
+            page = service.getMessagesAfter(ROOM_ID, afterSeq, 2);
+            assertThat(page.getMessages()).hasSizeLessThanOrEqualTo(2);
+            page.getMessages().forEach(msg -> seen.add(msg.getMessageId()));
+            afterSeq = page.getLastSeq();
+        } while (page.isHasMore());
+
+        assertThat(seen).containsExactly(1L, 2L, 3L, 4L, 5L, 6L);
+    }
+
+    private MessageResponseDTO archived(long id) {
+        return MessageResponseDTO.builder()
+                .messageId(id)
+                .chatRoomId(ROOM_ID)
+                .seq(id)
+                .senderId(sender.getId())
+                .content("archived " + id)
+                .isRead(true)
+                .sentAt(LocalDateTime.of(2026, 8, 1, 9, 0).plusMinutes(id))
+                .build();
+    }
+
+    private ChatMessage row(long id) {
+        return ChatMessage.builder()
+                .messageId(id)
+                .seq(id)
+                .chatRoom(chatRoom)
+                .sender(sender)
+                .content("row " + id)
+                .isRead(false)
+                .sentAt(LocalDateTime.of(2026, 8, 1, 9, 0).plusMinutes(id))
+                .build();
+    }
+}
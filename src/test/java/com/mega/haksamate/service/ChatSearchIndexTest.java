@@ -0,0 +1,122 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.entity.ChatMessage;
+import com.mega.haksamate.repository.ChatMessageRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatSearchIndexTest {
+
+    private static final Long ROOM_ID = 11L;
+
+    @TempDir
+    Path dataDir;
+
+    private final List<ChatMessage> messages = new ArrayList<>();
+
+    @Test
+    void postingsRoundTrip() throws IOException {
+        // 작은 차이(1바이트)와 큰 차이(여러 바이트 varint)가 섞인 목록
+        long[] ids = {1L, 2L, 130L, 16_512L, 1L << 40, (1L << 40) + 1};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChatSearchIndex.writePostings(out, ids, ids.length);
+        ChatSearchIndex.writePostings(out, new long[0], 0);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        assertThat(ChatSearchIndex.readPostings(in)).containsExactly(ids);
+        assertThat(ChatSearchIndex.readPostings(in)).isEmpty();
+        assertThat(in.available()).isZero();
+    }
+
+    @Test
+    void truncatedPostingsAreRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChatSearchIndex.writePostings(out, new long[]{5L, 1_000_000L}, 2);
+        byte[] bytes = out.toByteArray();
+
+        ByteArrayInputStream truncated = new ByteArrayInputStream(bytes, 0, bytes.length - 1);
+        assertThatThrownBy(() -> ChatSearchIndex.readPostings(truncated)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void indexesSyllablesAndBigrams() {
+        assertThat(ChatSearchIndex.tokenize("강남역 OK")).containsExactly("강", "강남", "남", "남역", "역", "ok");
+        assertThat(ChatSearchIndex.queryTokens("강남역")).containsExactly("강남", "남역");
+        assertThat(ChatSearchIndex.queryTokens("역")).containsExactly("역");
+    }
+
+    @Test
+    void singleSyllableQueryFindsLongerWords() {
+        message(1L, "강남역에서 봬요");
+        message(2L, "역시 좋네요");
+        message(3L, "학교 앞에서");
+        ChatSearchIndex index = index();
+
+        assertThat(index.search(ROOM_ID, "역", 10)).containsExactly(2L, 1L);
+        assertThat(index.search(ROOM_ID, "강남역", 10)).containsExactly(1L);
+        assertThat(index.search(ROOM_ID, "에서", 10)).containsExactly(3L, 1L);
+    }
+
+    @Test
+    void persistedIndexIsReloadedWithoutRescanning() {
+        message(1L, "hello 강남역");
+        message(5L, "역 앞 카페");
+        message(300L, "hello again");
+        ChatSearchIndex index = index();
+        assertThat(index.search(ROOM_ID, "hello", 10)).containsExactly(300L, 1L);
+        index.flushDirty();
+
+        // DB 에서 지워져도 파일에서 그대로 읽힌다
+        messages.clear();
+        ChatSearchIndex reopened = index();
+
+        assertThat(reopened.search(ROOM_ID, "hello", 10)).containsExactly(300L, 1L);
+        assertThat(reopened.search(ROOM_ID, "역", 10)).containsExactly(5L, 1L);
+        assertThat(reopened.search(ROOM_ID, "강남", 10)).containsExactly(1L);
+    }
+
+    @Test
+    void messagesAfterReloadAreStillIndexed() {
+        message(1L, "책상 팝니다");
+        ChatSearchIndex index = index();
+        index.search(ROOM_ID, "책상", 10);
+        index.flushDirty();
+
+        message(2L, "책상 아직 있나요");
+        ChatSearchIndex reopened = index();
+        assertThat(reopened.search(ROOM_ID, "책상", 10)).containsExactly(2L, 1L);
+
+        // 메모리에 올라온 뒤의 새 메시지 (불러온 목록은 크기가 딱 맞아서 늘려야 한다)
+        reopened.onMessage(ROOM_ID, 3L, "책상 예약할게요");
+        assertThat(reopened.search(ROOM_ID, "책상", 10)).containsExactly(3L, 2L, 1L);
+    }
+
+    private ChatSearchIndex index() {
+        ChatMessageRepository repository = mock(ChatMessageRepository.class);
+        when(repository.findTop500ByChatRoom_ChatRoomIdAndMessageIdGreaterThanOrderByMessageIdAsc(eq(ROOM_ID), anyLong()))
+                .thenAnswer(invocation -> {
+                    long after = invocation.getArgument(1);
+                    return messages.stream().filter(m -> m.getMessageId() > after).toList();
+                });
+        ChatArchiveStore archiveStore = new ChatArchiveStore(dataDir.resolve("archive").toString());
+        return new ChatSearchIndex(repository, archiveStore, dataDir.resolve("search").toString(), 10);
+    }
+
+    private void message(long id, String content) {
+        messages.add(ChatMessage.builder().messageId(id).content(content).build());
+    }
+}
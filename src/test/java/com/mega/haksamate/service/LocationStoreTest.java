@@ -0,0 +1,136 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.LocationShareDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationStoreTest {
+
+    private final LocationStore store = new LocationStore();
+    private final LocationStore.Reading reading = new LocationStore.Reading();
+    private final LocationStore.Reading replaced = new LocationStore.Reading();
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    @Test
+    void writtenValuesReadBack() {
+        store.reserve(alice, 1_000L);
+        assertThat(store.read(alice, reading)).isTrue();
+        assertThat(reading.positioned).isFalse();
+        assertThat(store.size()).isZero();
+
+        assertThat(store.write(alice, "민수", 37.5665, 126.978, 2_000L, PresenceService.AWAY, true, true, replaced)).isTrue();
+
+        assertThat(store.read(alice, reading)).isTrue();
+        assertThat(reading.userId).isEqualTo(alice);
+        assertThat(reading.name).isEqualTo("민수");
+        assertThat(reading.latitude).isEqualTo(37.5665);
+        assertThat(reading.longitude).isEqualTo(126.978);
+        assertThat(reading.updatedAt).isEqualTo(2_000L);
+        assertThat(reading.status).isEqualTo(PresenceService.AWAY);
+        assertThat(reading.visible).isTrue();
+        assertThat(reading.positioned).isTrue();
+        assertThat(reading.broadcast).isTrue();
+        assertThat(reading.broadcastLatitude).isEqualTo(37.5665);
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(replaced.positioned).isFalse();
+
+        // 비공개로 바뀌면 마지막 브로드캐스트 위치를 지운다
+        store.write(alice, "민수", 37.6, 127.0, 3_000L, PresenceService.ONLINE, false, false, replaced);
+        assertThat(replaced.latitude).isEqualTo(37.5665);
+        assertThat(replaced.visible).isTrue();
+        store.read(alice, reading);
+        assertThat(reading.broadcast).isFalse();
+        assertThat(reading.visible).isFalse();
+    }
+
+    @Test
+    void removeReturnsLastPositionAsOffline() {
+        store.reserve(alice, 1_000L);
+        assertThat(store.remove(alice)).isNull();
+
+        store.reserve(alice, 1_000L);
+        store.write(alice, "민수", 37.5, 127.0, 2_000L, PresenceService.ONLINE, true, true, replaced);
+        LocationShareDTO last = store.remove(alice);
+
+        assertThat(last.getUserId()).isEqualTo(alice);
+        assertThat(last.getStatus()).isEqualTo(PresenceService.OFFLINE);
+        assertThat(last.getLatitude()).isEqualTo(37.5);
+        assertThat(store.read(alice, reading)).isFalse();
+        assertThat(store.write(alice, "민수", 37.5, 127.0, 3_000L, PresenceService.ONLINE, true, true, replaced)).isFalse();
+    }
+
+    @Test
+    void reusedSlotDoesNotLeakPreviousUser() {
+        store.reserve(alice, 1_000L);
+        store.write(alice, "민수", 37.5, 127.0, 1_000L, PresenceService.ONLINE, true, true, replaced);
+        store.remove(alice);
+
+        // bob 이 alice 의 slot 을 넘겨받는다
+        store.reserve(bob, 5_000L);
+
+        assertThat(store.read(alice, reading)).isFalse();
+        assertThat(store.read(bob, reading)).isTrue();
+        assertThat(reading.positioned).isFalse();
+        assertThat(reading.broadcast).isFalse();
+        List<UUID> positioned = new ArrayList<>();
+        store.forEachPositioned(reading, found -> positioned.add(found.userId));
+        assertThat(positioned).isEmpty();
+    }
+
+    @Test
+    void reusedSlotIsNotExpiredWithPreviousLastSeen() {
+        store.reserve(alice, 1_000L);
+        store.remove(alice);
+        store.reserve(bob, 10_000L);
+
+        List<UUID> idle = new ArrayList<>();
+        store.collectIdle(5_000L, idle);
+        assertThat(idle).isEmpty();
+
+        store.collectIdle(20_000L, idle);
+        assertThat(idle).containsExactly(bob);
+    }
+
+    @Test
+    void readerNeverSeesHalfWrittenSlot() throws Exception {
+        store.reserve(alice, 0L);
+        store.write(alice, "민수", 0, 0, 0L, PresenceService.ONLINE, true, true, replaced);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+
+        // 쓰는 쪽은 위도 = 경도 = 시각 으로 쓰므로, 셋이 다르면 쓰는 도중의 값을 읽은 것이다
+        Thread writer = new Thread(() -> {
+            LocationStore.Reading previous = new LocationStore.Reading();
+            for (long n = 1; n <= 200_000; n++) {
+                store.write(alice, "민수", n, n, n, PresenceService.ONLINE, true, true, previous);
+            }
+            running.set(false);
+        });
+        Thread reader = new Thread(() -> {
+            LocationStore.Reading out = new LocationStore.Reading();
+            while (running.get() && torn.get() == null) {
+                store.read(alice, out);
+                if (out.latitude != out.longitude || (long) out.latitude != out.updatedAt) {
+                    torn.set(out.latitude + "/" + out.longitude + "/" + out.updatedAt);
+                }
+            }
+        });
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+
+        assertThat(torn.get()).isNull();
+        store.read(alice, reading);
+        assertThat(reading.updatedAt).isEqualTo(200_000L);
+    }
+}
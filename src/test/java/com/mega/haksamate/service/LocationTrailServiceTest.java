@@ -0,0 +1,111 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.entity.Item;
+import com.mega.haksamate.entity.ItemTransaction;
+import com.mega.haksamate.repository.ItemTransactionRepository;
+import com.mega.haksamate.repository.ProfileRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LocationTrailServiceTest {
+
+    private static final LocalDateTime REQUESTED = LocalDateTime.of(2026, 10, 1, 14, 0);
+    private static final LocalDateTime COMPLETED = LocalDateTime.of(2026, 10, 1, 18, 0);
+
+    private final LocationTrailStore store = mock(LocationTrailStore.class);
+    private final ProfileRepository profileRepository = mock(ProfileRepository.class);
+    private final ItemTransactionRepository itemTransactionRepository = mock(ItemTransactionRepository.class);
+    private final LocationTrailService service =
+            new LocationTrailService(store, profileRepository, itemTransactionRepository, 30_000);
+
+    private final UUID seller = UUID.randomUUID();
+    private final UUID buyer = UUID.randomUUID();
+    private final UUID stranger = UUID.randomUUID();
+
+    @Test
+    void ownerReadsOwnTrail() {
+        service.read(seller, seller, 0, 1_000);
+
+        verify(store).read(seller, 0, 1_000);
+    }
+
+    @Test
+    void counterpartOnlyReadsInsideTransactionWindow() {
+        when(profileRepository.existsByIdAndTrailConsentAtIsNotNull(seller)).thenReturn(true);
+        when(itemTransactionRepository.findBetween(buyer, seller, ItemTransaction.TransactionStatus.확정됨))
+                .thenReturn(List.of(transaction(REQUESTED, COMPLETED)));
+
+        service.read(buyer, seller, millis(REQUESTED.minusHours(3)), millis(COMPLETED.plusHours(3)));
+
+        // 요청 구간이 거래 구간으로 잘린다
+        verify(store).read(seller, millis(REQUESTED), millis(COMPLETED));
+    }
+
+    @Test
+    void strangerOrRangeOutsideTransactionIsDenied() {
+        when(profileRepository.existsByIdAndTrailConsentAtIsNotNull(seller)).thenReturn(true);
+        when(itemTransactionRepository.findBetween(buyer, seller, ItemTransaction.TransactionStatus.확정됨))
+                .thenReturn(List.of(transaction(REQUESTED, COMPLETED)));
+
+        assertThatThrownBy(() -> service.read(stranger, seller, millis(REQUESTED), millis(COMPLETED)))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> service.read(buyer, seller, millis(COMPLETED.plusHours(1)), millis(COMPLETED.plusHours(2))))
+                .isInstanceOf(AccessDeniedException.class);
+        verify(store, never()).read(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void withdrawnConsentHidesTrailFromCounterpart() {
+        when(profileRepository.existsByIdAndTrailConsentAtIsNotNull(seller)).thenReturn(false);
+        when(itemTransactionRepository.findBetween(buyer, seller, ItemTransaction.TransactionStatus.확정됨))
+                .thenReturn(List.of(transaction(REQUESTED, COMPLETED)));
+
+        assertThatThrownBy(() -> service.read(buyer, seller, millis(REQUESTED), millis(COMPLETED)))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void recordsOnlyWithPersistedConsent() {
+        when(store.isEnabled()).thenReturn(true);
+        when(profileRepository.existsByIdAndTrailConsentAtIsNotNull(seller)).thenReturn(true);
+        when(profileRepository.existsByIdAndTrailConsentAtIsNotNull(buyer)).thenReturn(false);
+
+        service.record(seller, 1L, 37.5, 127.0);
+        service.record(seller, 2L, 37.5, 127.0);
+        service.record(buyer, 3L, 37.5, 127.0);
+
+        verify(store).record(seller, 1L, 37.5, 127.0);
+        verify(store).record(seller, 2L, 37.5, 127.0);
+        verify(store, never()).record(eq(buyer), anyLong(), anyDouble(), anyDouble());
+        // 캐시 시간 안에서는 DB 를 다시 읽지 않는다
+        verify(profileRepository).existsByIdAndTrailConsentAtIsNotNull(seller);
+    }
+
+    private ItemTransaction transaction(LocalDateTime requested, LocalDateTime completed) {
+        return ItemTransaction.builder()
+                .item(Item.builder().completedDate(completed).build())
+                .distinctSeller(seller)
+                .status(ItemTransaction.TransactionStatus.확정됨)
+                .createdAt(requested)
+                .build();
+    }
+
+    private static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,153 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.dto.LocationTrailPointDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class LocationTrailStoreTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long BASE = 490_000L * HOUR;
+
+    @TempDir
+    Path trailDir;
+
+    private final UUID alice = UUID.randomUUID();
+
+    @Test
+    void pointsRoundTripAcrossHours() throws InterruptedException {
+        LocationTrailStore store = store(true);
+        store.start();
+        store.record(alice, BASE + 1_000, 37.4979, 127.0276);
+        store.record(alice, BASE + 31_000, 37.4981, 127.0270);
+        // 좌표가 줄어드는 방향(음수 차이)과 남반구/서반구 값도 그대로 돌아와야 한다
+        store.record(alice, BASE + HOUR + 5, -33.8688, -151.2093);
+        store.stop();
+
+        List<LocationTrailPointDTO> points = store.read(alice, BASE, BASE + 2 * HOUR);
+
+        assertThat(points).extracting(LocationTrailPointDTO::getTimestamp)
+                .containsExactly(BASE + 1_000, BASE + 31_000, BASE + HOUR + 5);
+        assertThat(points.get(1).getLatitude()).isCloseTo(37.4981, within(1e-7));
+        assertThat(points.get(1).getLongitude()).isCloseTo(127.0270, within(1e-7));
+        assertThat(points.get(2).getLatitude()).isCloseTo(-33.8688, within(1e-7));
+        assertThat(points.get(2).getLongitude()).isCloseTo(-151.2093, within(1e-7));
+        assertThat(Files.exists(trailDir.resolve(alice.toString()).resolve((BASE / HOUR) + ".trail"))).isTrue();
+    }
+
+    @Test
+    void readFiltersByRangeAcrossBlocks() throws InterruptedException {
+        LocationTrailStore store = store(true);
+        store.start();
+        store.record(alice, BASE + 1_000, 37.5, 127.0);
+        store.stop();
+        // 두 번째 실행: 같은 시간 파일에 블록이 하나 더 붙는다
+        store = store(true);
+        store.start();
+        store.record(alice, BASE + 2_000, 37.6, 127.1);
+        store.record(alice, BASE + 3_000, 37.7, 127.2);
+        store.stop();
+
+        assertThat(store.read(alice, BASE + 1_500, BASE + 2_500))
+                .extracting(LocationTrailPointDTO::getTimestamp).containsExactly(BASE + 2_000);
+        assertThat(store.read(alice, BASE, BASE + HOUR - 1)).hasSize(3);
+    }
+
+    @Test
+    void tornTailBlockIsIgnored() throws InterruptedException, IOException {
+        LocationTrailStore store = store(true);
+        store.start();
+        store.record(alice, BASE + 1_000, 37.5, 127.0);
+        store.record(alice, BASE + 2_000, 37.5001, 127.0001);
+        store.stop();
+        // 블록을 쓰다가 멈춘 경우: 점 5개라고 적고 첫 점의 일부만 썼다
+        Path segment = trailDir.resolve(alice.toString()).resolve((BASE / HOUR) + ".trail");
+        Files.write(segment, new byte[]{5, (byte) 0x90, 0x03, (byte) 0x81}, StandardOpenOption.APPEND);
+
+        assertThat(store.read(alice, BASE, BASE + HOUR - 1))
+                .extracting(LocationTrailPointDTO::getTimestamp).containsExactly(BASE + 1_000, BASE + 2_000);
+    }
+
+    @Test
+    void tornBlockIsTruncatedBeforeNextAppend() throws InterruptedException, IOException {
+        LocationTrailStore store = store(true);
+        store.start();
+        store.record(alice, BASE + 1_000, 37.5, 127.0);
+        store.stop();
+        // 쓰다 멈춘 프레임: 길이 20, crc 4바이트 뒤에 payload 일부만 있다
+        Path segment = segment();
+        long validSize = Files.size(segment);
+        Files.write(segment, new byte[]{20, 1, 2, 3, 4, 1, (byte) 0x90, 0x03}, StandardOpenOption.APPEND);
+
+        // 재시작 후 같은 파일에 붙이면 꼬리를 잘라낸 뒤 붙인다 (안 자르면 새 블록이 찢어진 프레임에 묻힌다)
+        store = store(true);
+        store.start();
+        store.record(alice, BASE + 2_000, 37.6, 127.1);
+        store.stop();
+
+        assertThat(store.read(alice, BASE, BASE + HOUR - 1))
+                .extracting(LocationTrailPointDTO::getTimestamp).containsExactly(BASE + 1_000, BASE + 2_000);
+        assertThat(Files.size(segment)).isGreaterThan(validSize);
+    }
+
+    @Test
+    void corruptedBlockIsSkipped() throws InterruptedException, IOException {
+        LocationTrailStore store = store(true);
+        store.start();
+        store.record(alice, BASE + 1_000, 37.5, 127.0);
+        store.stop();
+        Path segment = segment();
+        int firstFrameEnd = (int) Files.size(segment);
+        store = store(true);
+        store.start();
+        store.record(alice, BASE + 2_000, 37.6, 127.1);
+        store.stop();
+
+        // 첫 프레임 payload 의 마지막 바이트가 깨졌다
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[firstFrameEnd - 1] ^= 0x01;
+        Files.write(segment, bytes);
+
+        assertThat(store.read(alice, BASE, BASE + HOUR - 1))
+                .extracting(LocationTrailPointDTO::getTimestamp).containsExactly(BASE + 2_000);
+    }
+
+    @Test
+    void rejectsInvalidOrTooLongRange() {
+        LocationTrailStore store = store(true);
+
+        assertThatThrownBy(() -> store.read(alice, BASE + 1, BASE)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.read(alice, BASE, BASE + 24 * HOUR)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(store.read(alice, BASE, BASE + HOUR)).isEmpty();
+    }
+
+    @Test
+    void disabledStoreRecordsNothing() throws InterruptedException {
+        LocationTrailStore store = store(false);
+        store.start();
+        store.record(alice, BASE + 1_000, 37.5, 127.0);
+        store.stop();
+
+        assertThat(store.read(alice, BASE, BASE + HOUR)).isEmpty();
+    }
+
+    private Path segment() {
+        return trailDir.resolve(alice.toString()).resolve((BASE / HOUR) + ".trail");
+    }
+
+    private LocationTrailStore store(boolean enabled) {
+        return new LocationTrailStore(new SimpleMeterRegistry(), enabled, trailDir.toString(), 100, 24, 168);
+    }
+}
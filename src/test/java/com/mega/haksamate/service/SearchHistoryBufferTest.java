@@ -0,0 +1,231 @@
+package com.mega.haksamate.service;
+
+import com.mega.haksamate.entity.History;
+import com.mega.haksamate.entity.Profile;
+import com.mega.haksamate.repository.ProfileRepository;
+import com.mega.haksamate.repository.SearchHistoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SearchHistoryBufferTest {
+
+    private final SearchHistoryRepository searchHistoryRepository = mock(SearchHistoryRepository.class);
+    private final ProfileRepository profileRepository = mock(ProfileRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+
+    // DB 에 들어간 행 / 저장 시 던질 예외 (null 이면 성공)
+    private final List<History> saved = new ArrayList<>();
+    private Function<History, RuntimeException> failure = row -> null;
+
+    @BeforeEach
+    void setUp() {
+        when(profileRepository.existsById(any())).thenReturn(true);
+        when(profileRepository.getReferenceById(any()))
+                .thenAnswer(invocation -> Profile.builder().id(invocation.getArgument(0)).build());
+        when(searchHistoryRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<History> rows = new ArrayList<>();
+            invocation.<Iterable<History>>getArgument(0).forEach(rows::add);
+            for (History row : rows) {
+                RuntimeException e = failure.apply(row);
+                if (e != null) throw e;
+            }
+            saved.addAll(rows);
+            return rows;
+        });
+        when(searchHistoryRepository.save(any())).thenAnswer(invocation -> {
+            History row = invocation.getArgument(0);
+            RuntimeException e = failure.apply(row);
+            if (e != null) throw e;
+            saved.add(row);
+            return row;
+        });
+    }
+
+    @Test
+    void keepsMostRecentDistinctKeywords() {
+        SearchHistoryBuffer buffer = buffer(3, 100);
+
+        buffer.add(alice, "책상");
+        buffer.add(alice, "의자");
+        buffer.add(alice, "책상");
+        buffer.add(alice, "모니터");
+        buffer.add(alice, "전공책");
+
+        // 가득 차면 가장 오래된 검색어부터 밀려난다
+        assertThat(buffer.recent(alice)).containsExactly("전공책", "모니터", "책상");
+
+        buffer.remove(alice, "모니터");
+        assertThat(buffer.recent(alice)).containsExactly("전공책", "책상");
+        buffer.add(alice, "노트북");
+        buffer.add(alice, "태블릿");
+        assertThat(buffer.recent(alice)).containsExactly("태블릿", "노트북", "전공책");
+
+        buffer.clear(alice);
+        assertThat(buffer.recent(alice)).isEmpty();
+        buffer.add(alice, "가방");
+        assertThat(buffer.recent(alice)).containsExactly("가방");
+    }
+
+    @Test
+    void suggestsMatchingKeywordsNewestFirst() {
+        SearchHistoryBuffer buffer = buffer(20, 100);
+        for (int i = 0; i < 8; i++) {
+            buffer.add(alice, "책 " + i);
+        }
+        buffer.add(alice, "의자");
+
+        assertThat(buffer.suggest(alice, "책")).containsExactly("책 7", "책 6", "책 5", "책 4", "책 3");
+        assertThat(buffer.suggest(alice, "없음")).isEmpty();
+    }
+
+    @Test
+    void loadsExistingHistoryOnFirstAccess() {
+        when(searchHistoryRepository.findByProfile_IdOrderBySearchAtDescIdDesc(eq(alice), any(Pageable.class)))
+                .thenReturn(List.of(history("최근"), history("예전")));
+        SearchHistoryBuffer buffer = buffer(20, 100);
+
+        assertThat(buffer.recent(alice)).containsExactly("최근", "예전");
+        buffer.add(alice, "예전");
+        assertThat(buffer.recent(alice)).containsExactly("예전", "최근");
+    }
+
+    @Test
+    void flushWritesOnlyTheLastActionPerKeyword() {
+        SearchHistoryBuffer buffer = buffer(20, 100);
+        buffer.add(alice, "책상");
+        buffer.add(alice, "의자");
+        buffer.add(alice, "책상");
+        buffer.remove(alice, "의자");
+
+        buffer.flush();
+
+        verify(searchHistoryRepository).deleteKeywords(eq(alice),
+                argThat(keywords -> List.copyOf(keywords).equals(List.of("책상", "의자"))));
+        assertThat(saved).extracting(History::getKeyword).containsExactly("책상");
+
+        // 이미 쓴 변경은 다시 쓰지 않는다
+        buffer.flush();
+        verify(searchHistoryRepository, times(1)).deleteKeywords(any(), anyCollection());
+    }
+
+    @Test
+    void permanentlyFailingRowIsDroppedWithoutBlockingOthers() {
+        SearchHistoryBuffer buffer = buffer(20, 100);
+        failure = row -> row.getKeyword().equals("깨진 검색어")
+                ? new DataIntegrityViolationException("value too long") : null;
+        buffer.add(alice, "깨진 검색어");
+        buffer.add(alice, "책상");
+        buffer.add(bob, "의자");
+
+        buffer.flush();
+
+        assertThat(saved).extracting(History::getKeyword).containsExactlyInAnyOrder("책상", "의자");
+        assertThat(meterRegistry.counter("search.history.dropped").count()).isEqualTo(1.0);
+
+        // 버린 행은 다시 시도하지 않는다
+        saved.clear();
+        buffer.flush();
+        assertThat(saved).isEmpty();
+    }
+
+    @Test
+    void transientFailureIsRetriedBeforeNewerChanges() {
+        SearchHistoryBuffer buffer = buffer(20, 100);
+        buffer.add(alice, "책상");
+        buffer.add(alice, "의자");
+        failure = row -> {
+            failure = next -> null;
+            // 저장하는 사이에 새 변경이 들어온다: 의자는 지워지고 모니터가 추가된다
+            buffer.remove(alice, "의자");
+            buffer.add(alice, "모니터");
+            return new QueryTimeoutException("db busy");
+        };
+        buffer.flush();
+        assertThat(saved).isEmpty();
+
+        buffer.flush();
+
+        assertThat(saved).extracting(History::getKeyword).containsExactlyInAnyOrder("책상", "모니터");
+        assertThat(buffer.recent(alice)).containsExactly("모니터", "책상");
+    }
+
+    @Test
+    void retriedClearAllStillRunsFirst() {
+        SearchHistoryBuffer buffer = buffer(20, 100);
+        when(searchHistoryRepository.deleteAllByUserId(alice))
+                .thenAnswer(invocation -> {
+                    // 전체 삭제가 실패하는 사이에 새 검색어가 들어온다
+                    buffer.add(alice, "새 검색어");
+                    throw new QueryTimeoutException("db busy");
+                })
+                .thenReturn(3);
+        buffer.clear(alice);
+        buffer.flush();
+        assertThat(saved).isEmpty();
+
+        buffer.flush();
+
+        verify(searchHistoryRepository, times(2)).deleteAllByUserId(alice);
+        assertThat(saved).extracting(History::getKeyword).containsExactly("새 검색어");
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedUsersWithoutPendingWrites() {
+        SearchHistoryBuffer buffer = buffer(20, 1);
+        UUID carol = UUID.randomUUID();
+
+        buffer.add(alice, "책상");   // 아직 DB 에 쓰지 않았으므로 내려가지 않는다
+        buffer.recent(bob);
+        buffer.recent(carol);        // bob 은 내려간다
+        assertThat(buffer.recent(alice)).containsExactly("책상");
+        verify(searchHistoryRepository, times(1)).findByProfile_IdOrderBySearchAtDescIdDesc(eq(alice), any(Pageable.class));
+
+        buffer.recent(bob);
+        verify(searchHistoryRepository, times(2)).findByProfile_IdOrderBySearchAtDescIdDesc(eq(bob), any(Pageable.class));
+    }
+
+    @Test
+    void rejectsUnknownUserAndTooLongKeyword() {
+        SearchHistoryBuffer buffer = buffer(20, 100);
+        UUID unknown = UUID.randomUUID();
+        when(profileRepository.existsById(unknown)).thenReturn(false);
+
+        assertThatThrownBy(() -> buffer.recent(unknown)).isInstanceOf(java.util.NoSuchElementException.class);
+        assertThatThrownBy(() -> buffer.add(alice, "a".repeat(SearchHistoryBuffer.MAX_KEYWORD_LENGTH + 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(searchHistoryRepository, never()).deleteKeywords(any(), any(Collection.class));
+    }
+
+    private SearchHistoryBuffer buffer(int maxPerUser, int maxUsers) {
+        return new SearchHistoryBuffer(searchHistoryRepository, profileRepository, meterRegistry, maxPerUser, maxUsers);
+    }
+
+    private static History history(String keyword) {
+        return History.builder().keyword(keyword).build();
+    }
+}
@@ -0,0 +1,144 @@
+package com.mega.haksamate.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InboundRateLimiterTest {
+
+    // 위치: 초당 2개(500ms 간격), burst 5 / 사용자 합산은 2배
+    private static final long LOCATION_INTERVAL = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final InboundRateLimiter limiter = new InboundRateLimiter(meterRegistry, 5, 20, 2, 5, 10, 30, 2);
+    private final String userId = UUID.randomUUID().toString();
+    private long now = 1_000_000_000L;
+
+    @BeforeEach
+    void useTestClock() {
+        limiter.clock = () -> now;
+    }
+
+    @Test
+    void bucketAllowsBurstThenRefillsAtRate() {
+        InboundRateLimiter.Bucket bucket = new InboundRateLimiter.Bucket();
+        long interval = 100;
+        long tolerance = interval * 3;
+
+        // 처음에는 burst 만큼 한꺼번에 통과
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(now, interval, tolerance)).isTrue();
+        }
+        assertThat(bucket.tryAcquire(now, interval, tolerance)).isFalse();
+
+        // 간격보다 조금 덜 지나면 아직 막힌다
+        assertThat(bucket.tryAcquire(now + interval - 1, interval, tolerance)).isFalse();
+        // 간격 하나가 지나면 하나만 더
+        assertThat(bucket.tryAcquire(now + interval, interval, tolerance)).isTrue();
+        assertThat(bucket.tryAcquire(now + interval, interval, tolerance)).isFalse();
+
+        // 충분히 쉬면 다시 burst 만큼 (쉰 만큼 더 쌓이지는 않는다)
+        long later = now + interval * 100;
+        assertThat(bucket.isIdle(later)).isTrue();
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(later, interval, tolerance)).isTrue();
+        }
+        assertThat(bucket.tryAcquire(later, interval, tolerance)).isFalse();
+        assertThat(bucket.isIdle(later)).isFalse();
+    }
+
+    @Test
+    void sessionIsLimitedToBurstAndRefillRate() {
+        assertThat(sendBurst("s1", "/app/location.update", 10)).isEqualTo(5);
+        assertThat(limited("location", "session")).isEqualTo(5);
+
+        // 500ms 마다 하나씩 다시 허용
+        now += LOCATION_INTERVAL;
+        assertThat(sendBurst("s1", "/app/location.update", 3)).isEqualTo(1);
+        now += LOCATION_INTERVAL * 2;
+        assertThat(sendBurst("s1", "/app/location.update", 3)).isEqualTo(2);
+    }
+
+    @Test
+    void categoriesHaveSeparateBuckets() {
+        assertThat(sendBurst("s1", "/app/location.update", 10)).isEqualTo(5);
+
+        // 위치 한도를 다 써도 채팅은 자기 burst 만큼 통과
+        assertThat(sendBurst("s1", "/app/chat.send", 25)).isEqualTo(20);
+        assertThat(limited("chat", "session")).isEqualTo(5);
+    }
+
+    @Test
+    void userBudgetIsSharedAcrossSessions() {
+        // 사용자 합산 burst 는 5 x 2 = 10
+        assertThat(sendBurst("s1", "/app/location.update", 5)).isEqualTo(5);
+        assertThat(sendBurst("s2", "/app/location.update", 5)).isEqualTo(5);
+        assertThat(sendBurst("s3", "/app/location.update", 5)).isZero();
+        assertThat(limited("location", "user")).isEqualTo(5);
+
+        // 사용자 합산은 초당 4개(250ms 간격)로 다시 찬다 (s3 는 자기 세션 버킷을 이미 썼으므로 새 세션으로)
+        now += LOCATION_INTERVAL;
+        assertThat(sendBurst("s4", "/app/location.update", 5)).isEqualTo(2);
+    }
+
+    @Test
+    void framesOutsideAppPrefixAreNotLimited() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(limiter.preSend(message("s1", "/topic/location/cell/1_1"), null)).isNotNull();
+        }
+    }
+
+    @Test
+    void disconnectAndIdleEvictionKeepActiveUserBuckets() {
+        sendBurst("s1", "/app/location.update", 10);
+        limiter.onDisconnect(new SessionDisconnectEvent(this, MessageBuilder.withPayload(new byte[0]).build(),
+                "s1", CloseStatus.NORMAL));
+
+        // 세션 버킷은 지워졌지만 사용자 버킷은 남아 있다 (10 중 5 사용)
+        assertThat(sendBurst("s1", "/app/location.update", 10)).isEqualTo(5);
+
+        // 아직 다 차지 않은 사용자 버킷은 정리하지 않는다
+        limiter.evictIdleUsers();
+        assertThat(sendBurst("s2", "/app/location.update", 5)).isZero();
+
+        // 한동안 요청이 없으면 정리되고 다시 burst 만큼 허용
+        now += TimeUnit.SECONDS.toNanos(60);
+        limiter.evictIdleUsers();
+        assertThat(sendBurst("s3", "/app/location.update", 10)).isEqualTo(5);
+    }
+
+    private int sendBurst(String sessionId, String destination, int count) {
+        int passed = 0;
+        for (int i = 0; i < count; i++) {
+            if (limiter.preSend(message(sessionId, destination), null) != null) passed++;
+        }
+        return passed;
+    }
+
+    private Message<byte[]> message(String sessionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination(destination);
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("userId", userId);
+        accessor.setSessionAttributes(attributes);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private double limited(String type, String scope) {
+        return meterRegistry.counter("stomp.inbound.rate.limited", "type", type, "scope", scope).count();
+    }
+}
@@ -0,0 +1,103 @@
+package com.mega.haksamate.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mega.haksamate.dto.LocationShareDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationDeltaEncoderTest {
+
+    private static final String SESSION_ID = "delta-session";
+    private static final String SUBSCRIPTION_ID = "sub-0";
+    private static final String DESTINATION = LocationSubscriptionRouter.CELL_DESTINATION_PREFIX + "3756_12697";
+
+    private final ObjectMapper jsonMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final OutboundPayloadRegistry payloadRegistry = new OutboundPayloadRegistry();
+    // 구독 하나가 두 명까지만 기억한다
+    private final LocationDeltaEncoder encoder =
+            new LocationDeltaEncoder(jsonMapper, payloadRegistry, new SimpleMeterRegistry(), 2);
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final UUID carol = UUID.randomUUID();
+
+    @BeforeEach
+    void subscribeWithDelta() {
+        StompHeaderAccessor subscribe = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        subscribe.setSessionId(SESSION_ID);
+        subscribe.setSubscriptionId(SUBSCRIPTION_ID);
+        subscribe.setDestination(DESTINATION);
+        subscribe.setNativeHeader(LocationDeltaEncoder.ENCODING_HEADER, "delta");
+        encoder.preSend(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()), null);
+    }
+
+    @Test
+    void knownUserIsSentAsDelta() throws Exception {
+        JsonNode first = send(location(alice, 37.56650, 126.97800, "online"));
+        assertThat(first.get("i").asInt()).isEqualTo(1);
+        assertThat(first.get("u").asText()).isEqualTo(alice.toString());
+
+        JsonNode second = send(location(alice, 37.56660, 126.97790, "online"));
+        assertThat(second.isArray()).isTrue();
+        assertThat(second.get(0).asInt()).isEqualTo(1);
+        assertThat(second.get(1).asLong()).isEqualTo(10);
+        assertThat(second.get(2).asLong()).isEqualTo(-10);
+
+        JsonNode offline = send(location(alice, 37.56660, 126.97790, "offline"));
+        assertThat(offline.size()).isEqualTo(1);
+        assertThat(offline.get(0).asInt()).isEqualTo(1);
+    }
+
+    @Test
+    void capOverflowSendsResetBeforeFullRecord() throws Exception {
+        send(location(alice, 37.5, 127.0, "online"));
+        send(location(bob, 37.6, 127.1, "online"));
+
+        // 세 번째 사용자에서 기억하는 목록을 비운다: 클라이언트도 비우도록 reset 이 먼저 간다
+        JsonNode overflow = send(location(carol, 37.7, 127.2, "online"));
+        assertThat(overflow.get("b").size()).isEqualTo(2);
+        assertThat(overflow.get("b").get(0).get("r").asInt()).isEqualTo(1);
+        assertThat(overflow.get("b").get(1).get("u").asText()).isEqualTo(carol.toString());
+
+        // 비운 뒤에는 예전 id 로 delta 를 보내지 않고 전체 기록부터 다시 보낸다
+        JsonNode again = send(location(alice, 37.5001, 127.0, "online"));
+        assertThat(again.isObject()).isTrue();
+        assertThat(again.get("u").asText()).isEqualTo(alice.toString());
+        assertThat(again.has("r")).isFalse();
+    }
+
+    private JsonNode send(LocationShareDTO location) throws Exception {
+        byte[] json = jsonMapper.writeValueAsBytes(location);
+        payloadRegistry.remember(json, location);
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setSessionId(SESSION_ID);
+        headers.setSubscriptionId(SUBSCRIPTION_ID);
+        headers.setDestination(DESTINATION);
+        Message<?> encoded = encoder.preSend(MessageBuilder.createMessage(json, headers.getMessageHeaders()), null);
+        return jsonMapper.readTree((byte[]) encoded.getPayload());
+    }
+
+    private static LocationShareDTO location(UUID userId, double latitude, double longitude, String status) {
+        return new LocationShareDTO(userId, "사용자", latitude, longitude,
+                LocalDateTime.of(2026, 10, 19, 12, 0), status, true);
+    }
+}
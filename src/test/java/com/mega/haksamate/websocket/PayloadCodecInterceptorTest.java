@@ -0,0 +1,139 @@
+package com.mega.haksamate.websocket;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.mega.haksamate.cluster.ClusterMessagingTemplate;
+import com.mega.haksamate.dto.LocationShareDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PayloadCodecInterceptorTest {
+
+    private static final String SESSION_ID = "cbor-session";
+
+    // Spring Boot 기본 설정처럼 날짜를 ISO 문자열로 쓰는 JSON mapper
+    private final ObjectMapper jsonMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final ObjectMapper cborMapper = CborPayloadSupport.createMapper();
+    private final OutboundPayloadRegistry payloadRegistry = new OutboundPayloadRegistry();
+    private final PayloadCodecInterceptor interceptor = new PayloadCodecInterceptor(payloadRegistry, jsonMapper);
+
+    private final LocationShareDTO location = new LocationShareDTO(UUID.randomUUID(), "민수", 37.5665, 126.978,
+            LocalDateTime.of(2026, 10, 19, 12, 30, 15), "online", true);
+
+    @BeforeEach
+    void connectAsCbor() {
+        StompHeaderAccessor connect = StompHeaderAccessor.create(StompCommand.CONNECT);
+        connect.setSessionId(SESSION_ID);
+        connect.setNativeHeader("content-type", "application/cbor");
+        interceptor.preSend(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()), null);
+    }
+
+    @Test
+    void localPayloadIsSentAsBinaryCborFrame() throws Exception {
+        byte[] json = jsonMapper.writeValueAsBytes(location);
+        payloadRegistry.remember(json, location);
+
+        Message<byte[]> received = sendThroughStompHandler(outbound(json, null));
+
+        StompHeaderAccessor headers = StompHeaderAccessor.wrap(received);
+        assertThat(headers.getFirstNativeHeader("content-type")).isEqualTo(MimeTypeUtils.APPLICATION_OCTET_STREAM_VALUE);
+        assertThat(headers.getFirstNativeHeader(PayloadCodecInterceptor.PAYLOAD_ENCODING_HEADER))
+                .isEqualTo(PayloadCodecInterceptor.CBOR_ENCODING);
+        assertThat(cborMapper.readValue(received.getPayload(), LocationShareDTO.class)).isEqualTo(location);
+        assertThat(cborMapper.readTree(received.getPayload()).get("timestamp").asLong()).isEqualTo(epochMillis());
+    }
+
+    @Test
+    void remotePayloadIsDecodedAsItsDtoType() throws Exception {
+        // 다른 노드에서 넘어온 메시지: 원본 객체 없이 JSON 과 타입 이름만 있다
+        byte[] json = jsonMapper.writeValueAsBytes(location);
+
+        Message<byte[]> received = sendThroughStompHandler(outbound(json, LocationShareDTO.class.getName()));
+
+        assertThat(cborMapper.readTree(received.getPayload()).get("timestamp").isNumber()).isTrue();
+        assertThat(cborMapper.readValue(received.getPayload(), LocationShareDTO.class)).isEqualTo(location);
+    }
+
+    @Test
+    void remoteListPayloadKeepsElementType() throws Exception {
+        byte[] json = jsonMapper.writeValueAsBytes(List.of(location));
+
+        Message<byte[]> received = sendThroughStompHandler(outbound(json, "[" + LocationShareDTO.class.getName()));
+
+        assertThat(cborMapper.readTree(received.getPayload()).get(0).get("timestamp").asLong()).isEqualTo(epochMillis());
+    }
+
+    @Test
+    void jsonSessionIsLeftAlone() {
+        byte[] json = "{\"a\":1}".getBytes();
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("json-session");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        Message<byte[]> message = MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+
+        assertThat(interceptor.preSend(message, null)).isSameAs(message);
+    }
+
+    private Message<byte[]> sendThroughStompHandler(Message<?> outbound) throws Exception {
+        Message<?> encoded = interceptor.preSend(outbound, null);
+
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn(SESSION_ID);
+        when(session.isOpen()).thenReturn(true);
+        new StompSubProtocolHandler().handleMessageToClient(session, encoded);
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        ArgumentCaptor<WebSocketMessage<?>> sent = (ArgumentCaptor) ArgumentCaptor.forClass(WebSocketMessage.class);
+        verify(session).sendMessage(sent.capture());
+        // text frame 이면 UTF-8 로 해석되어 CBOR 가 깨진다
+        assertThat(sent.getValue()).isInstanceOf(BinaryMessage.class);
+
+        List<Message<byte[]>> frames = new StompDecoder().decode(((BinaryMessage) sent.getValue()).getPayload());
+        assertThat(frames).hasSize(1);
+        return frames.get(0);
+    }
+
+    private static Message<byte[]> outbound(byte[] json, String payloadType) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(SESSION_ID);
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/topic/location/cell/3756_12697");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        if (payloadType != null) {
+            accessor.setHeader(ClusterMessagingTemplate.PAYLOAD_TYPE_HEADER, payloadType);
+        }
+        return MessageBuilder.createMessage(json, accessor.getMessageHeaders());
+    }
+
+    private long epochMillis() {
+        return location.getTimestamp().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}